@@ -0,0 +1,14 @@
+package com.ecommerce.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Scheduled jobs share the pool sized by {@code spring.task.scheduling.pool.size}. Jobs that can run for minutes
+ * (payment reconciliation, order archival) only hand their run to a thread of their own, so they never hold up the
+ * short periodic jobs such as catalog refresh, webhook processing and outbox dispatch.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -35,6 +35,7 @@ public class SecurityConfig {
                         .requestMatchers("/api/payments/**").permitAll()
                         .requestMatchers("/api/config/stripe").permitAll()
                         .requestMatchers("/api/logs/**").permitAll()
+                        .requestMatchers("/api/outbox-receiver/**").permitAll()
                         // H2 console
                         .requestMatchers("/h2-console/**").permitAll()
                         // Admin endpoints
@@ -1,18 +1,50 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.dto.BulkOrderStatusRequest;
+import com.ecommerce.dto.BulkOrderStatusResponse;
+import com.ecommerce.dto.BulkPaymentConfirmRequest;
+import com.ecommerce.dto.OrderArchiveResponse;
 import com.ecommerce.dto.OrderResponse;
+import com.ecommerce.dto.OrderSearchCriteria;
+import com.ecommerce.dto.OrderSearchResponse;
+import com.ecommerce.dto.OrderStatsResponse;
+import com.ecommerce.dto.PaymentConfirmationResponse;
+import com.ecommerce.dto.ProductImportResponse;
 import com.ecommerce.dto.ProductResponse;
+import com.ecommerce.dto.RollupBucketResponse;
 import com.ecommerce.dto.UpdateOrderStatusRequest;
 import com.ecommerce.model.Order;
+import com.ecommerce.repository.ProductJdbcRepository;
+import com.ecommerce.service.InventoryReservationService;
+import com.ecommerce.service.OrderArchiveService;
+import com.ecommerce.service.OrderBulkStatusService;
+import com.ecommerce.service.OrderExportService;
+import com.ecommerce.service.OrderRollupService;
+import com.ecommerce.service.OrderStatsService;
 import com.ecommerce.service.OrderService;
+import com.ecommerce.service.OutboxDispatcher;
+import com.ecommerce.service.PaymentReconciliationService;
+import com.ecommerce.service.PaymentWebhookProcessor;
+import com.ecommerce.service.ProductImportService;
 import com.ecommerce.service.ProductService;
+import com.ecommerce.service.ResilientPaymentGateway;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -22,6 +54,17 @@ public class AdminController {
 
     private final OrderService orderService;
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final InventoryReservationService inventoryReservationService;
+    private final OrderExportService orderExportService;
+    private final OrderStatsService orderStatsService;
+    private final OrderRollupService orderRollupService;
+    private final OrderBulkStatusService orderBulkStatusService;
+    private final OrderArchiveService orderArchiveService;
+    private final OutboxDispatcher outboxDispatcher;
+    private final ResilientPaymentGateway paymentGateway;
+    private final PaymentWebhookProcessor paymentWebhookProcessor;
+    private final PaymentReconciliationService paymentReconciliationService;
 
     @GetMapping("/orders")
     public ResponseEntity<List<OrderResponse>> getAllOrders() {
@@ -29,6 +72,75 @@ public class AdminController {
         return ResponseEntity.ok(orderService.getAllOrders());
     }
 
+    @GetMapping("/stats")
+    public ResponseEntity<OrderStatsResponse> getStats() {
+        log.debug("GET /api/admin/stats - fetching order stats");
+        return ResponseEntity.ok(orderStatsService.getStats());
+    }
+
+    @PostMapping("/stats/reconcile")
+    public ResponseEntity<OrderStatsResponse> reconcileStats() {
+        log.info("POST /api/admin/stats/reconcile - rebuilding order stats");
+        return ResponseEntity.ok(orderStatsService.reconcile());
+    }
+
+    @GetMapping("/rollups")
+    public ResponseEntity<List<RollupBucketResponse>> getRollups(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = OrderRollupService.GRANULARITY_HOUR) String granularity,
+            @RequestParam(required = false) String category) {
+        log.debug("GET /api/admin/rollups - from: {}, to: {}, granularity: {}", from, to, granularity);
+        return ResponseEntity.ok(orderRollupService.getRollups(from, to, granularity, category));
+    }
+
+    @PostMapping("/rollups/backfill")
+    public ResponseEntity<Void> backfillRollups(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        log.info("POST /api/admin/rollups/backfill - from: {}, to: {}", from, to);
+        // Runs in the background; progress and the outcome are logged
+        orderRollupService.startBackfill(from, to);
+        return ResponseEntity.accepted().build();
+    }
+
+    @GetMapping("/orders/search")
+    public ResponseEntity<OrderSearchResponse> searchOrders(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) BigDecimal minTotal,
+            @RequestParam(required = false) BigDecimal maxTotal,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        log.info("GET /api/admin/orders/search - status: {}, email: {}, from: {}, to: {}", status, email, from, to);
+        OrderSearchCriteria criteria = OrderSearchCriteria.builder()
+                .status(status != null ? Order.OrderStatus.valueOf(status.toUpperCase()) : null)
+                .customerEmailPrefix(email != null && !email.isBlank() ? email : null)
+                .createdFrom(from)
+                .createdTo(to)
+                .minTotal(minTotal)
+                .maxTotal(maxTotal)
+                .build();
+        return ResponseEntity.ok(orderService.searchOrders(criteria, cursor, limit));
+    }
+
+    @GetMapping("/orders/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = OrderExportService.FORMAT_NDJSON) String format) {
+        log.info("GET /api/admin/orders/export - format: {}", format);
+        boolean csv = OrderExportService.FORMAT_CSV.equals(format);
+        if (!csv && !OrderExportService.FORMAT_NDJSON.equals(format)) {
+            throw new RuntimeException("Unsupported export format: " + format);
+        }
+        String filename = "orders-" + LocalDate.now() + "." + format;
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv") : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(out -> orderExportService.exportOrders(out, format));
+    }
+
     @GetMapping("/orders/{id}")
     public ResponseEntity<OrderResponse> getOrder(@PathVariable Long id) {
         log.debug("GET /api/admin/orders/{} - fetching order", id);
@@ -41,7 +153,20 @@ public class AdminController {
             @Valid @RequestBody UpdateOrderStatusRequest request) {
         log.info("PUT /api/admin/orders/{}/status - updating to: {}", id, request.getStatus());
         Order.OrderStatus status = Order.OrderStatus.valueOf(request.getStatus().toUpperCase());
-        return ResponseEntity.ok(orderService.updateOrderStatus(id, status));
+        return ResponseEntity.ok(orderService.updateOrderStatus(id, status, request.getExpectedVersion()));
+    }
+
+    @PostMapping("/orders/bulk-status")
+    public ResponseEntity<BulkOrderStatusResponse> bulkUpdateOrderStatus(
+            @Valid @RequestBody BulkOrderStatusRequest request) {
+        log.info("POST /api/admin/orders/bulk-status - updating to: {}", request.getStatus());
+        return ResponseEntity.ok(orderBulkStatusService.updateStatuses(request));
+    }
+
+    @PostMapping("/orders/archive")
+    public ResponseEntity<OrderArchiveResponse> archiveOrders(@RequestParam(defaultValue = "180") int minAgeDays) {
+        log.info("POST /api/admin/orders/archive - minAgeDays: {}", minAgeDays);
+        return ResponseEntity.ok(orderArchiveService.archiveOrders(minAgeDays));
     }
 
     @GetMapping("/products")
@@ -49,4 +174,68 @@ public class AdminController {
         log.info("GET /api/admin/products - fetching all products");
         return ResponseEntity.ok(productService.getAllProducts());
     }
+
+    @PostMapping(value = "/products/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ProductImportResponse> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @RequestParam(defaultValue = "KEEP") ProductJdbcRepository.StockMode stock,
+            InputStream body) {
+        String format = contentType.startsWith("text/csv") ? ProductImportService.FORMAT_CSV : ProductImportService.FORMAT_NDJSON;
+        log.info("POST /api/admin/products/import - format: {}, stock: {}", format, stock);
+        return ResponseEntity.ok(productImportService.importProducts(body, format, stock));
+    }
+
+    @GetMapping("/outbox")
+    public ResponseEntity<Map<String, Long>> getOutboxStatus() {
+        log.debug("GET /api/admin/outbox - fetching outbox status counts");
+        return ResponseEntity.ok(outboxDispatcher.getStatusCounts());
+    }
+
+    @PostMapping("/outbox/retry-failed")
+    public ResponseEntity<Map<String, Integer>> retryFailedOutboxEvents() {
+        log.info("POST /api/admin/outbox/retry-failed - requeueing failed events");
+        return ResponseEntity.ok(Map.of("requeued", outboxDispatcher.retryFailedEvents()));
+    }
+
+    @GetMapping("/payments/gateway")
+    public ResponseEntity<Map<String, Object>> getPaymentGatewayStatus() {
+        log.debug("GET /api/admin/payments/gateway - fetching payment gateway status");
+        return ResponseEntity.ok(paymentGateway.getStatus());
+    }
+
+    @PostMapping("/payments/confirm")
+    public ResponseEntity<PaymentConfirmationResponse> confirmPayments(
+            @Valid @RequestBody BulkPaymentConfirmRequest request) {
+        log.info("POST /api/admin/payments/confirm - {} payment intents", request.getPaymentIntentIds().size());
+        // Only intents the payment provider reports as succeeded are confirmed
+        return ResponseEntity.ok(paymentReconciliationService.confirmVerified(request.getPaymentIntentIds()));
+    }
+
+    @PostMapping("/payments/reconcile")
+    public ResponseEntity<Void> reconcilePayments() {
+        log.info("POST /api/admin/payments/reconcile - reconciling stale payments");
+        // Runs in the background; the outcome is logged and recorded in the reconciliation metrics
+        paymentReconciliationService.startReconciliation();
+        return ResponseEntity.accepted().build();
+    }
+
+    @GetMapping("/payments/webhooks")
+    public ResponseEntity<Map<String, Long>> getWebhookStatus() {
+        log.debug("GET /api/admin/payments/webhooks - fetching webhook event status counts");
+        return ResponseEntity.ok(paymentWebhookProcessor.getStatusCounts());
+    }
+
+    @PostMapping("/payments/webhooks/retry-failed")
+    public ResponseEntity<Map<String, Integer>> retryFailedWebhookEvents() {
+        log.info("POST /api/admin/payments/webhooks/retry-failed - requeueing failed events");
+        return ResponseEntity.ok(Map.of("requeued", paymentWebhookProcessor.retryFailedEvents()));
+    }
+
+    @GetMapping("/inventory/holds")
+    public ResponseEntity<Map<String, Object>> getInventoryHolds() {
+        log.debug("GET /api/admin/inventory/holds - fetching held quantities");
+        return ResponseEntity.ok(Map.of(
+                "activeHolds", inventoryReservationService.getActiveHoldCount(),
+                "heldByProduct", inventoryReservationService.getHeldQuantities()));
+    }
 }
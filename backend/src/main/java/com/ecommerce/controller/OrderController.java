@@ -1,7 +1,11 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.dto.CheckoutTicketResponse;
 import com.ecommerce.dto.CreateOrderRequest;
 import com.ecommerce.dto.OrderResponse;
+import com.ecommerce.model.CheckoutTicket;
+import com.ecommerce.service.CheckoutQueueService;
+import com.ecommerce.service.IdempotencyService;
 import com.ecommerce.service.OrderService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -9,8 +13,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.net.URI;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -18,15 +25,60 @@ import java.util.List;
 @Slf4j
 public class OrderController {
 
+    private static final long MAX_TICKET_WAIT_MS = 30_000;
+
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
+    private final CheckoutQueueService checkoutQueueService;
 
     @PostMapping
     public ResponseEntity<OrderResponse> createOrder(
             @Valid @RequestBody CreateOrderRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             Authentication authentication) {
         log.info("POST /api/orders - creating order for: {}", request.getCustomerEmail());
         String userEmail = authentication != null ? (String) authentication.getPrincipal() : null;
-        return ResponseEntity.ok(orderService.createOrder(request, userEmail));
+        // A guest's email is whatever the client sends, so it only groups guest keys; it does not authenticate them
+        String owner = userEmail != null ? userEmail : request.getCustomerEmail();
+        return ResponseEntity.ok(idempotencyService.execute(IdempotencyService.SCOPE_ORDERS, owner, idempotencyKey,
+                request, OrderResponse.class, () -> orderService.createOrder(request, userEmail)));
+    }
+
+    @PostMapping("/async")
+    public ResponseEntity<CheckoutTicketResponse> createOrderAsync(
+            @Valid @RequestBody CreateOrderRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Authentication authentication) {
+        log.info("POST /api/orders/async - queueing order for: {}", request.getCustomerEmail());
+        String userEmail = authentication != null ? (String) authentication.getPrincipal() : null;
+        String owner = userEmail != null ? userEmail : request.getCustomerEmail();
+        CheckoutTicketResponse ticket = idempotencyService.execute(IdempotencyService.SCOPE_CHECKOUT_TICKETS, owner,
+                idempotencyKey, request, CheckoutTicketResponse.class,
+                () -> checkoutQueueService.submit(request, userEmail));
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/orders/tickets/" + ticket.getTicketId()))
+                .body(ticket);
+    }
+
+    @GetMapping("/tickets/{ticketId}")
+    public DeferredResult<ResponseEntity<CheckoutTicketResponse>> getCheckoutTicket(
+            @PathVariable String ticketId,
+            @RequestParam(defaultValue = "0") long waitMs) {
+        log.debug("GET /api/orders/tickets/{} - waitMs: {}", ticketId, waitMs);
+        CheckoutTicketResponse ticket = checkoutQueueService.getTicket(ticketId);
+        CompletableFuture<CheckoutTicketResponse> completion = checkoutQueueService.awaitTicket(ticketId);
+        boolean queued = CheckoutTicket.Status.QUEUED.name().equals(ticket.getStatus());
+        long timeout = Math.min(Math.max(waitMs, 0), MAX_TICKET_WAIT_MS);
+        if (!queued || completion == null || timeout == 0) {
+            DeferredResult<ResponseEntity<CheckoutTicketResponse>> result = new DeferredResult<>();
+            result.setResult(queued ? ResponseEntity.accepted().body(ticket) : ResponseEntity.ok(ticket));
+            return result;
+        }
+        // Long poll without holding a request thread; times out with the ticket still queued
+        DeferredResult<ResponseEntity<CheckoutTicketResponse>> result =
+                new DeferredResult<>(timeout, ResponseEntity.accepted().body(ticket));
+        completion.thenAccept(done -> result.setResult(ResponseEntity.ok(done)));
+        return result;
     }
 
     @GetMapping("/{id}")
@@ -0,0 +1,28 @@
+package com.ecommerce.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Local stand-in for a downstream HTTP consumer of outbox events, enabled in development only.
+ */
+@RestController
+@RequestMapping("/api/outbox-receiver")
+@ConditionalOnProperty(name = "outbox.stand-in-receiver.enabled", havingValue = "true")
+@Slf4j
+public class OutboxReceiverController {
+
+    @PostMapping("/events")
+    public ResponseEntity<Void> receive(@RequestHeader("X-Event-Id") String eventId,
+                                        @RequestHeader("X-Event-Type") String eventType,
+                                        @RequestBody String payload) {
+        log.info("POST /api/outbox-receiver/events - event {} ({}): {}", eventId, eventType, payload);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,16 +1,23 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.dto.PaymentConfirmationResponse;
 import com.ecommerce.dto.PaymentIntentRequest;
 import com.ecommerce.dto.PaymentIntentResponse;
+import com.ecommerce.service.IdempotencyService;
+import com.ecommerce.service.PaymentReconciliationService;
 import com.ecommerce.service.PaymentService;
-import com.stripe.exception.StripeException;
+import com.ecommerce.service.PaymentWebhookService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -20,22 +27,49 @@ import java.util.Map;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final PaymentReconciliationService paymentReconciliationService;
+    private final IdempotencyService idempotencyService;
+    private final PaymentWebhookService paymentWebhookService;
 
     @Value("${stripe.publishable.key}")
     private String stripePublishableKey;
 
     @PostMapping("/create-intent")
     public ResponseEntity<PaymentIntentResponse> createPaymentIntent(
-            @Valid @RequestBody PaymentIntentRequest request) throws StripeException {
+            @Valid @RequestBody PaymentIntentRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Authentication authentication) {
         log.info("POST /api/payments/create-intent - order: {}", request.getOrderId());
-        return ResponseEntity.ok(paymentService.createPaymentIntent(request.getOrderId()));
+        // Guests send no email here; their keys are still bound to the order through the request hash
+        String owner = authentication != null ? (String) authentication.getPrincipal() : IdempotencyService.GUEST_OWNER;
+        return ResponseEntity.ok(idempotencyService.executeOutsideTransaction(
+                IdempotencyService.SCOPE_PAYMENT_INTENTS, owner, idempotencyKey, request, PaymentIntentResponse.class,
+                () -> paymentService.createPaymentIntent(request.getOrderId())));
     }
 
     @PostMapping("/confirm")
     public ResponseEntity<Map<String, String>> confirmPayment(@RequestBody Map<String, String> payload) {
         String paymentIntentId = payload.get("paymentIntentId");
         log.info("POST /api/payments/confirm - intent: {}", paymentIntentId);
-        paymentService.confirmPayment(paymentIntentId);
+        if (paymentIntentId == null || paymentIntentId.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "paymentIntentId is required");
+        }
+        // Clients only report the payment; it is confirmed once the provider says the intent succeeded
+        PaymentConfirmationResponse response = paymentReconciliationService.confirmVerified(List.of(paymentIntentId));
+        if (!response.getRejected().isEmpty()) {
+            PaymentConfirmationResponse.Rejected rejected = response.getRejected().get(0);
+            throw new ResponseStatusException(rejected.isRetryable() ? HttpStatus.CONFLICT : HttpStatus.BAD_REQUEST,
+                    rejected.getReason());
+        }
         return ResponseEntity.ok(Map.of("status", "success"));
     }
+
+    @PostMapping("/webhook")
+    public ResponseEntity<Map<String, Boolean>> receiveWebhook(
+            @RequestBody String payload,
+            @RequestHeader(value = "Stripe-Signature", required = false) String signature) {
+        log.debug("POST /api/payments/webhook - {} bytes", payload.length());
+        boolean stored = paymentWebhookService.receive(payload, signature);
+        return ResponseEntity.ok(Map.of("received", true, "duplicate", !stored));
+    }
 }
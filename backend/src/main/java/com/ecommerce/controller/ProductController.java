@@ -1,13 +1,21 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.dto.FacetedBrowseResponse;
+import com.ecommerce.dto.ProductPageResponse;
 import com.ecommerce.dto.ProductResponse;
+import com.ecommerce.service.CatalogView;
 import com.ecommerce.service.ProductService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/api/products")
@@ -18,9 +26,41 @@ public class ProductController {
     private final ProductService productService;
 
     @GetMapping
-    public ResponseEntity<List<ProductResponse>> getAllProducts() {
+    public ResponseEntity<byte[]> getAllProducts(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.debug("GET /api/products - fetching all products");
-        return ResponseEntity.ok(productService.getAllActiveProducts());
+        return catalogResponse(productService.getActiveCatalogView(), acceptEncoding, ifNoneMatch);
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<ProductPageResponse> getProductPage(
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) List<String> fields) {
+        log.debug("GET /api/products/page - sort: {}, limit: {}", sort, limit);
+        return ResponseEntity.ok(productService.getActiveProductPage(null, sort, cursor, limit, fields));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<ProductResponse>> searchProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit) {
+        log.debug("GET /api/products/search - query: {}", q);
+        return ResponseEntity.ok(productService.searchProducts(q, limit));
+    }
+
+    @GetMapping("/browse")
+    public ResponseEntity<FacetedBrowseResponse> browseProducts(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String priceRange,
+            @RequestParam(required = false) String availability,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "20") int limit) {
+        log.debug("GET /api/products/browse - category: {}, priceRange: {}, availability: {}",
+                category, priceRange, availability);
+        return ResponseEntity.ok(productService.browseProducts(category, priceRange, availability, afterId, limit));
     }
 
     @GetMapping("/{id}")
@@ -30,8 +70,73 @@ public class ProductController {
     }
 
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<ProductResponse>> getProductsByCategory(@PathVariable String category) {
+    public ResponseEntity<byte[]> getProductsByCategory(
+            @PathVariable String category,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.debug("GET /api/products/category/{} - fetching products by category", category);
-        return ResponseEntity.ok(productService.getProductsByCategory(category));
+        return catalogResponse(productService.getCategoryCatalogView(category), acceptEncoding, ifNoneMatch);
+    }
+
+    @GetMapping("/category/{category}/page")
+    public ResponseEntity<ProductPageResponse> getProductPageByCategory(
+            @PathVariable String category,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) List<String> fields) {
+        log.debug("GET /api/products/category/{}/page - sort: {}, limit: {}", category, sort, limit);
+        return ResponseEntity.ok(productService.getActiveProductPage(category, sort, cursor, limit, fields));
+    }
+
+    // Each encoding has its own ETag, but a tag of either encoding makes the listing not modified
+    private ResponseEntity<byte[]> catalogResponse(CatalogView view, String acceptEncoding, String ifNoneMatch) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        boolean notModified = view.matches(ifNoneMatch);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                .eTag(gzip ? view.getGzipEtag() : view.getEtag())
+                .cacheControl(CacheControl.noCache().cachePublic())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (notModified) {
+            return response.build();
+        }
+        response.contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(view.getGzipJson());
+        }
+        return response.body(view.getJson());
+    }
+
+    // An explicit gzip entry wins over a wildcard; either one only counts with a non-zero q-value
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=") || param.startsWith("Q=")) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzipQuality = quality;
+            } else if (coding.equals("*")) {
+                wildcardQuality = quality;
+            }
+        }
+        if (gzipQuality != null) {
+            return gzipQuality > 0;
+        }
+        return wildcardQuality != null && wildcardQuality > 0;
     }
 }
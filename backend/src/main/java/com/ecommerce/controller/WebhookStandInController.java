@@ -0,0 +1,34 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.service.WebhookFixtureReplayer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Replays signed webhook fixtures against this instance, enabled in development only.
+ */
+@RestController
+@RequestMapping("/api/admin/webhook-stand-in")
+@ConditionalOnProperty(name = "payments.webhook.stand-in.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class WebhookStandInController {
+
+    private final WebhookFixtureReplayer webhookFixtureReplayer;
+
+    @PostMapping("/replay")
+    public ResponseEntity<Map<String, Object>> replay(@RequestParam String fixture,
+                                                      @RequestParam String paymentIntentId,
+                                                      @RequestParam(required = false) String eventId) {
+        log.info("POST /api/admin/webhook-stand-in/replay - fixture: {}, intent: {}", fixture, paymentIntentId);
+        return ResponseEntity.ok(webhookFixtureReplayer.replay(fixture, paymentIntentId, eventId));
+    }
+}
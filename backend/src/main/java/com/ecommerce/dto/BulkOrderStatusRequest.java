@@ -0,0 +1,28 @@
+package com.ecommerce.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class BulkOrderStatusRequest {
+    private List<Long> orderIds;
+
+    private Filter filter;
+
+    @NotBlank
+    private String status;
+
+    @Data
+    public static class Filter {
+        private String status;
+        private String customerEmail;
+        private LocalDateTime from;
+        private LocalDateTime to;
+        private BigDecimal minTotal;
+        private BigDecimal maxTotal;
+    }
+}
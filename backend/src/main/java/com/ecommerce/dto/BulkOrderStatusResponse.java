@@ -0,0 +1,25 @@
+package com.ecommerce.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BulkOrderStatusResponse {
+    private String status;
+    private Integer requested;
+    private List<Long> updated;
+    private List<Long> unchanged;
+    private List<Long> notFound;
+    private List<Rejected> rejected;
+    private Long durationMs;
+
+    @Data
+    @Builder
+    public static class Rejected {
+        private Long id;
+        private String currentStatus;
+    }
+}
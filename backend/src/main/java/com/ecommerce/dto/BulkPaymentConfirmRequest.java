@@ -0,0 +1,14 @@
+package com.ecommerce.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkPaymentConfirmRequest {
+    @NotEmpty
+    @Size(max = 1000)
+    private List<String> paymentIntentIds;
+}
@@ -0,0 +1,18 @@
+package com.ecommerce.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class CheckoutTicketResponse {
+    private String ticketId;
+    private String status;
+    private Long orderId;
+    private String error;
+    private LocalDateTime queuedAt;
+    private LocalDateTime completedAt;
+    private OrderResponse order;
+}
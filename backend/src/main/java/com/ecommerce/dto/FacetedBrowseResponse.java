@@ -0,0 +1,18 @@
+package com.ecommerce.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+public class FacetedBrowseResponse {
+    private List<ProductResponse> products;
+    private Long total;
+    private Long nextAfterId;
+    private Map<String, Long> categories;
+    private Map<String, Long> priceRanges;
+    private Map<String, Long> availability;
+}
@@ -0,0 +1,15 @@
+package com.ecommerce.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class OrderArchiveResponse {
+    private LocalDateTime cutoff;
+    private int batches;
+    private long archived;
+    private long durationMs;
+}
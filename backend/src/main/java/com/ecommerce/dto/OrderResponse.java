@@ -3,8 +3,10 @@ package com.ecommerce.dto;
 import com.ecommerce.model.Order;
 import com.ecommerce.model.OrderItem;
 import com.ecommerce.model.Payment;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -13,6 +15,8 @@ import java.util.stream.Collectors;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class OrderResponse {
     private Long id;
     private String customerEmail;
@@ -27,9 +31,12 @@ public class OrderResponse {
     private PaymentResponse payment;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Long version;
 
     @Data
     @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
     public static class OrderItemResponse {
         private Long productId;
         private String productName;
@@ -40,6 +47,8 @@ public class OrderResponse {
 
     @Data
     @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
     public static class PaymentResponse {
         private String status;
         private BigDecimal amount;
@@ -61,6 +70,7 @@ public class OrderResponse {
                 .status(order.getStatus().name())
                 .createdAt(order.getCreatedAt())
                 .updatedAt(order.getUpdatedAt())
+                .version(order.getVersion())
                 .items(order.getItems().stream()
                         .map(OrderResponse::mapOrderItem)
                         .collect(Collectors.toList()));
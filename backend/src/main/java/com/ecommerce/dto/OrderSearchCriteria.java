@@ -0,0 +1,21 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.model.Order;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class OrderSearchCriteria {
+    private Order.OrderStatus status;
+    private String customerEmailPrefix;
+    private LocalDateTime createdFrom;
+    private LocalDateTime createdTo;
+    private BigDecimal minTotal;
+    private BigDecimal maxTotal;
+    private LocalDateTime beforeCreatedAt;
+    private Long beforeId;
+}
@@ -0,0 +1,15 @@
+package com.ecommerce.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class OrderSearchResponse {
+    private List<OrderSummaryResponse> items;
+    private Integer limit;
+    private String nextCursor;
+    private Boolean hasMore;
+}
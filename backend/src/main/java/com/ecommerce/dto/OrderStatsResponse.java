@@ -0,0 +1,18 @@
+package com.ecommerce.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+@Data
+@Builder
+public class OrderStatsResponse {
+    private Map<String, Long> ordersByStatus;
+    private Map<String, BigDecimal> revenueByStatus;
+    private Long totalOrders;
+    private BigDecimal grossRevenue;
+    private BigDecimal paidRevenue;
+    private BigDecimal averageOrderValue;
+}
@@ -0,0 +1,18 @@
+package com.ecommerce.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class OrderSummaryResponse {
+    private Long id;
+    private String customerEmail;
+    private String status;
+    private BigDecimal totalAmount;
+    private String paymentStatus;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,25 @@
+package com.ecommerce.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class PaymentConfirmationResponse {
+    private Integer requested;
+    private List<String> confirmed;
+    private List<String> alreadyConfirmed;
+    private List<Rejected> rejected;
+    private Long durationMs;
+
+    @Data
+    @Builder
+    public static class Rejected {
+        private String paymentIntentId;
+        private String reason;
+        // False when retrying cannot help, for example because the order has been cancelled
+        private boolean retryable;
+    }
+}
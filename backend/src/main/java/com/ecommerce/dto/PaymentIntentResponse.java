@@ -1,10 +1,14 @@
 package com.ecommerce.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class PaymentIntentResponse {
     private String clientSecret;
     private String paymentIntentId;
@@ -0,0 +1,26 @@
+package com.ecommerce.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@Builder
+public class PaymentReconciliationResponse {
+    private LocalDateTime cutoff;
+    private long checked;
+    private long succeeded;
+    private long failed;
+    private long cancelled;
+    private long stillOpen;
+    // True when another instance took over the job lease and this run stopped early
+    private boolean leaseLost;
+    private long rejected;
+    private long retryableRejections;
+    private long gatewayErrors;
+    private Map<String, Long> drift;
+    private long durationMs;
+    private double paymentsPerSecond;
+}
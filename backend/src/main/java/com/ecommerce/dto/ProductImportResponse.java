@@ -0,0 +1,30 @@
+package com.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ProductImportResponse {
+    private Long processed;
+    private Long inserted;
+    private Long updated;
+    private Long unchanged;
+    private Long duplicates;
+    private Long failed;
+    private List<RowError> errors;
+    private Boolean errorsTruncated;
+    private Long durationMs;
+    private Long rowsPerSecond;
+
+    @Data
+    @AllArgsConstructor
+    public static class RowError {
+        private Long line;
+        private String sku;
+        private String error;
+    }
+}
@@ -0,0 +1,17 @@
+package com.ecommerce.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+public class ProductPageResponse {
+    private List<Map<String, Object>> items;
+    private String sort;
+    private Integer limit;
+    private String nextCursor;
+    private Boolean hasMore;
+}
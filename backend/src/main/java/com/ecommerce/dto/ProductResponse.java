@@ -5,11 +5,19 @@ import lombok.Builder;
 import lombok.Data;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Data
 @Builder
 public class ProductResponse {
+    public static final List<String> FIELDS =
+            List.of("id", "sku", "name", "description", "price", "stockQuantity", "imageUrl", "category", "active");
+
     private Long id;
+    private String sku;
     private String name;
     private String description;
     private BigDecimal price;
@@ -21,6 +29,7 @@ public class ProductResponse {
     public static ProductResponse fromProduct(Product product) {
         return ProductResponse.builder()
                 .id(product.getId())
+                .sku(product.getSku())
                 .name(product.getName())
                 .description(product.getDescription())
                 .price(product.getPrice())
@@ -30,4 +39,23 @@ public class ProductResponse {
                 .active(product.getActive())
                 .build();
     }
+
+    public Map<String, Object> toFieldMap(Collection<String> fields) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String field : fields) {
+            switch (field) {
+                case "id" -> values.put(field, id);
+                case "sku" -> values.put(field, sku);
+                case "name" -> values.put(field, name);
+                case "description" -> values.put(field, description);
+                case "price" -> values.put(field, price);
+                case "stockQuantity" -> values.put(field, stockQuantity);
+                case "imageUrl" -> values.put(field, imageUrl);
+                case "category" -> values.put(field, category);
+                case "active" -> values.put(field, active);
+                default -> throw new IllegalArgumentException("Unknown product field: " + field);
+            }
+        }
+        return values;
+    }
 }
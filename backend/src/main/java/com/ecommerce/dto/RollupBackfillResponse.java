@@ -0,0 +1,17 @@
+package com.ecommerce.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class RollupBackfillResponse {
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private Integer chunks;
+    private Long ordersScanned;
+    private Long bucketsWritten;
+    private Long durationMs;
+}
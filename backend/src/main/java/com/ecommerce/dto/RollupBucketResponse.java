@@ -0,0 +1,18 @@
+package com.ecommerce.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class RollupBucketResponse {
+    private LocalDateTime bucketStart;
+    private String category;
+    private Long orderCount;
+    private Long units;
+    private BigDecimal grossRevenue;
+    private BigDecimal paidRevenue;
+}
@@ -7,4 +7,6 @@ import lombok.Data;
 public class UpdateOrderStatusRequest {
     @NotBlank
     private String status;
+
+    private Long expectedVersion;
 }
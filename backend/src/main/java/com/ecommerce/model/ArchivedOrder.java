@@ -0,0 +1,62 @@
+package com.ecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A finished order moved out of the live tables. The columns needed for lookups and aggregates are kept as-is; the
+ * order with its items and payment is stored as the serialized {@code OrderResponse} it was last shown as. The
+ * payment's provider reference, which the response does not expose, is kept alongside for refunds and disputes.
+ */
+@Entity
+@Table(name = "archived_orders", indexes = {
+        @Index(name = "idx_archived_orders_customer_email_created", columnList = "customer_email, created_at"),
+        @Index(name = "idx_archived_orders_created", columnList = "created_at"),
+        @Index(name = "idx_archived_orders_payment_intent", columnList = "payment_intent_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedOrder {
+
+    @Id
+    private Long id;
+
+    private Long userId;
+
+    @Column(nullable = false)
+    private String customerEmail;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Order.OrderStatus status;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+
+    private Long paymentId;
+
+    private String paymentIntentId;
+
+    @Enumerated(EnumType.STRING)
+    private Payment.PaymentStatus paymentStatus;
+
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    @Column(nullable = false)
+    private String payload;
+}
@@ -0,0 +1,54 @@
+package com.ecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An asynchronous checkout, stored when it is accepted so it can be polled on any instance, and updated with its
+ * outcome once it has been processed or abandoned.
+ */
+@Entity
+@Table(name = "checkout_tickets",
+        uniqueConstraints = @UniqueConstraint(name = "uk_checkout_tickets_ticket_id", columnNames = "ticket_id"),
+        indexes = {
+                @Index(name = "idx_checkout_tickets_completed", columnList = "completed_at"),
+                @Index(name = "idx_checkout_tickets_status_queued", columnList = "status, queued_at")
+        })
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutTicket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "ticket_id", nullable = false, length = 64)
+    private String ticketId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    private Long orderId;
+
+    @Column(length = 1000)
+    private String error;
+
+    @Column(nullable = false)
+    private LocalDateTime queuedAt;
+
+    private LocalDateTime completedAt;
+
+    public enum Status {
+        QUEUED,
+        COMPLETED,
+        FAILED
+    }
+}
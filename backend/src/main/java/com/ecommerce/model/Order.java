@@ -12,13 +12,25 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_status_created", columnList = "status, created_at, id"),
+        @Index(name = "idx_orders_customer_email_created", columnList = "customer_email, created_at, id"),
+        @Index(name = "idx_orders_created", columnList = "created_at, id")
+})
+@NamedEntityGraph(name = Order.DETAILS_GRAPH,
+        attributeNodes = {
+                @NamedAttributeNode(value = "items", subgraph = "items"),
+                @NamedAttributeNode("payment")
+        },
+        subgraphs = @NamedSubgraph(name = "items", attributeNodes = @NamedAttributeNode("product")))
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Order {
 
+    public static final String DETAILS_GRAPH = "Order.details";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -60,6 +72,9 @@ public class Order {
 
     private LocalDateTime updatedAt;
 
+    @Version
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -82,6 +97,20 @@ public class Order {
         PROCESSING,
         SHIPPED,
         DELIVERED,
-        CANCELLED
+        CANCELLED;
+
+        public boolean isPaid() {
+            return this == PAID || this == PROCESSING || this == SHIPPED || this == DELIVERED;
+        }
+
+        public boolean canTransitionTo(OrderStatus target) {
+            return switch (this) {
+                case PENDING -> target == PAID || target == CANCELLED;
+                case PAID -> target == PROCESSING || target == SHIPPED || target == CANCELLED;
+                case PROCESSING -> target == SHIPPED || target == CANCELLED;
+                case SHIPPED -> target == DELIVERED;
+                case DELIVERED, CANCELLED -> false;
+            };
+        }
     }
 }
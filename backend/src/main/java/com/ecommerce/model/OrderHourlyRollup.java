@@ -0,0 +1,52 @@
+package com.ecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Order volume and revenue for one category in the hour the orders were placed. Cancelled orders are excluded;
+ * paid revenue only counts orders that reached PAID or later.
+ */
+@Entity
+@Table(name = "order_hourly_rollups")
+@IdClass(OrderHourlyRollup.Key.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderHourlyRollup {
+
+    @Id
+    private LocalDateTime bucketStart;
+
+    @Id
+    @Column(length = 100)
+    private String category;
+
+    @Column(nullable = false)
+    private Long orderCount;
+
+    @Column(nullable = false)
+    private Long units;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal grossRevenue;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal paidRevenue;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDateTime bucketStart;
+        private String category;
+    }
+}
@@ -0,0 +1,40 @@
+package com.ecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An order status change that has not been folded into the hourly rollups yet. Written in the transaction that
+ * changes the order and deleted in the transaction that applies it, so each change is counted exactly once.
+ */
+@Entity
+@Table(name = "order_rollup_changes")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderRollupChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private Order.OrderStatus fromStatus;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private Order.OrderStatus toStatus;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
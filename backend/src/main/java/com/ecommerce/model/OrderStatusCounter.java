@@ -0,0 +1,46 @@
+package com.ecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * One stripe of the running order count and revenue for a status. Writers add to a random slot so concurrent
+ * checkouts do not queue on a single row lock; readers sum the slots.
+ */
+@Entity
+@Table(name = "order_status_counters")
+@IdClass(OrderStatusCounter.Key.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusCounter {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private Order.OrderStatus status;
+
+    @Id
+    private Integer slot;
+
+    @Column(nullable = false)
+    private Long orderCount;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Order.OrderStatus status;
+        private Integer slot;
+    }
+}
@@ -10,7 +10,10 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payments")
+@Table(name = "payments", indexes = {
+        @Index(name = "idx_payments_status_id", columnList = "status, id"),
+        @Index(name = "idx_payments_status_completed_at", columnList = "status, completed_at")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -25,9 +28,11 @@ public class Payment {
     @JoinColumn(name = "order_id", nullable = false)
     private Order order;
 
-    @Column(nullable = false)
+    @Column(unique = true)
     private String stripePaymentIntentId;
 
+    private String clientSecret;
+
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal amount;
 
@@ -43,12 +48,22 @@ public class Payment {
 
     private LocalDateTime completedAt;
 
+    private LocalDateTime reservedAt;
+
+    // Idempotency key of the provider request creating this payment's intent, kept until an intent is attached
+    @Column(length = 128)
+    private String intentRequestKey;
+
+    @Version
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
     }
 
     public enum PaymentStatus {
+        CREATING,
         PENDING,
         SUCCEEDED,
         FAILED,
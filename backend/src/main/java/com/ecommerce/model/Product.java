@@ -10,7 +10,12 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "products")
+// Listings by id and newest walk the primary key (most products are active); imports maintain only these three
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_active_price", columnList = "active, price, id"),
+        @Index(name = "idx_products_category_active_id", columnList = "category, active, id"),
+        @Index(name = "idx_products_category_active_price", columnList = "category, active, price, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -21,6 +26,9 @@ public class Product {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Column(unique = true, length = 64)
+    private String sku;
+
     @Column(nullable = false)
     private String name;
 
@@ -0,0 +1,24 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.model.ArchivedOrder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long> {
+    List<ArchivedOrder> findByCustomerEmailOrderByCreatedAtDesc(String email);
+
+    Optional<ArchivedOrder> findByPaymentIntentId(String paymentIntentId);
+
+    @Query("SELECT a FROM ArchivedOrder a WHERE a.createdAt >= :from AND a.createdAt < :to ORDER BY a.id")
+    List<ArchivedOrder> findCreatedBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT a.status, COUNT(a), COALESCE(SUM(a.totalAmount), 0) FROM ArchivedOrder a GROUP BY a.status")
+    List<Object[]> aggregateByStatus();
+}
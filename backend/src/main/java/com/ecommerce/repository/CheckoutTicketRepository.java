@@ -0,0 +1,42 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.model.CheckoutTicket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface CheckoutTicketRepository extends JpaRepository<CheckoutTicket, Long> {
+    Optional<CheckoutTicket> findByTicketId(String ticketId);
+
+    @Modifying
+    @Query("UPDATE CheckoutTicket t SET t.status = :status, t.orderId = :orderId, t.error = :error, " +
+            "t.completedAt = :now WHERE t.ticketId = :ticketId AND t.status = :queued")
+    int complete(@Param("ticketId") String ticketId, @Param("queued") CheckoutTicket.Status queued,
+                 @Param("status") CheckoutTicket.Status status, @Param("orderId") Long orderId,
+                 @Param("error") String error, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE CheckoutTicket t SET t.status = :failed, t.error = :error, t.completedAt = :now " +
+            "WHERE t.ticketId IN :ticketIds AND t.status = :queued")
+    int failQueued(@Param("ticketIds") Collection<String> ticketIds, @Param("queued") CheckoutTicket.Status queued,
+                   @Param("failed") CheckoutTicket.Status failed, @Param("error") String error,
+                   @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE CheckoutTicket t SET t.status = :failed, t.error = :error, t.completedAt = :now " +
+            "WHERE t.status = :queued AND t.queuedAt < :cutoff")
+    int failQueuedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("queued") CheckoutTicket.Status queued,
+                         @Param("failed") CheckoutTicket.Status failed, @Param("error") String error,
+                         @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM CheckoutTicket t WHERE t.completedAt < :cutoff")
+    int deleteCompletedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
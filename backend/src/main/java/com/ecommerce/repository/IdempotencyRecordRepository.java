@@ -0,0 +1,45 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByScopeAndOwnerAndIdempotencyKey(String scope, String owner,
+                                                                     String idempotencyKey);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.lockedAt = :now, r.lockedBy = :token WHERE r.id = :id " +
+            "AND r.status = :status AND r.lockedAt < :staleBefore")
+    int takeOverStale(@Param("id") Long id, @Param("status") IdempotencyRecord.Status status,
+                      @Param("staleBefore") LocalDateTime staleBefore, @Param("token") String token,
+                      @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.lockedAt = :now WHERE r.id = :id AND r.lockedBy = :token " +
+            "AND r.status = :status")
+    int heartbeat(@Param("id") Long id, @Param("token") String token,
+                  @Param("status") IdempotencyRecord.Status status, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = :status, r.responseBody = :responseBody, r.completedAt = :now " +
+            "WHERE r.id = :id AND r.lockedBy = :token")
+    int complete(@Param("id") Long id, @Param("token") String token, @Param("status") IdempotencyRecord.Status status,
+                 @Param("responseBody") String responseBody, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.lockedBy = :token")
+    int release(@Param("id") Long id, @Param("token") String token);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,33 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.model.OrderHourlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OrderHourlyRollupRepository extends JpaRepository<OrderHourlyRollup, OrderHourlyRollup.Key> {
+
+    @Modifying
+    @Query("UPDATE OrderHourlyRollup r SET r.orderCount = r.orderCount + :orders, r.units = r.units + :units, " +
+            "r.grossRevenue = r.grossRevenue + :grossRevenue, r.paidRevenue = r.paidRevenue + :paidRevenue " +
+            "WHERE r.bucketStart = :bucketStart AND r.category = :category")
+    int increment(@Param("bucketStart") LocalDateTime bucketStart, @Param("category") String category,
+                  @Param("orders") long orders, @Param("units") long units,
+                  @Param("grossRevenue") BigDecimal grossRevenue, @Param("paidRevenue") BigDecimal paidRevenue);
+
+    @Modifying
+    @Query("DELETE FROM OrderHourlyRollup r WHERE r.bucketStart >= :from AND r.bucketStart < :to")
+    int deleteByBucketStartRange(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT r FROM OrderHourlyRollup r WHERE r.bucketStart >= :from AND r.bucketStart < :to " +
+            "AND (:category IS NULL OR r.category = :category) ORDER BY r.bucketStart, r.category")
+    List<OrderHourlyRollup> findRange(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                      @Param("category") String category);
+}
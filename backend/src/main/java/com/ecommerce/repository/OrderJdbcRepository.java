@@ -0,0 +1,159 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.dto.OrderResponse;
+import com.ecommerce.model.ArchivedOrder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Repository
+@RequiredArgsConstructor
+public class OrderJdbcRepository {
+
+    private static final String SELECT_ORDERS_WITH_ITEMS =
+            "SELECT o.id, o.customer_email, o.customer_phone, o.shipping_address, o.shipping_city, " +
+            "o.shipping_zip_code, o.shipping_country, o.total_amount, o.status, o.created_at, o.updated_at, o.version, " +
+            "i.product_id, p.name AS product_name, i.quantity, i.price_at_purchase, " +
+            "pay.status AS payment_status, pay.amount AS payment_amount, pay.currency AS payment_currency, " +
+            "pay.created_at AS payment_created_at, pay.completed_at AS payment_completed_at " +
+            "FROM orders o " +
+            "LEFT JOIN order_items i ON i.order_id = o.id " +
+            "LEFT JOIN products p ON p.id = i.product_id " +
+            "LEFT JOIN payments pay ON pay.order_id = o.id " +
+            "ORDER BY o.created_at DESC, o.id DESC, i.id";
+
+    private static final String INSERT_ARCHIVED_ORDER =
+            "INSERT INTO archived_orders (id, user_id, customer_email, status, total_amount, created_at, archived_at, " +
+            "payment_id, payment_intent_id, payment_status, payload) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_ARCHIVED_PAYLOADS =
+            "SELECT payload FROM archived_orders ORDER BY created_at DESC, id DESC";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Streams every order, newest first, through a forward-only cursor. Rows of one order are contiguous, so each
+     * order is handed to {@code consumer} as soon as its last item has been read.
+     */
+    public void streamOrders(int fetchSize, Consumer<OrderResponse> consumer) {
+        OrderRowAssembler assembler = new OrderRowAssembler(consumer);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SELECT_ORDERS_WITH_ITEMS,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, assembler);
+        assembler.finish();
+    }
+
+    public void insertArchivedOrders(List<ArchivedOrder> orders) {
+        jdbcTemplate.batchUpdate(INSERT_ARCHIVED_ORDER, orders, orders.size(), (ps, order) -> {
+            ps.setLong(1, order.getId());
+            ps.setObject(2, order.getUserId(), Types.BIGINT);
+            ps.setString(3, order.getCustomerEmail());
+            ps.setString(4, order.getStatus().name());
+            ps.setBigDecimal(5, order.getTotalAmount());
+            ps.setTimestamp(6, Timestamp.valueOf(order.getCreatedAt()));
+            ps.setTimestamp(7, Timestamp.valueOf(order.getArchivedAt()));
+            ps.setObject(8, order.getPaymentId(), Types.BIGINT);
+            ps.setString(9, order.getPaymentIntentId());
+            ps.setString(10, order.getPaymentStatus() != null ? order.getPaymentStatus().name() : null);
+            ps.setString(11, order.getPayload());
+        });
+    }
+
+    /**
+     * Streams the stored JSON of every archived order, newest first, through a forward-only cursor.
+     */
+    public void streamArchivedPayloads(int fetchSize, Consumer<String> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SELECT_ARCHIVED_PAYLOADS,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getString("payload")));
+    }
+
+    private static final class OrderRowAssembler implements RowCallbackHandler {
+
+        private final Consumer<OrderResponse> consumer;
+        private OrderResponse current;
+
+        private OrderRowAssembler(Consumer<OrderResponse> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long orderId = rs.getLong("id");
+            if (current == null || current.getId() != orderId) {
+                finish();
+                current = mapOrder(rs);
+            }
+            long productId = rs.getLong("product_id");
+            if (!rs.wasNull()) {
+                int quantity = rs.getInt("quantity");
+                BigDecimal priceAtPurchase = rs.getBigDecimal("price_at_purchase");
+                current.getItems().add(OrderResponse.OrderItemResponse.builder()
+                        .productId(productId)
+                        .productName(rs.getString("product_name"))
+                        .quantity(quantity)
+                        .priceAtPurchase(priceAtPurchase)
+                        .subtotal(priceAtPurchase.multiply(BigDecimal.valueOf(quantity)))
+                        .build());
+            }
+        }
+
+        private void finish() {
+            if (current != null) {
+                consumer.accept(current);
+                current = null;
+            }
+        }
+
+        private static OrderResponse mapOrder(ResultSet rs) throws SQLException {
+            OrderResponse.OrderResponseBuilder builder = OrderResponse.builder()
+                    .id(rs.getLong("id"))
+                    .customerEmail(rs.getString("customer_email"))
+                    .customerPhone(rs.getString("customer_phone"))
+                    .shippingAddress(rs.getString("shipping_address"))
+                    .shippingCity(rs.getString("shipping_city"))
+                    .shippingZipCode(rs.getString("shipping_zip_code"))
+                    .shippingCountry(rs.getString("shipping_country"))
+                    .totalAmount(rs.getBigDecimal("total_amount"))
+                    .status(rs.getString("status"))
+                    .createdAt(toLocalDateTime(rs.getTimestamp("created_at")))
+                    .updatedAt(toLocalDateTime(rs.getTimestamp("updated_at")))
+                    .version(rs.getLong("version"))
+                    .items(new ArrayList<>());
+
+            String paymentStatus = rs.getString("payment_status");
+            if (paymentStatus != null) {
+                builder.payment(OrderResponse.PaymentResponse.builder()
+                        .status(paymentStatus)
+                        .amount(rs.getBigDecimal("payment_amount"))
+                        .currency(rs.getString("payment_currency"))
+                        .createdAt(toLocalDateTime(rs.getTimestamp("payment_created_at")))
+                        .completedAt(toLocalDateTime(rs.getTimestamp("payment_completed_at")))
+                        .build());
+            }
+            return builder.build();
+        }
+
+        private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+            return timestamp != null ? timestamp.toLocalDateTime() : null;
+        }
+    }
+}
@@ -1,15 +1,88 @@
 package com.ecommerce.repository;
 
 import com.ecommerce.model.Order;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderSearchRepository {
+    @EntityGraph(Order.DETAILS_GRAPH)
     List<Order> findByUserIdOrderByCreatedAtDesc(Long userId);
+
+    @EntityGraph(Order.DETAILS_GRAPH)
     List<Order> findByCustomerEmailOrderByCreatedAtDesc(String email);
+
     List<Order> findByStatus(Order.OrderStatus status);
+
+    @EntityGraph(Order.DETAILS_GRAPH)
     List<Order> findAllByOrderByCreatedAtDesc();
+
+    @EntityGraph(Order.DETAILS_GRAPH)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findWithDetailsById(@Param("id") Long id);
+
+    @Query("SELECT o.id FROM Order o WHERE o.status = :status AND o.createdAt < :cutoff ORDER BY o.createdAt, o.id")
+    List<Long> findIdsByStatusCreatedBefore(@Param("status") Order.OrderStatus status,
+                                            @Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    @EntityGraph(Order.DETAILS_GRAPH)
+    List<Order> findByIdIn(Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o.id, o.status, o.totalAmount FROM Order o WHERE o.id IN :ids ORDER BY o.id")
+    List<Object[]> lockStatusesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :to, o.updatedAt = :now, o.version = o.version + 1 WHERE o.id IN :ids AND o.status = :from")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("from") Order.OrderStatus from,
+                     @Param("to") Order.OrderStatus to, @Param("now") LocalDateTime now);
+
+    // For rows already locked by lockStatusesByIdIn: matching on the primary key alone keeps the plan a key lookup
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :to, o.updatedAt = :now, o.version = o.version + 1 WHERE o.id IN :ids")
+    int updateLockedStatus(@Param("ids") Collection<Long> ids, @Param("to") Order.OrderStatus to,
+                           @Param("now") LocalDateTime now);
+
+    @Query("SELECT i.order.id, i.product.id, i.quantity FROM OrderItem i WHERE i.order.id IN :orderIds")
+    List<Object[]> findItemQuantities(@Param("orderIds") Collection<Long> orderIds);
+
+    @Query("SELECT i.order.id, i.order.createdAt, i.product.category, SUM(i.quantity), " +
+            "SUM(i.priceAtPurchase * i.quantity) FROM OrderItem i WHERE i.order.id IN :orderIds " +
+            "GROUP BY i.order.id, i.order.createdAt, i.product.category")
+    List<Object[]> sumItemsByOrderAndCategory(@Param("orderIds") Collection<Long> orderIds);
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT o.id, o.createdAt, o.status, p.category, i.quantity, i.priceAtPurchase " +
+            "FROM OrderItem i JOIN i.order o JOIN i.product p " +
+            "WHERE o.createdAt >= :from AND o.createdAt < :to ORDER BY o.id")
+    Stream<Object[]> streamItemsCreatedBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT i.order.id, i.product.id, i.quantity, i.order.createdAt FROM OrderItem i " +
+            "WHERE i.order.status = :status AND i.order.createdAt >= :since")
+    List<Object[]> findItemQuantitiesByStatusCreatedSince(@Param("status") Order.OrderStatus status,
+                                                         @Param("since") LocalDateTime since);
+
+    @Modifying
+    @Query("DELETE FROM OrderItem i WHERE i.order.id IN :orderIds")
+    int deleteItemsByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    @Modifying
+    @Query("DELETE FROM Order o WHERE o.id IN :ids AND o.status = :status")
+    int deleteByIdInAndStatus(@Param("ids") Collection<Long> ids, @Param("status") Order.OrderStatus status);
 }
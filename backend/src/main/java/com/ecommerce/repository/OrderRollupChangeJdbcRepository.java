@@ -0,0 +1,34 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.model.OrderRollupChange;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class OrderRollupChangeJdbcRepository {
+
+    private static final String INSERT =
+            "INSERT INTO order_rollup_changes (order_id, from_status, to_status, created_at) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // One JDBC batch; identity keys keep Hibernate from batching these inserts
+    public void insert(List<OrderRollupChange> changes) {
+        jdbcTemplate.batchUpdate(INSERT, changes, changes.size(), (ps, change) -> {
+            ps.setLong(1, change.getOrderId());
+            if (change.getFromStatus() == null) {
+                ps.setNull(2, Types.VARCHAR);
+            } else {
+                ps.setString(2, change.getFromStatus().name());
+            }
+            ps.setString(3, change.getToStatus().name());
+            ps.setTimestamp(4, Timestamp.valueOf(change.getCreatedAt()));
+        });
+    }
+}
@@ -0,0 +1,28 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.model.OrderRollupChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderRollupChangeRepository extends JpaRepository<OrderRollupChange, Long> {
+
+    List<OrderRollupChange> findAllByOrderById(Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM OrderRollupChange c WHERE c.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM OrderRollupChange c WHERE c.orderId IN " +
+            "(SELECT o.id FROM Order o WHERE o.createdAt >= :from AND o.createdAt < :to)")
+    int deleteForOrdersCreatedBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,10 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.dto.OrderSearchCriteria;
+import com.ecommerce.dto.OrderSummaryResponse;
+
+import java.util.List;
+
+public interface OrderSearchRepository {
+    List<OrderSummaryResponse> searchSummaries(OrderSearchCriteria criteria, int limit);
+}
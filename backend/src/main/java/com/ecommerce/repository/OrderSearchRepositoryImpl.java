@@ -0,0 +1,98 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.dto.OrderSearchCriteria;
+import com.ecommerce.dto.OrderSummaryResponse;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.Payment;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the admin order search as a single keyset query over (createdAt desc, id desc), selecting only the summary
+ * columns so no order entities, items or payments are materialized.
+ */
+public class OrderSearchRepositoryImpl implements OrderSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<OrderSummaryResponse> searchSummaries(OrderSearchCriteria criteria, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Order> order = query.from(Order.class);
+        Join<Order, Payment> payment = order.join("payment", JoinType.LEFT);
+
+        Path<Long> id = order.get("id");
+        Path<LocalDateTime> createdAt = order.get("createdAt");
+        Path<BigDecimal> totalAmount = order.get("totalAmount");
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (criteria.getStatus() != null) {
+            predicates.add(cb.equal(order.get("status"), criteria.getStatus()));
+        }
+        if (criteria.getCustomerEmailPrefix() != null) {
+            predicates.add(cb.like(order.get("customerEmail"), escapeLike(criteria.getCustomerEmailPrefix()) + "%", '\\'));
+        }
+        if (criteria.getCreatedFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(createdAt, criteria.getCreatedFrom()));
+        }
+        if (criteria.getCreatedTo() != null) {
+            predicates.add(cb.lessThan(createdAt, criteria.getCreatedTo()));
+        }
+        if (criteria.getMinTotal() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(totalAmount, criteria.getMinTotal()));
+        }
+        if (criteria.getMaxTotal() != null) {
+            predicates.add(cb.lessThanOrEqualTo(totalAmount, criteria.getMaxTotal()));
+        }
+        if (criteria.getBeforeCreatedAt() != null) {
+            // Expanded form of (createdAt, id) < (:before, :beforeId) whose leading term can use the index range
+            predicates.add(cb.lessThanOrEqualTo(createdAt, criteria.getBeforeCreatedAt()));
+            predicates.add(cb.or(
+                    cb.lessThan(createdAt, criteria.getBeforeCreatedAt()),
+                    cb.lessThan(id, criteria.getBeforeId())));
+        }
+
+        query.multiselect(id, order.get("customerEmail"), order.get("status"), totalAmount,
+                        payment.get("status"), createdAt)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.desc(createdAt), cb.desc(id));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList()
+                .stream()
+                .map(OrderSearchRepositoryImpl::toSummary)
+                .toList();
+    }
+
+    private static OrderSummaryResponse toSummary(Tuple row) {
+        Payment.PaymentStatus paymentStatus = row.get(4, Payment.PaymentStatus.class);
+        return OrderSummaryResponse.builder()
+                .id(row.get(0, Long.class))
+                .customerEmail(row.get(1, String.class))
+                .status(row.get(2, Order.OrderStatus.class).name())
+                .totalAmount(row.get(3, BigDecimal.class))
+                .paymentStatus(paymentStatus != null ? paymentStatus.name() : null)
+                .createdAt(row.get(5, LocalDateTime.class))
+                .build();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,28 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.model.Order;
+import com.ecommerce.model.OrderStatusCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface OrderStatusCounterRepository extends JpaRepository<OrderStatusCounter, OrderStatusCounter.Key> {
+
+    @Modifying
+    @Query("UPDATE OrderStatusCounter c SET c.orderCount = c.orderCount + :count, c.revenue = c.revenue + :revenue " +
+            "WHERE c.status = :status AND c.slot = :slot")
+    int increment(@Param("status") Order.OrderStatus status, @Param("slot") int slot,
+                  @Param("count") long count, @Param("revenue") BigDecimal revenue);
+
+    @Query("SELECT c.status, SUM(c.orderCount), SUM(c.revenue) FROM OrderStatusCounter c GROUP BY c.status")
+    List<Object[]> sumByStatus();
+
+    @Query("SELECT o.status, COUNT(o), COALESCE(SUM(o.totalAmount), 0) FROM Order o GROUP BY o.status")
+    List<Object[]> aggregateOrdersByStatus();
+}
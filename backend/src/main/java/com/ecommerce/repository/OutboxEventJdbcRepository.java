@@ -0,0 +1,37 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.model.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class OutboxEventJdbcRepository {
+
+    private static final String INSERT =
+            "INSERT INTO outbox_events (aggregate_type, aggregate_id, event_type, payload, status, attempts, " +
+            "next_attempt_at, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts new events in one JDBC batch. Identity keys keep Hibernate from batching these inserts, and the
+     * events are not read back in the writing transaction, so they skip the persistence context.
+     */
+    public void insert(List<OutboxEvent> events) {
+        jdbcTemplate.batchUpdate(INSERT, events, events.size(), (ps, event) -> {
+            ps.setString(1, event.getAggregateType());
+            ps.setLong(2, event.getAggregateId());
+            ps.setString(3, event.getEventType());
+            ps.setString(4, event.getPayload());
+            ps.setString(5, event.getStatus().name());
+            ps.setInt(6, event.getAttempts());
+            ps.setTimestamp(7, Timestamp.valueOf(event.getNextAttemptAt()));
+            ps.setTimestamp(8, Timestamp.valueOf(event.getCreatedAt()));
+        });
+    }
+}
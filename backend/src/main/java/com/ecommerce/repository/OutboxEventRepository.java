@@ -0,0 +1,65 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.model.OutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    @Query("SELECT e.id FROM OutboxEvent e WHERE e.status = :status AND e.nextAttemptAt <= :now " +
+            "AND (e.claimedUntil IS NULL OR e.claimedUntil < :now) ORDER BY e.id")
+    List<Long> findDueIds(@Param("status") OutboxEvent.Status status, @Param("now") LocalDateTime now, Limit limit);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.claimedBy = :token, e.claimedUntil = :until WHERE e.id IN :ids " +
+            "AND e.status = :status AND (e.claimedUntil IS NULL OR e.claimedUntil < :now)")
+    int claim(@Param("ids") Collection<Long> ids, @Param("status") OutboxEvent.Status status,
+              @Param("token") String token, @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    List<OutboxEvent> findByClaimedByOrderById(String claimedBy);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = :status, e.attempts = e.attempts + 1, e.deliveredAt = :now, " +
+            "e.lastError = NULL, e.claimedBy = NULL, e.claimedUntil = NULL WHERE e.id IN :ids AND e.claimedBy = :token")
+    int markDelivered(@Param("ids") Collection<Long> ids, @Param("status") OutboxEvent.Status status,
+                      @Param("token") String token, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = :status, e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt, " +
+            "e.lastError = :lastError, e.deliveredSinks = :deliveredSinks, e.claimedBy = NULL, e.claimedUntil = NULL " +
+            "WHERE e.id = :id AND e.claimedBy = :token")
+    int recordFailure(@Param("id") Long id, @Param("token") String token, @Param("status") OutboxEvent.Status status,
+                      @Param("attempts") int attempts, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                      @Param("lastError") String lastError, @Param("deliveredSinks") String deliveredSinks);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.claimedBy = NULL, e.claimedUntil = NULL WHERE e.id IN :ids " +
+            "AND e.claimedBy = :token")
+    int release(@Param("ids") Collection<Long> ids, @Param("token") String token);
+
+    @Query("SELECT e.status, COUNT(e) FROM OutboxEvent e GROUP BY e.status")
+    List<Object[]> countByStatus();
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = :to, e.attempts = 0, e.nextAttemptAt = :now, e.lastError = NULL " +
+            "WHERE e.status = :from")
+    int requeue(@Param("from") OutboxEvent.Status from, @Param("to") OutboxEvent.Status to,
+                @Param("now") LocalDateTime now);
+
+    @Query("SELECT e.id FROM OutboxEvent e WHERE e.status = :status AND e.deliveredAt < :cutoff ORDER BY e.id")
+    List<Long> findDeliveredIdsBefore(@Param("status") OutboxEvent.Status status,
+                                      @Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -1,13 +1,59 @@
 package com.ecommerce.repository;
 
+import com.ecommerce.model.Order;
 import com.ecommerce.model.Payment;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
     Optional<Payment> findByStripePaymentIntentId(String paymentIntentId);
     Optional<Payment> findByOrderId(Long orderId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Payment p SET p.status = :to, p.version = p.version + 1 WHERE p.order.id IN :orderIds AND p.status = :from")
+    int updateStatusByOrderIds(@Param("orderIds") Collection<Long> orderIds,
+                               @Param("from") Payment.PaymentStatus from, @Param("to") Payment.PaymentStatus to);
+
+    @Query("SELECT p.stripePaymentIntentId FROM Payment p WHERE p.order.id IN :orderIds AND p.status = :status " +
+            "AND p.stripePaymentIntentId IS NOT NULL")
+    List<String> findIntentIdsByOrderIdsAndStatus(@Param("orderIds") Collection<Long> orderIds,
+                                                  @Param("status") Payment.PaymentStatus status);
+
+    @Query("SELECT p.id, p.stripePaymentIntentId, p.status, p.amount, p.currency, o.id, o.status, o.totalAmount " +
+            "FROM Payment p JOIN p.order o WHERE p.stripePaymentIntentId IN :intentIds")
+    List<Object[]> findWithOrderByIntentIdIn(@Param("intentIds") Collection<String> intentIds);
+
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = :to, p.completedAt = :now, p.version = p.version + 1 " +
+            "WHERE p.id IN :ids AND p.status <> :to")
+    int complete(@Param("ids") Collection<Long> ids, @Param("to") Payment.PaymentStatus to,
+                 @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM Payment p WHERE p.order.id IN :orderIds")
+    int deleteByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    @Query("SELECT p.id, p.stripePaymentIntentId, o.id, o.status FROM Payment p JOIN p.order o " +
+            "WHERE p.status = :status AND p.id > :afterId AND COALESCE(p.reservedAt, p.createdAt) < :cutoff " +
+            "ORDER BY p.id")
+    List<Object[]> findStaleAfter(@Param("status") Payment.PaymentStatus status, @Param("cutoff") LocalDateTime cutoff,
+                                  @Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT p.id, o.id, o.status FROM Payment p JOIN p.order o WHERE p.status = :status " +
+            "AND p.completedAt >= :since AND p.id > :afterId AND o.status IN :orderStatuses ORDER BY p.id")
+    List<Object[]> findCompletedSinceWithOrderStatus(@Param("status") Payment.PaymentStatus status,
+                                                     @Param("since") LocalDateTime since,
+                                                     @Param("afterId") Long afterId,
+                                                     @Param("orderStatuses") Collection<Order.OrderStatus> orderStatuses,
+                                                     Limit limit);
 }
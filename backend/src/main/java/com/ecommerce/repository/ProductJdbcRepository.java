@@ -0,0 +1,139 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.dto.ProductImportRow;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+@Repository
+@RequiredArgsConstructor
+public class ProductJdbcRepository {
+
+    private static final String UPDATE_BY_SKU =
+            "UPDATE products SET name = ?, description = ?, price = ?, image_url = ?, category = ?, active = ?%s " +
+            "WHERE sku = ?";
+
+    private static final String INSERT =
+            "INSERT INTO products (sku, name, description, price, stock_quantity, image_url, category, active, " +
+            "created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_IMPORT_ROWS_BY_SKU =
+            "SELECT p.sku, p.name, p.description, p.price, p.stock_quantity, p.image_url, p.category, p.active " +
+            "FROM UNNEST(?) AS requested(sku) JOIN products p ON p.sku = requested.sku";
+
+    private static final String DECREMENT_STOCK =
+            "UPDATE products SET stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity >= ?";
+
+    private static final String INCREMENT_STOCK =
+            "UPDATE products SET stock_quantity = stock_quantity + ? WHERE id = ?";
+
+    public enum StockMode {
+        KEEP, ADD, SET
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Looks SKUs up by joining an array parameter, which stays an index probe per SKU for large batches where a
+     * long IN list of bind parameters does not.
+     */
+    public Map<String, ProductImportRow> findImportRowsBySku(Collection<String> skus) {
+        Map<String, ProductImportRow> rows = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SELECT_IMPORT_ROWS_BY_SKU);
+            ps.setArray(1, connection.createArrayOf("varchar", skus.toArray()));
+            return ps;
+        }, rs -> {
+            ProductImportRow row = new ProductImportRow();
+            row.setSku(rs.getString("sku"));
+            row.setName(rs.getString("name"));
+            row.setDescription(rs.getString("description"));
+            row.setPrice(rs.getBigDecimal("price"));
+            row.setStockQuantity(rs.getInt("stock_quantity"));
+            row.setImageUrl(rs.getString("image_url"));
+            row.setCategory(rs.getString("category"));
+            row.setActive(rs.getBoolean("active"));
+            rows.put(row.getSku(), row);
+        });
+        return rows;
+    }
+
+    /**
+     * Conditionally decrements stock for every product in one JDBC batch, in the map's iteration order.
+     *
+     * @return the ids whose row was not updated because stock was insufficient
+     */
+    public List<Long> decrementStock(SortedMap<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(quantities.entrySet());
+        int[] counts = jdbcTemplate.batchUpdate(DECREMENT_STOCK, entries, entries.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setLong(2, entry.getKey());
+            ps.setInt(3, entry.getValue());
+        })[0];
+        List<Long> rejected = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                rejected.add(entries.get(i).getKey());
+            }
+        }
+        return rejected;
+    }
+
+    public void incrementStock(SortedMap<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(quantities.entrySet());
+        jdbcTemplate.batchUpdate(INCREMENT_STOCK, entries, entries.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setLong(2, entry.getKey());
+        });
+    }
+
+    /**
+     * Updates existing products by SKU. Stock is left alone when {@code stockMode} is {@link StockMode#KEEP},
+     * added to the current level for {@link StockMode#ADD}, and overwritten only for {@link StockMode#SET}.
+     */
+    public void updateBySku(List<ProductImportRow> rows, StockMode stockMode) {
+        String stockAssignment = switch (stockMode) {
+            case KEEP -> "";
+            case ADD -> ", stock_quantity = stock_quantity + ?";
+            case SET -> ", stock_quantity = ?";
+        };
+        jdbcTemplate.batchUpdate(UPDATE_BY_SKU.formatted(stockAssignment), rows, rows.size(), (ps, row) -> {
+            int index = 1;
+            ps.setString(index++, row.getName());
+            ps.setString(index++, row.getDescription());
+            ps.setBigDecimal(index++, row.getPrice());
+            ps.setString(index++, row.getImageUrl());
+            ps.setString(index++, row.getCategory());
+            ps.setBoolean(index++, row.getActive());
+            if (stockMode != StockMode.KEEP) {
+                ps.setInt(index++, row.getStockQuantity());
+            }
+            ps.setString(index, row.getSku());
+        });
+    }
+
+    public void insert(List<ProductImportRow> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, row.getSku());
+            ps.setString(2, row.getName());
+            ps.setString(3, row.getDescription());
+            ps.setBigDecimal(4, row.getPrice());
+            ps.setInt(5, row.getStockQuantity());
+            ps.setString(6, row.getImageUrl());
+            ps.setString(7, row.getCategory());
+            ps.setBoolean(8, row.getActive());
+            ps.setTimestamp(9, now);
+        });
+    }
+}
@@ -1,9 +1,13 @@
 package com.ecommerce.repository;
 
 import com.ecommerce.model.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @Repository
@@ -11,4 +15,32 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByActiveTrue();
     List<Product> findByCategory(String category);
     List<Product> findByCategoryAndActiveTrue(String category);
+
+    @Query("SELECT p FROM Product p WHERE p.active = true AND p.id > :afterId ORDER BY p.id")
+    List<Product> findActivePageById(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT p FROM Product p WHERE p.active = true AND p.price >= :afterPrice " +
+            "AND (p.price > :afterPrice OR p.id > :afterId) ORDER BY p.price, p.id")
+    List<Product> findActivePageByPrice(@Param("afterPrice") BigDecimal afterPrice,
+                                        @Param("afterId") Long afterId, Limit limit);
+
+    // Ids are assigned in insertion order, so descending id is newest first without a created_at index
+    @Query("SELECT p FROM Product p WHERE p.active = true AND p.id < :beforeId ORDER BY p.id DESC")
+    List<Product> findActivePageByNewest(@Param("beforeId") Long beforeId, Limit limit);
+
+    @Query("SELECT p FROM Product p WHERE p.category = :category AND p.active = true AND p.id > :afterId " +
+            "ORDER BY p.id")
+    List<Product> findActiveCategoryPageById(@Param("category") String category,
+                                             @Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT p FROM Product p WHERE p.category = :category AND p.active = true " +
+            "AND p.price >= :afterPrice AND (p.price > :afterPrice OR p.id > :afterId) ORDER BY p.price, p.id")
+    List<Product> findActiveCategoryPageByPrice(@Param("category") String category,
+                                                @Param("afterPrice") BigDecimal afterPrice,
+                                                @Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT p FROM Product p WHERE p.category = :category AND p.active = true AND p.id < :beforeId " +
+            "ORDER BY p.id DESC")
+    List<Product> findActiveCategoryPageByNewest(@Param("category") String category,
+                                                 @Param("beforeId") Long beforeId, Limit limit);
 }
@@ -0,0 +1,62 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.model.WebhookEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WebhookEventRepository extends JpaRepository<WebhookEvent, Long> {
+
+    boolean existsByEventId(String eventId);
+
+    @Query("SELECT e.id FROM WebhookEvent e WHERE e.status = :status AND e.nextAttemptAt <= :now " +
+            "AND (e.claimedUntil IS NULL OR e.claimedUntil < :now) ORDER BY e.id")
+    List<Long> findDueIds(@Param("status") WebhookEvent.Status status, @Param("now") LocalDateTime now, Limit limit);
+
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.claimedBy = :token, e.claimedUntil = :until WHERE e.id IN :ids " +
+            "AND e.status = :status AND (e.claimedUntil IS NULL OR e.claimedUntil < :now)")
+    int claim(@Param("ids") Collection<Long> ids, @Param("status") WebhookEvent.Status status,
+              @Param("token") String token, @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    List<WebhookEvent> findByClaimedByOrderById(String claimedBy);
+
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.status = :status, e.attempts = e.attempts + 1, e.processedAt = :now, " +
+            "e.lastError = NULL, e.claimedBy = NULL, e.claimedUntil = NULL WHERE e.id IN :ids AND e.claimedBy = :token")
+    int markProcessed(@Param("ids") Collection<Long> ids, @Param("status") WebhookEvent.Status status,
+                      @Param("token") String token, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.status = :status, e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt, " +
+            "e.lastError = :lastError, e.claimedBy = NULL, e.claimedUntil = NULL WHERE e.id = :id " +
+            "AND e.claimedBy = :token")
+    int recordFailure(@Param("id") Long id, @Param("token") String token, @Param("status") WebhookEvent.Status status,
+                      @Param("attempts") int attempts, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                      @Param("lastError") String lastError);
+
+    @Query("SELECT e.status, COUNT(e) FROM WebhookEvent e GROUP BY e.status")
+    List<Object[]> countByStatus();
+
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.status = :to, e.attempts = 0, e.nextAttemptAt = :now, e.lastError = NULL " +
+            "WHERE e.status = :from")
+    int requeue(@Param("from") WebhookEvent.Status from, @Param("to") WebhookEvent.Status to,
+                @Param("now") LocalDateTime now);
+
+    @Query("SELECT e.id FROM WebhookEvent e WHERE e.status IN :statuses AND e.processedAt < :cutoff ORDER BY e.id")
+    List<Long> findProcessedIdsBefore(@Param("statuses") Collection<WebhookEvent.Status> statuses,
+                                      @Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM WebhookEvent e WHERE e.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,60 @@
+package com.ecommerce.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs a long maintenance job on a thread of its own, so a run holds neither a thread of the shared scheduler nor an
+ * HTTP request thread. At most one run is in progress; starting another while it is running does nothing.
+ */
+@Slf4j
+final class BackgroundJob {
+
+    private final String name;
+    private final ExecutorService executor;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    BackgroundJob(String name) {
+        this.name = name;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts {@code run} unless a run is already in progress, and returns whether it was started.
+     */
+    boolean start(Runnable run) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    run.run();
+                } catch (RuntimeException e) {
+                    log.error("Background job {} failed", name, e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    boolean isRunning() {
+        return running.get();
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
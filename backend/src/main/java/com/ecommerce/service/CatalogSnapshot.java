@@ -0,0 +1,143 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ProductResponse;
+import com.ecommerce.model.Product;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Immutable view of the product catalog at a given change version, shared between request threads
+ * without locking. Serialized listings are memoized per snapshot; listings whose products did not change
+ * are carried over to the next snapshot with their ETag.
+ */
+@Getter
+public class CatalogSnapshot {
+
+    static final CatalogSnapshot EMPTY = new CatalogSnapshot(-1, new TreeMap<>());
+
+    static final String ALL_VIEW = "all";
+    static final String EMPTY_VIEW = "empty";
+    static final String CATEGORY_VIEW_PREFIX = "category:";
+
+    private final long version;
+    private final Map<Long, ProductResponse> productsById;
+    private final List<ProductResponse> allProducts;
+    private final List<ProductResponse> activeProducts;
+    private final Map<String, List<ProductResponse>> activeProductsByCategory;
+    @Getter(AccessLevel.NONE)
+    private final Map<String, CatalogView> views = new ConcurrentHashMap<>();
+
+    private CatalogSnapshot(long version, NavigableMap<Long, ProductResponse> productsById) {
+        this.version = version;
+        this.productsById = Collections.unmodifiableNavigableMap(productsById);
+
+        List<ProductResponse> active = new ArrayList<>();
+        Map<String, List<ProductResponse>> byCategory = new LinkedHashMap<>();
+        for (ProductResponse product : productsById.values()) {
+            if (Boolean.TRUE.equals(product.getActive())) {
+                active.add(product);
+                byCategory.computeIfAbsent(product.getCategory(), c -> new ArrayList<>()).add(product);
+            }
+        }
+        byCategory.replaceAll((category, products) -> List.copyOf(products));
+
+        this.allProducts = List.copyOf(productsById.values());
+        this.activeProducts = List.copyOf(active);
+        this.activeProductsByCategory = Collections.unmodifiableMap(byCategory);
+    }
+
+    static CatalogSnapshot of(long version, Collection<Product> products) {
+        NavigableMap<Long, ProductResponse> byId = new TreeMap<>();
+        for (Product product : products) {
+            byId.put(product.getId(), ProductResponse.fromProduct(product));
+        }
+        return new CatalogSnapshot(version, byId);
+    }
+
+    CatalogSnapshot withChanges(long newVersion, Collection<Long> changedIds, Collection<Product> reloaded) {
+        NavigableMap<Long, ProductResponse> byId = new TreeMap<>(productsById);
+        changedIds.forEach(byId::remove);
+        for (Product product : reloaded) {
+            byId.put(product.getId(), ProductResponse.fromProduct(product));
+        }
+        CatalogSnapshot next = new CatalogSnapshot(newVersion, byId);
+
+        Set<String> touchedCategories = new HashSet<>();
+        for (Long id : changedIds) {
+            ProductResponse before = productsById.get(id);
+            if (before != null) {
+                touchedCategories.add(before.getCategory());
+            }
+        }
+        reloaded.forEach(product -> touchedCategories.add(product.getCategory()));
+        carryOverViews(next, true, touchedCategories);
+        return next;
+    }
+
+    /**
+     * Builds the next snapshot from a full reload of the catalog. Listings are compared product by product with
+     * this snapshot, so a reload that finds nothing new keeps every serialized listing and its ETag.
+     */
+    CatalogSnapshot reloaded(long newVersion, Collection<Product> products) {
+        NavigableMap<Long, ProductResponse> byId = new TreeMap<>();
+        for (Product product : products) {
+            byId.put(product.getId(), ProductResponse.fromProduct(product));
+        }
+        CatalogSnapshot next = new CatalogSnapshot(newVersion, byId);
+
+        Set<String> touchedCategories = new HashSet<>();
+        for (ProductResponse product : byId.values()) {
+            ProductResponse before = productsById.get(product.getId());
+            if (!product.equals(before)) {
+                touchedCategories.add(product.getCategory());
+                if (before != null) {
+                    touchedCategories.add(before.getCategory());
+                }
+            }
+        }
+        boolean changed = !touchedCategories.isEmpty();
+        for (ProductResponse before : productsById.values()) {
+            if (!byId.containsKey(before.getId())) {
+                touchedCategories.add(before.getCategory());
+                changed = true;
+            }
+        }
+        carryOverViews(next, changed, touchedCategories);
+        return next;
+    }
+
+    private void carryOverViews(CatalogSnapshot next, boolean changed, Set<String> touchedCategories) {
+        views.forEach((key, view) -> {
+            boolean stale = (changed && key.equals(ALL_VIEW)) || (key.startsWith(CATEGORY_VIEW_PREFIX)
+                    && touchedCategories.contains(key.substring(CATEGORY_VIEW_PREFIX.length())));
+            if (!stale) {
+                next.views.put(key, view);
+            }
+        });
+    }
+
+    public List<ProductResponse> getActiveProductsInCategory(String category) {
+        return activeProductsByCategory.getOrDefault(category, List.of());
+    }
+
+    CatalogView view(String key, Function<String, CatalogView> serializer) {
+        return views.computeIfAbsent(key, serializer);
+    }
+
+    Set<String> getViewKeys() {
+        return Set.copyOf(views.keySet());
+    }
+}
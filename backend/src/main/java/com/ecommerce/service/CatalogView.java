@@ -0,0 +1,66 @@
+package com.ecommerce.service;
+
+import lombok.Getter;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A catalog listing serialized once per snapshot version: the JSON body, its gzip encoding and a strong
+ * ETag for each. The tags are hashed from the JSON, so every instance serving the same listing hands out the
+ * same tags; the gzip body's tag carries a {@code -gzip} suffix because its bytes differ.
+ */
+@Getter
+public class CatalogView {
+
+    private static final String GZIP_ETAG_SUFFIX = "-gzip";
+
+    private final byte[] json;
+    private final byte[] gzipJson;
+    private final String etag;
+    private final String gzipEtag;
+
+    CatalogView(byte[] json) {
+        String hash = DigestUtils.md5DigestAsHex(json);
+        this.json = json;
+        this.gzipJson = gzip(json);
+        this.etag = "\"" + hash + "\"";
+        this.gzipEtag = "\"" + hash + GZIP_ETAG_SUFFIX + "\"";
+    }
+
+    /**
+     * Whether an If-None-Match header names this listing. Either encoding's tag matches, weak or strong, since
+     * a client may have switched encodings or a proxy may have weakened the tag while re-encoding the body.
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String entry : ifNoneMatch.split(",")) {
+            String tag = entry.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals(gzipEtag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,390 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.CartItemRequest;
+import com.ecommerce.dto.CheckoutTicketResponse;
+import com.ecommerce.dto.CreateOrderRequest;
+import com.ecommerce.dto.OrderResponse;
+import com.ecommerce.model.CheckoutTicket;
+import com.ecommerce.repository.CheckoutTicketRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Admits checkouts into bounded per-product queues and creates the orders on a fixed set of worker threads, so the
+ * number of connections contending on hot product rows is capped at the worker count no matter how many requests
+ * arrive. An order is queued under its lowest product id; a worker drains up to one batch from a queue before moving
+ * on, which keeps one hot product from starving the rest. When the queues are full the request is refused with 503
+ * instead of waiting. Every ticket is stored as QUEUED when it is accepted and only completed by a conditional update
+ * from that state; tickets still queued on shutdown, or left behind by an instance that died, are marked FAILED.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CheckoutQueueService {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final long WORKER_POLL_MS = 500;
+    private static final String INTERRUPTED_ERROR = "Checkout was interrupted by a server restart, please retry";
+    private static final String EXPIRED_ERROR = "Checkout was not processed in time, please retry";
+
+    private final OrderService orderService;
+    private final CheckoutTicketRepository checkoutTicketRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentHashMap<Long, ProductQueue> queues = new ConcurrentHashMap<>();
+    private final LinkedBlockingQueue<ProductQueue> readyQueues = new LinkedBlockingQueue<>();
+    private final ConcurrentHashMap<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    private ExecutorService workers;
+    private volatile boolean stopping;
+
+    @Value("${checkout.async.enabled:false}")
+    private boolean enabled;
+
+    @Value("${checkout.async.workers:4}")
+    private int workerCount;
+
+    @Value("${checkout.async.batch-size:50}")
+    private int batchSize;
+
+    @Value("${checkout.async.queue-capacity-per-product:2000}")
+    private int queueCapacityPerProduct;
+
+    @Value("${checkout.async.max-queued:20000}")
+    private int maxQueued;
+
+    @Value("${checkout.async.result-ttl-minutes:30}")
+    private long resultTtlMinutes;
+
+    @Value("${checkout.async.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    @PostConstruct
+    public void startWorkers() {
+        if (!enabled) {
+            return;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "checkout-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workerCount; i++) {
+            workers.submit(this::runWorker);
+        }
+        log.info("Started {} checkout workers", workerCount);
+    }
+
+    @PreDestroy
+    public void stopWorkers() {
+        stopping = true;
+        if (workers != null) {
+            // Workers finish the checkout in hand and hand the rest of their batch back as failed
+            workers.shutdown();
+            try {
+                if (!workers.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    log.warn("Checkout workers did not stop within {} ms", shutdownTimeoutMs);
+                    workers.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                workers.shutdownNow();
+            }
+        }
+        List<Ticket> abandoned = new ArrayList<>();
+        queues.values().forEach(queue -> queue.tickets.drainTo(abandoned));
+        if (!abandoned.isEmpty()) {
+            queuedCount.addAndGet(-abandoned.size());
+            log.warn("Failing {} queued checkouts on shutdown", abandoned.size());
+            fail(abandoned, INTERRUPTED_ERROR);
+        }
+    }
+
+    public CheckoutTicketResponse submit(CreateOrderRequest request, String userEmail) {
+        if (!enabled || stopping) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Asynchronous checkout is disabled");
+        }
+        Long productId = request.getItems().stream()
+                .map(CartItemRequest::getProductId)
+                .min(Comparator.naturalOrder())
+                .orElseThrow(() -> new RuntimeException("Order must contain at least one item"));
+
+        if (queuedCount.incrementAndGet() > maxQueued) {
+            queuedCount.decrementAndGet();
+            log.warn("Checkout queue is full, rejecting order for {}", request.getCustomerEmail());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Checkout is busy, please retry shortly");
+        }
+        ProductQueue queue = queues.computeIfAbsent(productId,
+                id -> new ProductQueue(id, new ArrayBlockingQueue<>(queueCapacityPerProduct)));
+        if (queue.tickets.remainingCapacity() == 0) {
+            queuedCount.decrementAndGet();
+            log.warn("Checkout queue for product {} is full, rejecting order for {}", productId,
+                    request.getCustomerEmail());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Checkout is busy for product " + productId + ", please retry shortly");
+        }
+        Ticket ticket = new Ticket(newTicketId(), request, userEmail, LocalDateTime.now());
+        checkoutTicketRepository.save(CheckoutTicket.builder()
+                .ticketId(ticket.id)
+                .status(CheckoutTicket.Status.QUEUED)
+                .queuedAt(ticket.queuedAt)
+                .build());
+        // Queued only once the row has committed, so a worker never completes a ticket that is not stored yet
+        afterCompletion(committed -> {
+            if (committed) {
+                enqueue(ticket, queue);
+            } else {
+                queuedCount.decrementAndGet();
+            }
+        });
+        log.debug("Queued checkout ticket {} for product {}", ticket.id, productId);
+        return ticket.toResponse();
+    }
+
+    public CheckoutTicketResponse getTicket(String ticketId) {
+        Ticket ticket = tickets.get(ticketId);
+        if (ticket != null) {
+            return ticket.toResponse();
+        }
+        return checkoutTicketRepository.findByTicketId(ticketId)
+                .map(CheckoutQueueService::toResponse)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Unknown checkout ticket: " + ticketId));
+    }
+
+    /**
+     * Completes when a ticket queued on this instance has been processed, or immediately if it already has been.
+     * Returns {@code null} for tickets this instance is not processing.
+     */
+    public CompletableFuture<CheckoutTicketResponse> awaitTicket(String ticketId) {
+        Ticket ticket = tickets.get(ticketId);
+        return ticket != null ? ticket.result : null;
+    }
+
+    @Scheduled(fixedDelayString = "${checkout.async.cleanup-interval-ms:60000}")
+    public void expireResults() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minusMinutes(resultTtlMinutes);
+        tickets.values().removeIf(ticket -> ticket.completedAt != null && ticket.completedAt.isBefore(cutoff));
+        // Tickets of an instance that died without draining its queues; a worker still holding one cannot complete it
+        Integer expired = transactionTemplate.execute(status -> checkoutTicketRepository.failQueuedBefore(cutoff,
+                CheckoutTicket.Status.QUEUED, CheckoutTicket.Status.FAILED, EXPIRED_ERROR, now));
+        if (expired != null && expired > 0) {
+            log.warn("Failed {} checkout tickets queued before {}", expired, cutoff);
+        }
+        Integer deleted = transactionTemplate.execute(status -> checkoutTicketRepository.deleteCompletedBefore(cutoff));
+        if (deleted != null && deleted > 0) {
+            log.debug("Deleted {} expired checkout tickets", deleted);
+        }
+    }
+
+    private void runWorker() {
+        while (!stopping && !Thread.currentThread().isInterrupted()) {
+            ProductQueue queue;
+            try {
+                queue = readyQueues.poll(WORKER_POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (queue == null) {
+                continue;
+            }
+            List<Ticket> batch = new ArrayList<>(batchSize);
+            queue.tickets.drainTo(batch, batchSize);
+            long start = System.currentTimeMillis();
+            List<Ticket> abandoned = new ArrayList<>();
+            for (Ticket ticket : batch) {
+                queuedCount.decrementAndGet();
+                if (stopping) {
+                    abandoned.add(ticket);
+                } else {
+                    process(ticket);
+                }
+            }
+            fail(abandoned, INTERRUPTED_ERROR);
+            if (!batch.isEmpty()) {
+                log.debug("Processed {} checkouts for product {} in {} ms", batch.size(), queue.productId,
+                        System.currentTimeMillis() - start);
+            }
+            // A producer that saw the queue as scheduled did not enqueue it, so re-check after releasing it
+            queue.scheduled.set(false);
+            if (!queue.tickets.isEmpty()) {
+                schedule(queue);
+            }
+        }
+    }
+
+    private void process(Ticket ticket) {
+        try {
+            OrderResponse order = transactionTemplate.execute(status -> {
+                OrderResponse created = orderService.createOrder(ticket.request, ticket.userEmail);
+                int updated = checkoutTicketRepository.complete(ticket.id, CheckoutTicket.Status.QUEUED,
+                        CheckoutTicket.Status.COMPLETED, created.getId(), null, LocalDateTime.now());
+                if (updated == 0) {
+                    // Failed as expired in the meantime, so the order must not be created after all
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "Checkout ticket " + ticket.id + " is no longer queued");
+                }
+                return created;
+            });
+            ticket.complete(CheckoutTicket.Status.COMPLETED, order, null);
+        } catch (RuntimeException e) {
+            String error = e instanceof ResponseStatusException statusException ? statusException.getReason()
+                    : e.getMessage();
+            if (error != null && error.length() > MAX_ERROR_LENGTH) {
+                error = error.substring(0, MAX_ERROR_LENGTH);
+            }
+            log.warn("Checkout ticket {} failed: {}", ticket.id, error);
+            String failure = error;
+            try {
+                transactionTemplate.executeWithoutResult(status -> checkoutTicketRepository.complete(ticket.id,
+                        CheckoutTicket.Status.QUEUED, CheckoutTicket.Status.FAILED, null, failure,
+                        LocalDateTime.now()));
+            } catch (RuntimeException saveFailure) {
+                log.error("Failed to store result of checkout ticket {}: {}", ticket.id, saveFailure.getMessage());
+            }
+            ticket.complete(CheckoutTicket.Status.FAILED, null, failure);
+        }
+    }
+
+    private void enqueue(Ticket ticket, ProductQueue queue) {
+        tickets.put(ticket.id, ticket);
+        if (!queue.tickets.offer(ticket)) {
+            // Another checkout took the last slot after this one's capacity check
+            queuedCount.decrementAndGet();
+            log.warn("Checkout queue for product {} filled up, failing ticket {}", queue.productId, ticket.id);
+            fail(List.of(ticket), "Checkout is busy for product " + queue.productId + ", please retry shortly");
+            return;
+        }
+        schedule(queue);
+        if (stopping) {
+            // Raced with shutdown after its drain; nobody is left to process the ticket
+            List<Ticket> abandoned = new ArrayList<>();
+            queue.tickets.drainTo(abandoned);
+            queuedCount.addAndGet(-abandoned.size());
+            fail(abandoned, INTERRUPTED_ERROR);
+        }
+    }
+
+    private void fail(List<Ticket> abandoned, String error) {
+        if (abandoned.isEmpty()) {
+            return;
+        }
+        List<String> ticketIds = abandoned.stream().map(ticket -> ticket.id).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> checkoutTicketRepository.failQueued(ticketIds,
+                    CheckoutTicket.Status.QUEUED, CheckoutTicket.Status.FAILED, error, LocalDateTime.now()));
+        } catch (RuntimeException e) {
+            log.error("Failed to mark {} checkout tickets as failed: {}", ticketIds.size(), e.getMessage());
+        }
+        abandoned.forEach(ticket -> ticket.complete(CheckoutTicket.Status.FAILED, null, error));
+    }
+
+    private void schedule(ProductQueue queue) {
+        if (queue.scheduled.compareAndSet(false, true)) {
+            readyQueues.add(queue);
+        }
+    }
+
+    private static String newTicketId() {
+        return Long.toString(System.currentTimeMillis(), 36) + "-" + UUID.randomUUID();
+    }
+
+    private static void afterCompletion(Consumer<Boolean> action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.accept(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    private static CheckoutTicketResponse toResponse(CheckoutTicket record) {
+        return CheckoutTicketResponse.builder()
+                .ticketId(record.getTicketId())
+                .status(record.getStatus().name())
+                .orderId(record.getOrderId())
+                .error(record.getError())
+                .queuedAt(record.getQueuedAt())
+                .completedAt(record.getCompletedAt())
+                .build();
+    }
+
+    private record ProductQueue(Long productId, ArrayBlockingQueue<Ticket> tickets, AtomicBoolean scheduled) {
+        private ProductQueue(Long productId, ArrayBlockingQueue<Ticket> tickets) {
+            this(productId, tickets, new AtomicBoolean());
+        }
+    }
+
+    private static final class Ticket {
+        private final String id;
+        private final CreateOrderRequest request;
+        private final String userEmail;
+        private final LocalDateTime queuedAt;
+        private final CompletableFuture<CheckoutTicketResponse> result = new CompletableFuture<>();
+        private volatile CheckoutTicket.Status status = CheckoutTicket.Status.QUEUED;
+        private volatile OrderResponse order;
+        private volatile String error;
+        private volatile LocalDateTime completedAt;
+
+        private Ticket(String id, CreateOrderRequest request, String userEmail, LocalDateTime queuedAt) {
+            this.id = id;
+            this.request = request;
+            this.userEmail = userEmail;
+            this.queuedAt = queuedAt;
+        }
+
+        private void complete(CheckoutTicket.Status status, OrderResponse order, String error) {
+            this.order = order;
+            this.error = error;
+            this.completedAt = LocalDateTime.now();
+            this.status = status;
+            result.complete(toResponse());
+        }
+
+        private CheckoutTicketResponse toResponse() {
+            OrderResponse currentOrder = order;
+            return CheckoutTicketResponse.builder()
+                    .ticketId(id)
+                    .status(status.name())
+                    .orderId(currentOrder != null ? currentOrder.getId() : null)
+                    .error(error)
+                    .queuedAt(queuedAt)
+                    .completedAt(completedAt)
+                    .order(currentOrder)
+                    .build();
+        }
+    }
+}
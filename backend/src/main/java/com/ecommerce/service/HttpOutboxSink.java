@@ -0,0 +1,60 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.OutboxEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+@Service
+@Slf4j
+public class HttpOutboxSink implements OutboxSink {
+
+    private final HttpClient httpClient;
+    private final String url;
+    private final Duration timeout;
+
+    public HttpOutboxSink(@Value("${outbox.sinks.http.url:}") String url,
+                          @Value("${outbox.sinks.http.timeout-ms:5000}") long timeoutMs) {
+        this.url = url;
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public String getName() {
+        return "http";
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return !url.isBlank();
+    }
+
+    @Override
+    public Duration getDeliveryTimeout() {
+        // Connecting and the request itself are each bounded by the timeout
+        return timeout.multipliedBy(2);
+    }
+
+    @Override
+    public void deliver(OutboxEvent event) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .header("X-Event-Id", event.getId().toString())
+                .header("X-Event-Type", event.getEventType())
+                .POST(HttpRequest.BodyPublishers.ofString(event.getPayload()))
+                .build();
+        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("HTTP sink returned " + response.statusCode() + " for event " + event.getId());
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.IdempotencyRecord;
+import com.ecommerce.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs a request at most once per Idempotency-Key and caller. A key is claimed by inserting an IN_PROGRESS row in
+ * its own transaction; the work and the stored response then commit together, so a replay never misses work that
+ * happened. A signed-in user's keys belong to that user, so no other caller can replay their responses. Guests have
+ * no identity the server issued, so the controllers scope their keys by a value the client sends (the order's
+ * customer email) or by {@link #GUEST_OWNER}. Anyone can send those, so for guests the separation rests on the key
+ * alone: a replay needs the same owner, key and request body, and only a client that picks an unguessable key, such
+ * as a random UUID, can count on no one else replaying its response.
+ * While the work runs, a heartbeat keeps the claim fresh; a claim whose heartbeat stops is taken over once it is
+ * older than the lock timeout.
+ * Completed responses are also kept in a bounded LRU, and duplicates arriving on the same instance while the first
+ * request runs wait on it instead of polling the database.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    public static final String SCOPE_ORDERS = "orders";
+    public static final String SCOPE_PAYMENT_INTENTS = "payment-intents";
+    public static final String SCOPE_CHECKOUT_TICKETS = "checkout-tickets";
+    public static final String GUEST_OWNER = "guest";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long REMOTE_POLL_INTERVAL_MS = 100;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate claimTransactionTemplate;
+    private final Map<CacheKey, CachedResponse> completedResponses;
+    private final ConcurrentHashMap<CacheKey, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, String> runningClaims = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeatExecutor;
+
+    @Value("${idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${idempotency.wait-timeout-ms:10000}")
+    private long waitTimeoutMs;
+
+    @Value("${idempotency.lock-timeout-ms:60000}")
+    private long lockTimeoutMs;
+
+    @Value("${idempotency.heartbeat-interval-ms:15000}")
+    private long heartbeatIntervalMs;
+
+    @FunctionalInterface
+    public interface IdempotentAction<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository, ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${idempotency.cache-size:10000}") int cacheSize) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.claimTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.claimTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.completedResponses = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CachedResponse> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        // Its own thread, so a long job on the shared scheduler cannot delay heartbeats into a takeover
+        this.heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void startHeartbeat() {
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, heartbeatIntervalMs, heartbeatIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopHeartbeat() {
+        heartbeatExecutor.shutdownNow();
+    }
+
+    public <T, E extends Exception> T execute(String scope, String owner, String key, Object request,
+                                              Class<T> responseType, IdempotentAction<T, E> action) throws E {
+        return execute(scope, owner, key, request, responseType, true, action);
+    }
+
+    /**
+     * Like {@link #execute}, but runs the action without a surrounding transaction, for actions that call remote
+     * systems and manage their own short transactions. The response is stored once the action has returned.
+     */
+    public <T, E extends Exception> T executeOutsideTransaction(String scope, String owner, String key,
+                                                                Object request, Class<T> responseType,
+                                                                IdempotentAction<T, E> action) throws E {
+        return execute(scope, owner, key, request, responseType, false, action);
+    }
+
+    private <T, E extends Exception> T execute(String scope, String owner, String key, Object request,
+                                               Class<T> responseType, boolean transactional,
+                                               IdempotentAction<T, E> action) throws E {
+        if (key == null) {
+            return action.run();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new RuntimeException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        if (owner == null || owner.isBlank()) {
+            throw new IllegalArgumentException("An idempotent request needs an owner");
+        }
+        CacheKey cacheKey = new CacheKey(scope, owner, key);
+        String requestHash = hash(scope, owner, request);
+
+        CachedResponse cached = completedResponses.get(cacheKey);
+        if (cached != null && !cached.isOlderThan(ttl())) {
+            checkSameRequest(cached.requestHash(), requestHash, cacheKey);
+            log.info("Replaying cached response for idempotency key {}", cacheKey);
+            return deserialize(cached.responseBody(), responseType);
+        }
+
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(cacheKey, mine);
+        if (running != null) {
+            checkSameRequest(running.requestHash(), requestHash, cacheKey);
+            log.info("Waiting for in-flight request with idempotency key {}", cacheKey);
+            return deserialize(await(running.response(), cacheKey), responseType);
+        }
+
+        try {
+            Result<T> result = executeOnce(cacheKey, requestHash, responseType, transactional, action);
+            completedResponses.put(cacheKey, new CachedResponse(requestHash, result.body(), LocalDateTime.now()));
+            mine.response().complete(result.body());
+            return result.value();
+        } catch (Exception e) {
+            mine.response().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:3600000}")
+    public void deleteExpiredKeys() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(ttl());
+        Integer deleted = transactionTemplate.execute(status -> idempotencyRecordRepository.deleteCreatedBefore(cutoff));
+        if (deleted != null && deleted > 0) {
+            log.info("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    private <T, E extends Exception> Result<T> executeOnce(CacheKey cacheKey, String requestHash,
+                                                           Class<T> responseType, boolean transactional,
+                                                           IdempotentAction<T, E> action) throws E {
+        Claim claim = claim(cacheKey, requestHash);
+        if (claim.responseBody() != null) {
+            log.info("Replaying stored response for idempotency key {}", cacheKey);
+            return new Result<>(deserialize(claim.responseBody(), responseType), claim.responseBody());
+        }
+
+        runningClaims.put(claim.recordId(), claim.token());
+        try {
+            if (!transactional) {
+                Result<T> result = runAction(action);
+                Integer completed = claimTransactionTemplate.execute(status -> idempotencyRecordRepository.complete(
+                        claim.recordId(), claim.token(), IdempotencyRecord.Status.COMPLETED, result.body(),
+                        LocalDateTime.now()));
+                if (completed == null || completed == 0) {
+                    log.warn("Idempotency key {} was taken over while its request ran", cacheKey);
+                }
+                return result;
+            }
+            return transactionTemplate.execute(status -> {
+                Result<T> result = runAction(action);
+                if (idempotencyRecordRepository.complete(claim.recordId(), claim.token(),
+                        IdempotencyRecord.Status.COMPLETED, result.body(), LocalDateTime.now()) == 0) {
+                    // Another request took the key over, so this one rolls back instead of doing the work twice
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "A request with this Idempotency-Key is still in progress");
+                }
+                return result;
+            });
+        } catch (RuntimeException e) {
+            // The work failed or rolled back, so the key is released and a retry runs the request again
+            claimTransactionTemplate.executeWithoutResult(status ->
+                    idempotencyRecordRepository.release(claim.recordId(), claim.token()));
+            if (e instanceof ActionFailedException failed) {
+                throw this.<E>sneakyCast(failed.getCause());
+            }
+            throw e;
+        } finally {
+            runningClaims.remove(claim.recordId(), claim.token());
+        }
+    }
+
+    private void heartbeat() {
+        if (runningClaims.isEmpty()) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            claimTransactionTemplate.executeWithoutResult(status -> runningClaims.forEach((recordId, token) ->
+                    idempotencyRecordRepository.heartbeat(recordId, token, IdempotencyRecord.Status.IN_PROGRESS,
+                            now)));
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh {} idempotency claims: {}", runningClaims.size(), e.getMessage());
+        }
+    }
+
+    private <T, E extends Exception> Result<T> runAction(IdempotentAction<T, E> action) {
+        T value;
+        try {
+            value = action.run();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ActionFailedException(e);
+        }
+        return new Result<>(value, serialize(value));
+    }
+
+    private Claim claim(CacheKey cacheKey, String requestHash) {
+        long deadline = System.currentTimeMillis() + waitTimeoutMs;
+        String token = UUID.randomUUID().toString();
+        while (true) {
+            Optional<IdempotencyRecord> existing = idempotencyRecordRepository.findByScopeAndOwnerAndIdempotencyKey(
+                    cacheKey.scope(), cacheKey.owner(), cacheKey.key());
+            if (existing.isEmpty()) {
+                try {
+                    LocalDateTime now = LocalDateTime.now();
+                    Long id = claimTransactionTemplate.execute(status -> idempotencyRecordRepository.saveAndFlush(
+                            IdempotencyRecord.builder()
+                                    .scope(cacheKey.scope())
+                                    .owner(cacheKey.owner())
+                                    .idempotencyKey(cacheKey.key())
+                                    .requestHash(requestHash)
+                                    .status(IdempotencyRecord.Status.IN_PROGRESS)
+                                    .createdAt(now)
+                                    .lockedAt(now)
+                                    .lockedBy(token)
+                                    .build()).getId());
+                    return new Claim(id, token, null);
+                } catch (DataIntegrityViolationException e) {
+                    // Another instance claimed the key between the lookup and the insert
+                    continue;
+                }
+            }
+
+            IdempotencyRecord record = existing.get();
+            checkSameRequest(record.getRequestHash(), requestHash, cacheKey);
+            if (record.getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                return new Claim(record.getId(), null, record.getResponseBody());
+            }
+            LocalDateTime now = LocalDateTime.now();
+            if (record.getLockedAt().isBefore(now.minus(Duration.ofMillis(lockTimeoutMs)))) {
+                Integer taken = claimTransactionTemplate.execute(status -> idempotencyRecordRepository.takeOverStale(
+                        record.getId(), IdempotencyRecord.Status.IN_PROGRESS,
+                        now.minus(Duration.ofMillis(lockTimeoutMs)), token, now));
+                if (taken != null && taken == 1) {
+                    log.warn("Took over abandoned idempotency key {}", cacheKey);
+                    return new Claim(record.getId(), token, null);
+                }
+                continue;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "A request with this Idempotency-Key is still in progress");
+            }
+            try {
+                Thread.sleep(REMOTE_POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for idempotent request");
+            }
+        }
+    }
+
+    private String await(CompletableFuture<String> response, CacheKey cacheKey) {
+        try {
+            return response.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "A request with this Idempotency-Key is still in progress");
+        } catch (ExecutionException e) {
+            log.info("In-flight request for idempotency key {} failed: {}", cacheKey, e.getCause().getMessage());
+            throw this.<RuntimeException>sneakyCast(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for idempotent request");
+        }
+    }
+
+    private void checkSameRequest(String storedHash, String requestHash, CacheKey cacheKey) {
+        if (!storedHash.equals(requestHash)) {
+            log.warn("Idempotency key {} reused with a different request", cacheKey);
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key was already used with a different request");
+        }
+    }
+
+    private String hash(String scope, String owner, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(scope.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(owner.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Failed to hash idempotent request", e);
+        }
+    }
+
+    private String serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize idempotent response", e);
+        }
+    }
+
+    private <T> T deserialize(String body, Class<T> responseType) {
+        try {
+            return objectMapper.readValue(body, responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read stored idempotent response", e);
+        }
+    }
+
+    private Duration ttl() {
+        return Duration.ofHours(ttlHours);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E extends Throwable> E sneakyCast(Throwable throwable) throws E {
+        throw (E) throwable;
+    }
+
+    private record CacheKey(String scope, String owner, String key) {
+        // Logged as scope:key; the owner is an email address and stays out of the logs
+        @Override
+        public String toString() {
+            return scope + ":" + key;
+        }
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<String> response) {
+    }
+
+    private record CachedResponse(String requestHash, String responseBody, LocalDateTime storedAt) {
+        private boolean isOlderThan(Duration age) {
+            return storedAt.isBefore(LocalDateTime.now().minus(age));
+        }
+    }
+
+    private record Claim(Long recordId, String token, String responseBody) {
+    }
+
+    private record Result<T>(T value, String body) {
+    }
+
+    private static final class ActionFailedException extends RuntimeException {
+        private ActionFailedException(Exception cause) {
+            super(cause);
+        }
+    }
+}
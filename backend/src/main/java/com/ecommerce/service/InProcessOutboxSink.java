@@ -0,0 +1,43 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+@Service
+@RequiredArgsConstructor
+public class InProcessOutboxSink implements OutboxSink {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${outbox.sinks.in-process.enabled:true}")
+    private boolean enabled;
+
+    @Value("${outbox.sinks.in-process.timeout-ms:1000}")
+    private long timeoutMs;
+
+    @Override
+    public String getName() {
+        return "in-process";
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Duration getDeliveryTimeout() {
+        return Duration.ofMillis(timeoutMs);
+    }
+
+    @Override
+    public void deliver(OutboxEvent event) {
+        eventPublisher.publishEvent(new OutboxMessageEvent(event.getId(), event.getAggregateType(),
+                event.getAggregateId(), event.getEventType(), event.getPayload()));
+    }
+}
@@ -0,0 +1,123 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Base for in-memory product indexes that are built once from the active catalog and then kept current by
+ * re-reading only the products named in {@link ProductsChangedEvent}s. Changes are applied on the scheduler
+ * thread; readers always use the last published state and only wait for the very first build.
+ */
+@RequiredArgsConstructor
+abstract class IncrementalProductIndex {
+
+    private static final int REBUILD_PAGE_SIZE = 5_000;
+    private static final long FAILURE_BACKOFF_MILLIS = 30_000;
+
+    protected final ProductRepository productRepository;
+
+    private final PendingProductChanges pendingChanges = new PendingProductChanges();
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private volatile long appliedVersion = -1;
+    private volatile long retryNotBeforeMillis;
+
+    protected abstract void rebuild();
+
+    /**
+     * @param changes the current row of every changed product, mapped to {@code null} if it was deleted
+     */
+    protected abstract void update(Map<Long, Product> changes);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        awaitInitialBuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductsChangedEvent event) {
+        pendingChanges.record(event);
+    }
+
+    // Changes written by other instances publish no events here, so the index is rebuilt on this interval too
+    @Scheduled(fixedDelayString = "${catalog.full-refresh-interval-ms:60000}",
+            initialDelayString = "${catalog.full-refresh-interval-ms:60000}")
+    public void scheduleFullRefresh() {
+        pendingChanges.requestFullRefresh();
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.refresh-interval-ms:250}")
+    public void refresh() {
+        if (appliedVersion == pendingChanges.getVersion() || System.currentTimeMillis() < retryNotBeforeMillis
+                || !updateLock.tryLock()) {
+            return;
+        }
+        try {
+            applyPendingChanges();
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    protected void awaitInitialBuild() {
+        if (appliedVersion >= 0) {
+            return;
+        }
+        updateLock.lock();
+        try {
+            if (appliedVersion < 0) {
+                applyPendingChanges();
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private void applyPendingChanges() {
+        long version = pendingChanges.getVersion();
+        if (appliedVersion == version) {
+            return;
+        }
+        PendingProductChanges.Drained changes = pendingChanges.drain();
+        try {
+            if (changes.isFullRefresh()) {
+                rebuild();
+            } else {
+                Map<Long, Product> reloaded = new HashMap<>();
+                changes.getProductIds().forEach(productId -> reloaded.put(productId, null));
+                productRepository.findAllById(changes.getProductIds())
+                        .forEach(product -> reloaded.put(product.getId(), product));
+                update(reloaded);
+            }
+        } catch (RuntimeException e) {
+            // Fall back to a full rebuild, but not on every tick while the failure persists
+            pendingChanges.requestFullRefresh();
+            retryNotBeforeMillis = System.currentTimeMillis() + FAILURE_BACKOFF_MILLIS;
+            throw e;
+        }
+        appliedVersion = version;
+    }
+
+    protected void forEachActiveProduct(Consumer<Product> consumer) {
+        long afterId = 0;
+        List<Product> page;
+        do {
+            page = productRepository.findActivePageById(afterId, Limit.of(REBUILD_PAGE_SIZE));
+            for (Product product : page) {
+                consumer.accept(product);
+                afterId = product.getId();
+            }
+        } while (page.size() == REBUILD_PAGE_SIZE);
+    }
+}
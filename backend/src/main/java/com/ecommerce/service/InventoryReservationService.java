@@ -0,0 +1,227 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Order;
+import com.ecommerce.model.Payment;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.PaymentRepository;
+import com.ecommerce.repository.ProductJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks stock held by unpaid orders. Checkout takes the stock from {@code products} with a conditional UPDATE, so
+ * the database stays the source of truth across nodes; this ledger records per-product held quantities with an
+ * expiry so that payment can promote a hold and the sweeper can give expired holds back.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryReservationService {
+
+    private static final int MAX_SWEEP_BATCHES = 100;
+    private static final String SWEEP_JOB = "inventory-hold-sweep";
+
+    private final OrderRepository orderRepository;
+    private final PaymentRepository paymentRepository;
+    private final ProductJdbcRepository productJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PaymentIntentCanceller paymentIntentCanceller;
+    private final JobLeaseService jobLeaseService;
+
+    private final ConcurrentHashMap<Long, Hold> holdsByOrder = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Integer> heldByProduct = new ConcurrentHashMap<>();
+
+    @Value("${inventory.hold-ttl-minutes:30}")
+    private long holdTtlMinutes;
+
+    @Value("${inventory.sweep-batch-size:500}")
+    private int sweepBatchSize;
+
+    @Value("${inventory.sweep-lease-seconds:300}")
+    private long sweepLeaseSeconds;
+
+    public void hold(Long orderId, Map<Long, Integer> quantities, LocalDateTime createdAt) {
+        Hold hold = new Hold(Map.copyOf(quantities), createdAt.plus(holdTtl()));
+        afterCommit(() -> {
+            if (holdsByOrder.putIfAbsent(orderId, hold) == null) {
+                hold.quantities().forEach((productId, quantity) -> heldByProduct.merge(productId, quantity, Integer::sum));
+            }
+        });
+    }
+
+    public void commit(Long orderId) {
+        afterCommit(() -> {
+            if (removeHold(orderId)) {
+                log.debug("Hold for order {} committed", orderId);
+            }
+        });
+    }
+
+    public void release(Long orderId) {
+        afterCommit(() -> removeHold(orderId));
+    }
+
+    public int getHeldQuantity(Long productId) {
+        return heldByProduct.getOrDefault(productId, 0);
+    }
+
+    public Map<Long, Integer> getHeldQuantities() {
+        return new TreeMap<>(heldByProduct);
+    }
+
+    public int getActiveHoldCount() {
+        return holdsByOrder.size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOpenHolds() {
+        LocalDateTime since = LocalDateTime.now().minus(holdTtl());
+        Map<Long, Map<Long, Integer>> quantitiesByOrder = new HashMap<>();
+        Map<Long, LocalDateTime> createdAtByOrder = new HashMap<>();
+        for (Object[] row : orderRepository.findItemQuantitiesByStatusCreatedSince(Order.OrderStatus.PENDING, since)) {
+            Long orderId = (Long) row[0];
+            quantitiesByOrder.computeIfAbsent(orderId, id -> new HashMap<>())
+                    .merge((Long) row[1], (Integer) row[2], Integer::sum);
+            createdAtByOrder.putIfAbsent(orderId, (LocalDateTime) row[3]);
+        }
+        quantitiesByOrder.forEach((orderId, quantities) -> hold(orderId, quantities, createdAtByOrder.get(orderId)));
+        log.info("Loaded {} open inventory holds", quantitiesByOrder.size());
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.sweep-interval-ms:60000}",
+            initialDelayString = "${inventory.sweep-interval-ms:60000}")
+    public void sweepExpiredHolds() {
+        // Holds whose orders were paid or cancelled on another node are dropped once they expire
+        LocalDateTime now = LocalDateTime.now();
+        holdsByOrder.forEach((orderId, hold) -> {
+            if (hold.expiresAt().isBefore(now)) {
+                removeHold(orderId);
+            }
+        });
+
+        // Cancelling stale orders is cluster-wide work, so only the instance holding the lease does it
+        if (!jobLeaseService.tryAcquire(SWEEP_JOB, Duration.ofSeconds(sweepLeaseSeconds))) {
+            return;
+        }
+        LocalDateTime cutoff = now.minus(holdTtl());
+        int cancelled = 0;
+        for (int batch = 0; batch < MAX_SWEEP_BATCHES; batch++) {
+            // Stale PENDING orders are read from the database so orders placed on other nodes or before a restart
+            // are released too
+            List<Long> orderIds = orderRepository.findIdsByStatusCreatedBefore(
+                    Order.OrderStatus.PENDING, cutoff, Limit.of(sweepBatchSize));
+            if (orderIds.isEmpty()) {
+                break;
+            }
+            cancelled += cancelExpiredOrders(orderIds);
+            if (orderIds.size() < sweepBatchSize) {
+                break;
+            }
+        }
+        if (cancelled > 0) {
+            log.info("Cancelled {} unpaid orders older than {} minutes", cancelled, holdTtlMinutes);
+        }
+    }
+
+    /**
+     * Gives the stock of orders that were just moved from PENDING to CANCELLED back, cancels their open payments and,
+     * once the surrounding transaction commits, drops their holds and cancels the payments' provider intents.
+     */
+    public void releaseCancelledOrders(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        paymentRepository.updateStatusByOrderIds(orderIds, Payment.PaymentStatus.PENDING,
+                Payment.PaymentStatus.CANCELLED);
+        paymentRepository.updateStatusByOrderIds(orderIds, Payment.PaymentStatus.CREATING,
+                Payment.PaymentStatus.CANCELLED);
+        // Read back after the updates, which lock the rows, so an intent attached concurrently is not missed
+        List<String> intentIds = paymentRepository.findIntentIdsByOrderIdsAndStatus(orderIds,
+                Payment.PaymentStatus.CANCELLED);
+        SortedMap<Long, Integer> restock = new TreeMap<>();
+        for (Object[] row : orderRepository.findItemQuantities(orderIds)) {
+            restock.merge((Long) row[1], (Integer) row[2], Integer::sum);
+        }
+        productJdbcRepository.incrementStock(restock);
+        eventPublisher.publishEvent(ProductsChangedEvent.of(restock.keySet()));
+        afterCommit(() -> {
+            orderIds.forEach(this::removeHold);
+            paymentIntentCanceller.cancel(intentIds);
+        });
+        log.debug("Released orders {} and restocked {} products", orderIds, restock.size());
+    }
+
+    private int cancelExpiredOrders(List<Long> orderIds) {
+        List<OrderStatusChangedEvent.Change> cancelled = transactionTemplate.execute(status -> {
+            List<OrderStatusChangedEvent.Change> changes = new ArrayList<>();
+            for (Object[] row : orderRepository.lockStatusesByIdIn(orderIds)) {
+                if (row[1] == Order.OrderStatus.PENDING) {
+                    changes.add(new OrderStatusChangedEvent.Change((Long) row[0], Order.OrderStatus.PENDING,
+                            Order.OrderStatus.CANCELLED, (BigDecimal) row[2]));
+                }
+            }
+            if (changes.isEmpty()) {
+                return changes;
+            }
+            List<Long> cancelledIds = changes.stream().map(OrderStatusChangedEvent.Change::orderId).toList();
+            orderRepository.updateStatus(cancelledIds, Order.OrderStatus.PENDING, Order.OrderStatus.CANCELLED,
+                    LocalDateTime.now());
+            releaseCancelledOrders(cancelledIds);
+            eventPublisher.publishEvent(OrderStatusChangedEvent.of(changes));
+            return changes;
+        });
+        return cancelled.size();
+    }
+
+    private boolean removeHold(Long orderId) {
+        Hold hold = holdsByOrder.remove(orderId);
+        if (hold == null) {
+            return false;
+        }
+        hold.quantities().forEach((productId, quantity) ->
+                heldByProduct.computeIfPresent(productId, (id, held) -> held > quantity ? held - quantity : null));
+        return true;
+    }
+
+    private Duration holdTtl() {
+        return Duration.ofMinutes(holdTtlMinutes);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private record Hold(Map<Long, Integer> quantities, LocalDateTime expiresAt) {
+    }
+}
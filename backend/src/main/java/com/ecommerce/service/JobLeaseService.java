@@ -0,0 +1,84 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.JobLease;
+import com.ecommerce.repository.JobLeaseRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Lets exactly one instance run a scheduled job that must not run on every node. Each instance tries to take or renew
+ * the job's lease at the start of a run and skips the run when another live instance holds it.
+ */
+@Service
+@Slf4j
+public class JobLeaseService {
+
+    private final JobLeaseRepository jobLeaseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public JobLeaseService(JobLeaseRepository jobLeaseRepository, PlatformTransactionManager transactionManager) {
+        this.jobLeaseRepository = jobLeaseRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Takes or renews the lease on {@code job} for {@code leaseFor}, which must be longer than one run of the job.
+     */
+    public boolean tryAcquire(String job, Duration leaseFor) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plus(leaseFor);
+        Integer renewed = transactionTemplate.execute(status -> jobLeaseRepository.acquire(job, instanceId, now, until));
+        if (renewed != null && renewed == 1) {
+            return true;
+        }
+        try {
+            Boolean created = transactionTemplate.execute(status -> {
+                if (jobLeaseRepository.existsById(job)) {
+                    return false;
+                }
+                jobLeaseRepository.saveAndFlush(JobLease.builder().name(job).owner(instanceId).leasedUntil(until)
+                        .build());
+                return true;
+            });
+            if (Boolean.TRUE.equals(created)) {
+                log.info("Took the lease on job {}", job);
+                return true;
+            }
+        } catch (DataIntegrityViolationException e) {
+            // Another instance created the lease between the update and the insert
+        }
+        log.debug("Job {} is leased by another instance", job);
+        return false;
+    }
+
+    /**
+     * Locks the row of {@code job} until the caller's transaction ends, for work of one job that may run on any
+     * instance but must not interleave.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lock(String job) {
+        if (jobLeaseRepository.lockByName(job).isPresent()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jobLeaseRepository.saveAndFlush(
+                    JobLease.builder().name(job).owner(instanceId).leasedUntil(LocalDateTime.now()).build()));
+        } catch (DataIntegrityViolationException e) {
+            // Created concurrently by another instance
+        }
+        jobLeaseRepository.lockByName(job)
+                .orElseThrow(() -> new IllegalStateException("Lease row for job " + job + " is missing"));
+    }
+}
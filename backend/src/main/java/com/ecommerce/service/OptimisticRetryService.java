@@ -0,0 +1,70 @@
+package com.ecommerce.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs a read-modify-write in a fresh transaction and retries it a few times when a versioned row was changed
+ * concurrently. Each attempt re-reads the rows, so business checks see the winner's state; once the attempts are
+ * used up the caller gets a 409.
+ */
+@Service
+@Slf4j
+public class OptimisticRetryService {
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${optimistic-retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${optimistic-retry.backoff-ms:20}")
+    private long backoffMs;
+
+    public OptimisticRetryService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // A retry is only meaningful if the failed attempt's transaction is really gone
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public <T> T execute(String description, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    log.warn("Giving up on {} after {} conflicting attempts", description, attempt);
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "Concurrent update, please retry: " + description);
+                }
+                log.info("Concurrent update on {}, retrying (attempt {} of {})", description, attempt + 1, maxAttempts);
+                sleep(ThreadLocalRandom.current().nextLong(backoffMs * attempt, backoffMs * attempt * 2 + 1));
+            }
+        }
+    }
+
+    public void run(String description, Runnable action) {
+        execute(description, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrying a concurrent update");
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderArchiveResponse;
+import com.ecommerce.dto.OrderResponse;
+import com.ecommerce.model.ArchivedOrder;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.Payment;
+import com.ecommerce.repository.ArchivedOrderRepository;
+import com.ecommerce.repository.OrderJdbcRepository;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.PaymentRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Moves DELIVERED and CANCELLED orders past a configurable age from orders, order_items and payments into
+ * archived_orders, so the live tables and their indexes only hold active history. Each batch is copied and deleted
+ * in its own short transaction; finished orders can no longer change status, so no rows need to be locked. The
+ * payment row is deleted with the order, so its id, provider intent id and status are copied onto the archive row.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderArchiveService {
+
+    private static final List<Order.OrderStatus> ARCHIVABLE_STATUSES =
+            List.of(Order.OrderStatus.DELIVERED, Order.OrderStatus.CANCELLED);
+
+    private final OrderRepository orderRepository;
+    private final PaymentRepository paymentRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
+    private final OrderJdbcRepository orderJdbcRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final BackgroundJob archiveJob = new BackgroundJob("order-archive");
+
+    @Value("${orders.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${orders.archive.min-age-days:180}")
+    private int minAgeDays;
+
+    @Value("${orders.archive.batch-size:500}")
+    private int batchSize;
+
+    @Value("${orders.archive.max-batches-per-run:200}")
+    private int maxBatchesPerRun;
+
+    @Scheduled(fixedDelayString = "${orders.archive.interval-ms:3600000}",
+            initialDelayString = "${orders.archive.interval-ms:3600000}")
+    public void archiveScheduled() {
+        if (enabled) {
+            archiveJob.start(() -> archiveOrders(minAgeDays));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        archiveJob.shutdown();
+    }
+
+    public OrderArchiveResponse archiveOrders(int ageDays) {
+        if (ageDays < 0) {
+            throw new RuntimeException("Archive age must not be negative");
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(ageDays);
+        log.info("Archiving finished orders created before {}", cutoff);
+        long start = System.currentTimeMillis();
+        int batches = 0;
+        long archived = 0;
+        try {
+            for (Order.OrderStatus status : ARCHIVABLE_STATUSES) {
+                while (batches < maxBatchesPerRun) {
+                    List<Long> ids = orderRepository.findIdsByStatusCreatedBefore(status, cutoff, Limit.of(batchSize));
+                    if (ids.isEmpty()) {
+                        break;
+                    }
+                    Integer moved = transactionTemplate.execute(tx -> archiveBatch(ids, status));
+                    batches++;
+                    archived += moved != null ? moved : 0;
+                    if (ids.size() < batchSize) {
+                        break;
+                    }
+                }
+            }
+        } catch (DataIntegrityViolationException e) {
+            log.info("Orders were archived concurrently by another instance, stopping this run: {}", e.getMessage());
+        }
+
+        long durationMs = System.currentTimeMillis() - start;
+        if (archived > 0 || batches >= maxBatchesPerRun) {
+            log.info("Archived {} orders in {} batches in {} ms", archived, batches, durationMs);
+        }
+        return OrderArchiveResponse.builder()
+                .cutoff(cutoff)
+                .batches(batches)
+                .archived(archived)
+                .durationMs(durationMs)
+                .build();
+    }
+
+    public Optional<OrderResponse> findArchivedOrder(Long id) {
+        return archivedOrderRepository.findById(id).map(archived -> readPayload(archived.getPayload()));
+    }
+
+    public List<OrderResponse> findArchivedOrdersByEmail(String email) {
+        return archivedOrderRepository.findByCustomerEmailOrderByCreatedAtDesc(email).stream()
+                .map(archived -> readPayload(archived.getPayload()))
+                .toList();
+    }
+
+    public OrderResponse readPayload(String payload) {
+        try {
+            return objectMapper.readValue(payload, OrderResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read archived order", e);
+        }
+    }
+
+    private int archiveBatch(List<Long> ids, Order.OrderStatus status) {
+        LocalDateTime now = LocalDateTime.now();
+        List<ArchivedOrder> rows = new ArrayList<>(ids.size());
+        for (Order order : orderRepository.findByIdIn(ids)) {
+            if (order.getStatus() != status) {
+                continue;
+            }
+            Payment payment = order.getPayment();
+            rows.add(ArchivedOrder.builder()
+                    .id(order.getId())
+                    .userId(order.getUser() != null ? order.getUser().getId() : null)
+                    .customerEmail(order.getCustomerEmail())
+                    .status(order.getStatus())
+                    .totalAmount(order.getTotalAmount())
+                    .createdAt(order.getCreatedAt())
+                    .archivedAt(now)
+                    .paymentId(payment != null ? payment.getId() : null)
+                    .paymentIntentId(payment != null ? payment.getStripePaymentIntentId() : null)
+                    .paymentStatus(payment != null ? payment.getStatus() : null)
+                    .payload(writePayload(OrderResponse.fromOrder(order)))
+                    .build());
+        }
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> archivedIds = rows.stream().map(ArchivedOrder::getId).toList();
+        orderJdbcRepository.insertArchivedOrders(rows);
+        paymentRepository.deleteByOrderIdIn(archivedIds);
+        orderRepository.deleteItemsByOrderIdIn(archivedIds);
+        int deleted = orderRepository.deleteByIdInAndStatus(archivedIds, status);
+        if (deleted != archivedIds.size()) {
+            log.error("Archived {} orders but deleted {}, rolling back batch", archivedIds.size(), deleted);
+            throw new RuntimeException("Order archive batch changed while it was being moved");
+        }
+        log.debug("Archived {} {} orders", deleted, status);
+        return deleted;
+    }
+
+    private String writePayload(OrderResponse order) {
+        try {
+            return objectMapper.writeValueAsString(order);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize order " + order.getId() + " for archival", e);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.BulkOrderStatusRequest;
+import com.ecommerce.dto.BulkOrderStatusResponse;
+import com.ecommerce.dto.OrderSearchCriteria;
+import com.ecommerce.dto.OrderSummaryResponse;
+import com.ecommerce.model.Order;
+import com.ecommerce.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderBulkStatusService {
+
+    private static final int CHUNK_SIZE = 1_000;
+
+    private final OrderRepository orderRepository;
+    private final InventoryReservationService inventoryReservationService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${orders.bulk.max-orders:50000}")
+    private int maxOrders;
+
+    public BulkOrderStatusResponse updateStatuses(BulkOrderStatusRequest request) {
+        Order.OrderStatus target = Order.OrderStatus.valueOf(request.getStatus().toUpperCase());
+        boolean hasIds = request.getOrderIds() != null && !request.getOrderIds().isEmpty();
+        if (hasIds == (request.getFilter() != null)) {
+            throw new RuntimeException("Provide either orderIds or a filter");
+        }
+        long start = System.currentTimeMillis();
+        List<Long> orderIds = hasIds
+                ? new ArrayList<>(new LinkedHashSet<>(request.getOrderIds()))
+                : resolveFilter(request.getFilter());
+        if (orderIds.size() > maxOrders) {
+            throw new RuntimeException("A bulk update is limited to " + maxOrders + " orders");
+        }
+        log.info("Bulk updating {} orders to {}", orderIds.size(), target);
+
+        BulkOrderStatusResponse response = BulkOrderStatusResponse.builder()
+                .status(target.name())
+                .requested(orderIds.size())
+                .updated(new ArrayList<>())
+                .unchanged(new ArrayList<>())
+                .notFound(new ArrayList<>())
+                .rejected(new ArrayList<>())
+                .build();
+        for (int from = 0; from < orderIds.size(); from += CHUNK_SIZE) {
+            List<Long> chunk = orderIds.subList(from, Math.min(from + CHUNK_SIZE, orderIds.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> applyChunk(chunk, target, response));
+            } catch (RuntimeException e) {
+                log.error("Bulk status update to {} failed after {} orders: {}", target, response.getUpdated().size(),
+                        e.getMessage());
+                throw new RuntimeException("Bulk status update failed after updating " + response.getUpdated().size()
+                        + " orders: " + e.getMessage());
+            }
+        }
+
+        response.setDurationMs(System.currentTimeMillis() - start);
+        log.info("Bulk status update to {} finished - updated: {}, unchanged: {}, rejected: {}, not found: {} in {} ms",
+                target, response.getUpdated().size(), response.getUnchanged().size(), response.getRejected().size(),
+                response.getNotFound().size(), response.getDurationMs());
+        return response;
+    }
+
+    private void applyChunk(List<Long> chunk, Order.OrderStatus target, BulkOrderStatusResponse response) {
+        Map<Long, Object[]> current = new HashMap<>();
+        for (Object[] row : orderRepository.lockStatusesByIdIn(chunk)) {
+            current.put((Long) row[0], row);
+        }
+
+        Map<Order.OrderStatus, List<Long>> idsByStatus = new EnumMap<>(Order.OrderStatus.class);
+        List<OrderStatusChangedEvent.Change> changes = new ArrayList<>();
+        List<Long> unchanged = new ArrayList<>();
+        List<Long> notFound = new ArrayList<>();
+        List<BulkOrderStatusResponse.Rejected> rejected = new ArrayList<>();
+        for (Long id : chunk) {
+            Object[] row = current.get(id);
+            if (row == null) {
+                notFound.add(id);
+                continue;
+            }
+            Order.OrderStatus status = (Order.OrderStatus) row[1];
+            if (status == target) {
+                unchanged.add(id);
+            } else if (!status.canTransitionTo(target)) {
+                rejected.add(BulkOrderStatusResponse.Rejected.builder().id(id).currentStatus(status.name()).build());
+            } else {
+                idsByStatus.computeIfAbsent(status, s -> new ArrayList<>()).add(id);
+                changes.add(new OrderStatusChangedEvent.Change(id, status, target, (BigDecimal) row[2]));
+            }
+        }
+
+        // One set-based UPDATE for the chunk; the rows are locked, so their statuses are still the ones read above
+        if (!changes.isEmpty()) {
+            orderRepository.updateLockedStatus(changes.stream().map(OrderStatusChangedEvent.Change::orderId).toList(),
+                    target, LocalDateTime.now());
+        }
+        List<Long> fromPending = idsByStatus.getOrDefault(Order.OrderStatus.PENDING, List.of());
+        if (target == Order.OrderStatus.CANCELLED) {
+            inventoryReservationService.releaseCancelledOrders(fromPending);
+        } else if (target == Order.OrderStatus.PAID) {
+            fromPending.forEach(inventoryReservationService::commit);
+        }
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(OrderStatusChangedEvent.of(changes));
+        }
+
+        changes.forEach(change -> response.getUpdated().add(change.orderId()));
+        response.getUnchanged().addAll(unchanged);
+        response.getNotFound().addAll(notFound);
+        response.getRejected().addAll(rejected);
+    }
+
+    private List<Long> resolveFilter(BulkOrderStatusRequest.Filter filter) {
+        if (filter.getStatus() == null) {
+            throw new RuntimeException("A bulk update filter must include the current status");
+        }
+        OrderSearchCriteria criteria = OrderSearchCriteria.builder()
+                .status(Order.OrderStatus.valueOf(filter.getStatus().toUpperCase()))
+                .customerEmailPrefix(filter.getCustomerEmail() != null && !filter.getCustomerEmail().isBlank()
+                        ? filter.getCustomerEmail() : null)
+                .createdFrom(filter.getFrom())
+                .createdTo(filter.getTo())
+                .minTotal(filter.getMinTotal())
+                .maxTotal(filter.getMaxTotal())
+                .build();
+
+        List<Long> ids = new ArrayList<>();
+        while (true) {
+            List<OrderSummaryResponse> page = orderRepository.searchSummaries(criteria, CHUNK_SIZE);
+            page.forEach(summary -> ids.add(summary.getId()));
+            if (ids.size() > maxOrders) {
+                throw new RuntimeException("Filter matches more than " + maxOrders + " orders");
+            }
+            if (page.size() < CHUNK_SIZE) {
+                return ids;
+            }
+            OrderSummaryResponse last = page.get(page.size() - 1);
+            criteria.setBeforeCreatedAt(last.getCreatedAt());
+            criteria.setBeforeId(last.getId());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderResponse;
+import com.ecommerce.repository.OrderJdbcRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+@Service
+@Slf4j
+public class OrderExportService {
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private static final List<String> CSV_COLUMNS = List.of(
+            "order_id", "created_at", "status", "customer_email", "customer_phone", "shipping_address",
+            "shipping_city", "shipping_zip_code", "shipping_country", "total_amount", "payment_status",
+            "product_id", "product_name", "quantity", "price_at_purchase", "subtotal");
+
+    private final OrderJdbcRepository orderJdbcRepository;
+    private final ObjectMapper objectMapper;
+    private final OrderArchiveService orderArchiveService;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    @Value("${orders.export.fetch-size:500}")
+    private int fetchSize;
+
+    public OrderExportService(OrderJdbcRepository orderJdbcRepository, ObjectMapper objectMapper,
+                              OrderArchiveService orderArchiveService, PlatformTransactionManager transactionManager) {
+        this.orderJdbcRepository = orderJdbcRepository;
+        this.objectMapper = objectMapper;
+        this.orderArchiveService = orderArchiveService;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    public void exportOrders(OutputStream out, String format) throws IOException {
+        if (!FORMAT_CSV.equals(format) && !FORMAT_NDJSON.equals(format)) {
+            throw new RuntimeException("Unsupported export format: " + format);
+        }
+        log.info("Starting order export, format: {}", format);
+        long start = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        long[] exported = new long[1];
+        Consumer<OrderResponse> sink = FORMAT_CSV.equals(format)
+                ? order -> writeCsv(writer, order)
+                : order -> writeNdjson(writer, order);
+
+        if (FORMAT_CSV.equals(format)) {
+            writer.write(String.join(",", CSV_COLUMNS));
+            writer.write('\n');
+        }
+        try {
+            // A transaction keeps the cursor open on PostgreSQL, which only honours the fetch size outside autocommit
+            readOnlyTransactionTemplate.executeWithoutResult(status -> {
+                orderJdbcRepository.streamOrders(fetchSize, order -> {
+                    sink.accept(order);
+                    exported[0]++;
+                });
+                // Archived orders are stored as serialized OrderResponse JSON, which is already an NDJSON line
+                orderJdbcRepository.streamArchivedPayloads(fetchSize, payload -> {
+                    if (FORMAT_CSV.equals(format)) {
+                        writeCsv(writer, orderArchiveService.readPayload(payload));
+                    } else {
+                        writeLine(writer, payload);
+                    }
+                    exported[0]++;
+                });
+            });
+        } catch (UncheckedIOException e) {
+            log.warn("Order export aborted after {} orders: {}", exported[0], e.getCause().getMessage());
+            throw e.getCause();
+        }
+        writer.flush();
+        log.info("Exported {} orders in {} ms", exported[0], System.currentTimeMillis() - start);
+    }
+
+    private void writeNdjson(Writer writer, OrderResponse order) {
+        try {
+            writeLine(writer, objectMapper.writeValueAsString(order));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize order " + order.getId(), e);
+        }
+    }
+
+    private void writeLine(Writer writer, String line) {
+        try {
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCsv(Writer writer, OrderResponse order) {
+        String paymentStatus = order.getPayment() != null ? order.getPayment().getStatus() : null;
+        try {
+            if (order.getItems().isEmpty()) {
+                writeCsvRow(writer, order, paymentStatus, null);
+            }
+            for (OrderResponse.OrderItemResponse item : order.getItems()) {
+                writeCsvRow(writer, order, paymentStatus, item);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCsvRow(Writer writer, OrderResponse order, String paymentStatus,
+                             OrderResponse.OrderItemResponse item) throws IOException {
+        Object[] values = {
+                order.getId(), order.getCreatedAt(), order.getStatus(), order.getCustomerEmail(),
+                order.getCustomerPhone(), order.getShippingAddress(), order.getShippingCity(),
+                order.getShippingZipCode(), order.getShippingCountry(), order.getTotalAmount(), paymentStatus,
+                item != null ? item.getProductId() : null,
+                item != null ? item.getProductName() : null,
+                item != null ? item.getQuantity() : null,
+                item != null ? item.getPriceAtPurchase() : null,
+                item != null ? item.getSubtotal() : null
+        };
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escapeCsv(Objects.toString(values[i], "")));
+        }
+        writer.write('\n');
+    }
+
+    private static String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
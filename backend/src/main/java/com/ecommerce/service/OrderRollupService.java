@@ -0,0 +1,404 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.RollupBackfillResponse;
+import com.ecommerce.dto.OrderResponse;
+import com.ecommerce.dto.RollupBucketResponse;
+import com.ecommerce.model.ArchivedOrder;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.OrderHourlyRollup;
+import com.ecommerce.model.OrderRollupChange;
+import com.ecommerce.repository.ArchivedOrderRepository;
+import com.ecommerce.repository.OrderHourlyRollupRepository;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.OrderRollupChangeJdbcRepository;
+import com.ecommerce.repository.OrderRollupChangeRepository;
+import com.ecommerce.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Maintains hourly per-category order rollups. Status changes are recorded in {@code order_rollup_changes} in the
+ * transaction that makes them, and a periodic flush on any instance folds them into the bucket of the hour the order
+ * was placed, so late payments and cancellations update the original hour. Backfill rebuilds a range directly from
+ * the order tables and the archive, one chunk per transaction. Flushes and backfill chunks lock the same fence row,
+ * so they never interleave across instances.
+ */
+@Service
+@Slf4j
+public class OrderRollupService {
+
+    public static final String GRANULARITY_HOUR = "hour";
+    public static final String GRANULARITY_DAY = "day";
+
+    private static final int MAX_FLUSH_BATCH = 1_000;
+    private static final int MAX_FLUSH_BATCHES = 100;
+    private static final String FENCE = "order-rollups";
+    private static final Comparator<OrderHourlyRollup.Key> BUCKET_ORDER =
+            Comparator.comparing(OrderHourlyRollup.Key::getBucketStart).thenComparing(OrderHourlyRollup.Key::getCategory);
+
+    private final OrderRepository orderRepository;
+    private final OrderHourlyRollupRepository rollupRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
+    private final ProductRepository productRepository;
+    private final OrderArchiveService orderArchiveService;
+    private final OrderRollupChangeRepository changeRepository;
+    private final OrderRollupChangeJdbcRepository changeJdbcRepository;
+    private final JobLeaseService jobLeaseService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTransactionTemplate;
+    private final BackgroundJob backfillJob = new BackgroundJob("rollup-backfill");
+
+    @Value("${rollups.backfill-chunk-hours:24}")
+    private int backfillChunkHours;
+
+    @Value("${rollups.max-query-days:400}")
+    private int maxQueryDays;
+
+    public OrderRollupService(OrderRepository orderRepository, OrderHourlyRollupRepository rollupRepository,
+                              ArchivedOrderRepository archivedOrderRepository, ProductRepository productRepository,
+                              OrderArchiveService orderArchiveService, OrderRollupChangeRepository changeRepository,
+                              OrderRollupChangeJdbcRepository changeJdbcRepository, JobLeaseService jobLeaseService,
+                              PlatformTransactionManager transactionManager) {
+        this.orderRepository = orderRepository;
+        this.rollupRepository = rollupRepository;
+        this.archivedOrderRepository = archivedOrderRepository;
+        this.productRepository = productRepository;
+        this.orderArchiveService = orderArchiveService;
+        this.changeRepository = changeRepository;
+        this.changeJdbcRepository = changeJdbcRepository;
+        this.jobLeaseService = jobLeaseService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    // Runs in the publisher's transaction, so a change is recorded exactly when the order change commits
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderRollupChange> changes = new ArrayList<>(event.getChanges().size());
+        for (OrderStatusChangedEvent.Change change : event.getChanges()) {
+            if (change.from() != change.to()) {
+                changes.add(OrderRollupChange.builder()
+                        .orderId(change.orderId())
+                        .fromStatus(change.from())
+                        .toStatus(change.to())
+                        .createdAt(now)
+                        .build());
+            }
+        }
+        if (!changes.isEmpty()) {
+            changeJdbcRepository.insert(changes);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rollups.flush-interval-ms:5000}")
+    public void flush() {
+        for (int batch = 0; batch < MAX_FLUSH_BATCHES; batch++) {
+            Integer applied;
+            try {
+                applied = transactionTemplate.execute(status -> {
+                    jobLeaseService.lock(FENCE);
+                    List<OrderRollupChange> changes = changeRepository.findAllByOrderById(Limit.of(MAX_FLUSH_BATCH));
+                    if (changes.isEmpty()) {
+                        return 0;
+                    }
+                    applyChanges(changes);
+                    changeRepository.deleteByIdIn(changes.stream().map(OrderRollupChange::getId).toList());
+                    return changes.size();
+                });
+            } catch (RuntimeException e) {
+                // The changes stay in the table and are applied by the next flush
+                log.error("Failed to flush rollup changes, will retry: {}", e.getMessage());
+                return;
+            }
+            if (applied == null || applied < MAX_FLUSH_BATCH) {
+                if (applied != null && applied > 0) {
+                    log.debug("Folded {} order status changes into hourly rollups", applied);
+                }
+                return;
+            }
+        }
+    }
+
+    public List<RollupBucketResponse> getRollups(LocalDateTime from, LocalDateTime to, String granularity,
+                                                 String category) {
+        log.info("Fetching {} rollups from {} to {}, category: {}", granularity, from, to, category);
+        if (!GRANULARITY_HOUR.equals(granularity) && !GRANULARITY_DAY.equals(granularity)) {
+            throw new RuntimeException("Unsupported granularity: " + granularity);
+        }
+        if (!from.isBefore(to)) {
+            throw new RuntimeException("from must be before to");
+        }
+        if (Duration.between(from, to).toDays() > maxQueryDays) {
+            throw new RuntimeException("Range must not exceed " + maxQueryDays + " days");
+        }
+
+        ChronoUnit unit = GRANULARITY_DAY.equals(granularity) ? ChronoUnit.DAYS : ChronoUnit.HOURS;
+        Map<OrderHourlyRollup.Key, RollupBucketResponse> buckets = new TreeMap<>(BUCKET_ORDER);
+        for (OrderHourlyRollup rollup : rollupRepository.findRange(
+                from.truncatedTo(ChronoUnit.HOURS), to, category)) {
+            LocalDateTime bucketStart = rollup.getBucketStart().truncatedTo(unit);
+            RollupBucketResponse bucket = buckets.computeIfAbsent(
+                    new OrderHourlyRollup.Key(bucketStart, rollup.getCategory()),
+                    key -> RollupBucketResponse.builder()
+                            .bucketStart(key.getBucketStart())
+                            .category(key.getCategory())
+                            .orderCount(0L)
+                            .units(0L)
+                            .grossRevenue(BigDecimal.ZERO)
+                            .paidRevenue(BigDecimal.ZERO)
+                            .build());
+            bucket.setOrderCount(bucket.getOrderCount() + rollup.getOrderCount());
+            bucket.setUnits(bucket.getUnits() + rollup.getUnits());
+            bucket.setGrossRevenue(bucket.getGrossRevenue().add(rollup.getGrossRevenue()));
+            bucket.setPaidRevenue(bucket.getPaidRevenue().add(rollup.getPaidRevenue()));
+        }
+        return new ArrayList<>(buckets.values());
+    }
+
+    /**
+     * Starts {@link #backfill} on the backfill thread and returns at once; the outcome is logged. A backfill that is
+     * already running on this instance is not queued behind.
+     */
+    public void startBackfill(LocalDateTime from, LocalDateTime to) {
+        if (!from.truncatedTo(ChronoUnit.HOURS).isBefore(backfillEnd(to))) {
+            throw new RuntimeException("from must be before to");
+        }
+        if (!backfillJob.start(() -> backfill(from, to))) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A rollup backfill is already running");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backfillJob.shutdown();
+    }
+
+    public RollupBackfillResponse backfill(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = from.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime end = backfillEnd(to);
+        if (!start.isBefore(end)) {
+            throw new RuntimeException("from must be before to");
+        }
+        log.info("Backfilling hourly rollups from {} to {} in {}h chunks", start, end, backfillChunkHours);
+        long startedAt = System.currentTimeMillis();
+        // Creates the fence row if needed; the snapshot transactions below cannot see rows created after they start
+        transactionTemplate.executeWithoutResult(status -> jobLeaseService.lock(FENCE));
+
+        int chunks = 0;
+        long ordersScanned = 0;
+        long bucketsWritten = 0;
+        LocalDateTime chunkStart = start;
+        while (chunkStart.isBefore(end)) {
+            LocalDateTime chunkEnd = chunkStart.plusHours(backfillChunkHours);
+            if (chunkEnd.isAfter(end)) {
+                chunkEnd = end;
+            }
+            long[] counts = rebuildChunk(chunkStart, chunkEnd);
+            chunks++;
+            ordersScanned += counts[0];
+            bucketsWritten += counts[1];
+            chunkStart = chunkEnd;
+        }
+
+        long durationMs = System.currentTimeMillis() - startedAt;
+        log.info("Backfilled {} chunks, {} orders into {} buckets in {} ms", chunks, ordersScanned, bucketsWritten,
+                durationMs);
+        return RollupBackfillResponse.builder()
+                .from(start)
+                .to(end)
+                .chunks(chunks)
+                .ordersScanned(ordersScanned)
+                .bucketsWritten(bucketsWritten)
+                .durationMs(durationMs)
+                .build();
+    }
+
+    private static LocalDateTime backfillEnd(LocalDateTime to) {
+        LocalDateTime end = to.truncatedTo(ChronoUnit.HOURS);
+        return end.isBefore(to) ? end.plusHours(1) : end;
+    }
+
+    /**
+     * Rebuilds one chunk in a repeatable-read snapshot while holding the fence, so no flush runs concurrently. Pending
+     * changes of orders in the chunk that the snapshot sees are already part of the rebuilt buckets and are dropped;
+     * changes committed after the snapshot started are invisible to both and are applied by the next flush.
+     */
+    private long[] rebuildChunk(LocalDateTime chunkStart, LocalDateTime chunkEnd) {
+        return snapshotTransactionTemplate.execute(status -> {
+            jobLeaseService.lock(FENCE);
+            Map<OrderHourlyRollup.Key, Delta> buckets = new HashMap<>();
+            long orders = 0;
+            Long currentOrderId = null;
+            Set<String> orderCategories = new HashSet<>();
+            // Rows arrive ordered by order id, so an order is counted once per category without remembering all ids
+            try (Stream<Object[]> rows = orderRepository.streamItemsCreatedBetween(chunkStart, chunkEnd)) {
+                for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                    Long orderId = (Long) row[0];
+                    if (!orderId.equals(currentOrderId)) {
+                        currentOrderId = orderId;
+                        orderCategories.clear();
+                        orders++;
+                    }
+                    Order.OrderStatus orderStatus = (Order.OrderStatus) row[2];
+                    if (orderStatus == Order.OrderStatus.CANCELLED) {
+                        continue;
+                    }
+                    String category = (String) row[3];
+                    int quantity = (Integer) row[4];
+                    BigDecimal revenue = ((BigDecimal) row[5]).multiply(BigDecimal.valueOf(quantity));
+                    Delta delta = buckets.computeIfAbsent(
+                            new OrderHourlyRollup.Key(((LocalDateTime) row[1]).truncatedTo(ChronoUnit.HOURS), category),
+                            key -> new Delta());
+                    delta.add(orderCategories.add(category) ? 1 : 0, quantity, revenue,
+                            orderStatus.isPaid() ? revenue : BigDecimal.ZERO);
+                }
+            }
+            List<ArchivedOrder> archived = archivedOrderRepository.findCreatedBetween(chunkStart, chunkEnd);
+            orders += archived.size();
+            addArchivedOrders(archived, buckets);
+
+            changeRepository.deleteForOrdersCreatedBetween(chunkStart, chunkEnd);
+            rollupRepository.deleteByBucketStartRange(chunkStart, chunkEnd);
+            rollupRepository.flush();
+            List<OrderHourlyRollup> rollups = new ArrayList<>();
+            buckets.forEach((key, delta) -> rollups.add(delta.toRollup(key)));
+            rollupRepository.saveAll(rollups);
+            return new long[]{orders, rollups.size()};
+        });
+    }
+
+    private void addArchivedOrders(List<ArchivedOrder> archived, Map<OrderHourlyRollup.Key, Delta> buckets) {
+        List<OrderResponse> orders = archived.stream()
+                .filter(order -> order.getStatus() != Order.OrderStatus.CANCELLED)
+                .map(order -> orderArchiveService.readPayload(order.getPayload()))
+                .toList();
+        if (orders.isEmpty()) {
+            return;
+        }
+        // Categories are looked up like the live query does, by joining the current product rows
+        Set<Long> productIds = new HashSet<>();
+        orders.forEach(order -> order.getItems().forEach(item -> productIds.add(item.getProductId())));
+        Map<Long, String> categories = new HashMap<>();
+        productRepository.findAllById(productIds).forEach(product -> categories.put(product.getId(), product.getCategory()));
+
+        for (OrderResponse order : orders) {
+            boolean paid = Order.OrderStatus.valueOf(order.getStatus()).isPaid();
+            Set<String> orderCategories = new HashSet<>();
+            for (OrderResponse.OrderItemResponse item : order.getItems()) {
+                String category = categories.get(item.getProductId());
+                if (category == null) {
+                    continue;
+                }
+                BigDecimal revenue = item.getPriceAtPurchase().multiply(BigDecimal.valueOf(item.getQuantity()));
+                buckets.computeIfAbsent(
+                                new OrderHourlyRollup.Key(order.getCreatedAt().truncatedTo(ChronoUnit.HOURS), category),
+                                key -> new Delta())
+                        .add(orderCategories.add(category) ? 1 : 0, item.getQuantity(), revenue,
+                                paid ? revenue : BigDecimal.ZERO);
+            }
+        }
+    }
+
+    private void applyChanges(List<OrderRollupChange> changes) {
+        Map<Long, List<Object[]>> itemsByOrder = new HashMap<>();
+        Set<Long> orderIds = new HashSet<>();
+        changes.forEach(change -> orderIds.add(change.getOrderId()));
+        for (Object[] row : orderRepository.sumItemsByOrderAndCategory(orderIds)) {
+            itemsByOrder.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add(row);
+        }
+
+        Map<OrderHourlyRollup.Key, Delta> deltas = new HashMap<>();
+        for (OrderRollupChange change : changes) {
+            int counted = isCounted(change.getToStatus()) - isCounted(change.getFromStatus());
+            int paid = isPaid(change.getToStatus()) - isPaid(change.getFromStatus());
+            if (counted == 0 && paid == 0) {
+                continue;
+            }
+            for (Object[] row : itemsByOrder.getOrDefault(change.getOrderId(), List.of())) {
+                LocalDateTime bucketStart = ((LocalDateTime) row[1]).truncatedTo(ChronoUnit.HOURS);
+                long units = ((Number) row[3]).longValue();
+                BigDecimal revenue = (BigDecimal) row[4];
+                deltas.computeIfAbsent(new OrderHourlyRollup.Key(bucketStart, (String) row[2]), key -> new Delta())
+                        .add(counted, counted * units, revenue.multiply(BigDecimal.valueOf(counted)),
+                                revenue.multiply(BigDecimal.valueOf(paid)));
+            }
+        }
+
+        deltas.forEach((key, delta) -> {
+            if (delta.isZero()) {
+                return;
+            }
+            int updated = rollupRepository.increment(key.getBucketStart(), key.getCategory(), delta.orders,
+                    delta.units, delta.grossRevenue, delta.paidRevenue);
+            if (updated == 0) {
+                rollupRepository.save(delta.toRollup(key));
+            }
+        });
+    }
+
+    private static int isCounted(Order.OrderStatus status) {
+        return status != null && status != Order.OrderStatus.CANCELLED ? 1 : 0;
+    }
+
+    private static int isPaid(Order.OrderStatus status) {
+        return status != null && status.isPaid() ? 1 : 0;
+    }
+
+    private static final class Delta {
+        private long orders;
+        private long units;
+        private BigDecimal grossRevenue = BigDecimal.ZERO;
+        private BigDecimal paidRevenue = BigDecimal.ZERO;
+
+        private void add(long orders, long units, BigDecimal grossRevenue, BigDecimal paidRevenue) {
+            this.orders += orders;
+            this.units += units;
+            this.grossRevenue = this.grossRevenue.add(grossRevenue);
+            this.paidRevenue = this.paidRevenue.add(paidRevenue);
+        }
+
+        private boolean isZero() {
+            return orders == 0 && units == 0 && grossRevenue.signum() == 0 && paidRevenue.signum() == 0;
+        }
+
+        private OrderHourlyRollup toRollup(OrderHourlyRollup.Key key) {
+            return OrderHourlyRollup.builder()
+                    .bucketStart(key.getBucketStart())
+                    .category(key.getCategory())
+                    .orderCount(orders)
+                    .units(units)
+                    .grossRevenue(grossRevenue)
+                    .paidRevenue(paidRevenue)
+                    .build();
+        }
+    }
+}
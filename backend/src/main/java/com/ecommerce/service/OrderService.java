@@ -3,19 +3,36 @@ package com.ecommerce.service;
 import com.ecommerce.dto.CartItemRequest;
 import com.ecommerce.dto.CreateOrderRequest;
 import com.ecommerce.dto.OrderResponse;
+import com.ecommerce.dto.OrderSearchCriteria;
+import com.ecommerce.dto.OrderSearchResponse;
+import com.ecommerce.dto.OrderSummaryResponse;
 import com.ecommerce.model.Order;
 import com.ecommerce.model.OrderItem;
 import com.ecommerce.model.Product;
 import com.ecommerce.model.User;
 import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.ProductJdbcRepository;
 import com.ecommerce.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,9 +40,16 @@ import java.util.stream.Collectors;
 @Slf4j
 public class OrderService {
 
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final ProductService productService;
+    private final ProductJdbcRepository productJdbcRepository;
+    private final InventoryReservationService inventoryReservationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OptimisticRetryService optimisticRetryService;
+    private final OrderArchiveService orderArchiveService;
 
     @Transactional
     public OrderResponse createOrder(CreateOrderRequest request, String userEmail) {
@@ -46,16 +70,24 @@ public class OrderService {
                 .status(Order.OrderStatus.PENDING)
                 .build();
 
-        BigDecimal totalAmount = BigDecimal.ZERO;
-
+        SortedMap<Long, Integer> requestedQuantities = new TreeMap<>();
         for (CartItemRequest itemRequest : request.getItems()) {
-            Product product = productService.getProductEntity(itemRequest.getProductId());
+            requestedQuantities.merge(itemRequest.getProductId(), itemRequest.getQuantity(), Integer::sum);
+        }
 
-            if (product.getStockQuantity() < itemRequest.getQuantity()) {
-                log.error("Insufficient stock for product: {} (requested: {}, available: {})",
-                        product.getName(), itemRequest.getQuantity(), product.getStockQuantity());
-                throw new RuntimeException("Insufficient stock for product: " + product.getName());
-            }
+        Map<Long, Product> products = productService.getProductEntities(requestedQuantities.keySet());
+        // Stock is reserved with conditional UPDATEs; the loaded entities are only read for name and price
+        List<Long> insufficient = productJdbcRepository.decrementStock(requestedQuantities);
+        if (!insufficient.isEmpty()) {
+            Product product = products.get(insufficient.get(0));
+            log.error("Insufficient stock for product: {} (requested: {})",
+                    product.getName(), requestedQuantities.get(product.getId()));
+            throw new RuntimeException("Insufficient stock for product: " + product.getName());
+        }
+
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (CartItemRequest itemRequest : request.getItems()) {
+            Product product = products.get(itemRequest.getProductId());
 
             OrderItem orderItem = OrderItem.builder()
                     .product(product)
@@ -65,25 +97,29 @@ public class OrderService {
 
             order.addItem(orderItem);
             totalAmount = totalAmount.add(orderItem.getSubtotal());
-
-            product.setStockQuantity(product.getStockQuantity() - itemRequest.getQuantity());
         }
 
         order.setTotalAmount(totalAmount);
         Order savedOrder = orderRepository.save(order);
+        inventoryReservationService.hold(savedOrder.getId(), requestedQuantities, savedOrder.getCreatedAt());
+        eventPublisher.publishEvent(OrderStatusChangedEvent.of(savedOrder.getId(), null,
+                Order.OrderStatus.PENDING, totalAmount));
+        eventPublisher.publishEvent(ProductsChangedEvent.of(products.keySet()));
         log.info("Order created successfully with id: {} and total: ${}", savedOrder.getId(), totalAmount);
 
         return OrderResponse.fromOrder(savedOrder);
     }
 
+    @Transactional(readOnly = true)
     public OrderResponse getOrderById(Long id) {
         log.debug("Fetching order by id: {}", id);
-        Order order = orderRepository.findById(id)
+        return orderRepository.findWithDetailsById(id)
+                .map(OrderResponse::fromOrder)
+                .or(() -> orderArchiveService.findArchivedOrder(id))
                 .orElseThrow(() -> {
                     log.error("Order not found with id: {}", id);
                     return new RuntimeException("Order not found with id: " + id);
                 });
-        return OrderResponse.fromOrder(order);
     }
 
     public Order getOrderEntity(Long id) {
@@ -95,13 +131,21 @@ public class OrderService {
                 });
     }
 
+    @Transactional(readOnly = true)
     public List<OrderResponse> getOrdersByUserEmail(String email) {
         log.info("Fetching orders for email: {}", email);
-        return orderRepository.findByCustomerEmailOrderByCreatedAtDesc(email).stream()
+        List<OrderResponse> orders = orderRepository.findByCustomerEmailOrderByCreatedAtDesc(email).stream()
                 .map(OrderResponse::fromOrder)
                 .collect(Collectors.toList());
+        List<OrderResponse> archived = orderArchiveService.findArchivedOrdersByEmail(email);
+        if (!archived.isEmpty()) {
+            orders.addAll(archived);
+            orders.sort(Comparator.comparing(OrderResponse::getCreatedAt).reversed());
+        }
+        return orders;
     }
 
+    @Transactional(readOnly = true)
     public List<OrderResponse> getAllOrders() {
         log.info("Fetching all orders");
         List<OrderResponse> orders = orderRepository.findAllByOrderByCreatedAtDesc().stream()
@@ -111,17 +155,48 @@ public class OrderService {
         return orders;
     }
 
-    @Transactional
-    public OrderResponse updateOrderStatus(Long orderId, Order.OrderStatus status) {
-        log.info("Updating order {} status to {}", orderId, status);
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> {
-                    log.error("Order not found for status update, id: {}", orderId);
-                    return new RuntimeException("Order not found with id: " + orderId);
-                });
-        order.setStatus(status);
-        log.info("Order {} status updated to {}", orderId, status);
-        return OrderResponse.fromOrder(orderRepository.save(order));
+    @Transactional(readOnly = true)
+    public OrderSearchResponse searchOrders(OrderSearchCriteria criteria, String cursor, int limit) {
+        log.info("Searching orders - criteria: {}, limit: {}", criteria, limit);
+        if (limit < 1 || limit > MAX_SEARCH_PAGE_SIZE) {
+            throw new RuntimeException("Page size must be between 1 and " + MAX_SEARCH_PAGE_SIZE);
+        }
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("expected createdAt|id");
+                }
+                criteria.setBeforeCreatedAt(LocalDateTime.parse(parts[0]));
+                criteria.setBeforeId(Long.valueOf(parts[1]));
+            } catch (RuntimeException e) {
+                log.warn("Rejected invalid order cursor: {}", e.getMessage());
+                throw new RuntimeException("Invalid cursor");
+            }
+        }
+
+        List<OrderSummaryResponse> rows = orderRepository.searchSummaries(criteria, limit + 1);
+        boolean hasMore = rows.size() > limit;
+        List<OrderSummaryResponse> page = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            OrderSummaryResponse last = page.get(page.size() - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((last.getCreatedAt() + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+        log.debug("Found {} orders for search page, hasMore: {}", page.size(), hasMore);
+
+        return OrderSearchResponse.builder()
+                .items(page)
+                .limit(limit)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    public OrderResponse updateOrderStatus(Long orderId, Order.OrderStatus status, Long expectedVersion) {
+        return optimisticRetryService.execute("order " + orderId,
+                () -> applyStatusUpdate(orderId, status, expectedVersion));
     }
 
     @Transactional
@@ -132,8 +207,90 @@ public class OrderService {
                     log.error("Order not found for marking as paid, id: {}", orderId);
                     return new RuntimeException("Order not found with id: " + orderId);
                 });
+        Order.OrderStatus previousStatus = order.getStatus();
+        if (previousStatus.isPaid()) {
+            log.info("Order {} is already {}, nothing to mark", orderId, previousStatus);
+            return;
+        }
+        if (!previousStatus.canTransitionTo(Order.OrderStatus.PAID)) {
+            log.error("Payment received for {} order: {}", previousStatus, orderId);
+            throw new RuntimeException("Order has been cancelled: " + orderId);
+        }
         order.setStatus(Order.OrderStatus.PAID);
         orderRepository.save(order);
+        inventoryReservationService.commit(orderId);
+        eventPublisher.publishEvent(OrderStatusChangedEvent.of(orderId, previousStatus, Order.OrderStatus.PAID,
+                order.getTotalAmount()));
         log.info("Order {} marked as paid", orderId);
     }
+
+    /**
+     * Marks orders the caller has just read as PENDING as paid with one set-based update in the caller's
+     * transaction. If any of them changed in the meantime the update misses it, and the caller's batch is retried.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void markPendingOrdersAsPaid(Map<Long, BigDecimal> totalsByOrderId) {
+        if (totalsByOrderId.isEmpty()) {
+            return;
+        }
+        int updated = orderRepository.updateStatus(totalsByOrderId.keySet(), Order.OrderStatus.PENDING,
+                Order.OrderStatus.PAID, LocalDateTime.now());
+        if (updated != totalsByOrderId.size()) {
+            throw new OptimisticLockingFailureException("Marked " + updated + " of " + totalsByOrderId.size()
+                    + " orders as paid, some changed concurrently");
+        }
+        List<OrderStatusChangedEvent.Change> changes = new ArrayList<>(totalsByOrderId.size());
+        totalsByOrderId.forEach((orderId, total) -> {
+            inventoryReservationService.commit(orderId);
+            changes.add(new OrderStatusChangedEvent.Change(orderId, Order.OrderStatus.PENDING,
+                    Order.OrderStatus.PAID, total));
+        });
+        eventPublisher.publishEvent(OrderStatusChangedEvent.of(changes));
+        log.info("Marked {} orders as paid", updated);
+    }
+
+    private OrderResponse applyStatusUpdate(Long orderId, Order.OrderStatus status, Long expectedVersion) {
+        log.info("Updating order {} status to {}", orderId, status);
+        Order order = orderRepository.findWithDetailsById(orderId)
+                .orElseThrow(() -> {
+                    log.error("Order not found for status update, id: {}", orderId);
+                    return new RuntimeException("Order not found with id: " + orderId);
+                });
+        if (expectedVersion != null && !expectedVersion.equals(order.getVersion())) {
+            log.warn("Order {} is at version {}, update expected version {}", orderId, order.getVersion(),
+                    expectedVersion);
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Order " + orderId + " was modified, current version is " + order.getVersion());
+        }
+        Order.OrderStatus previousStatus = order.getStatus();
+        if (previousStatus == status) {
+            log.info("Order {} is already {}", orderId, status);
+            return OrderResponse.fromOrder(order);
+        }
+        if (!previousStatus.canTransitionTo(status)) {
+            log.error("Rejected order {} status change from {} to {}", orderId, previousStatus, status);
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Cannot change order status from " + previousStatus + " to " + status);
+        }
+        if (previousStatus == Order.OrderStatus.PENDING && status == Order.OrderStatus.CANCELLED) {
+            // Same path as the hold sweeper: restock, cancel the open payment and, after commit, its provider
+            // intent. Payments are locked before the order, in the same order as payment confirmation.
+            inventoryReservationService.releaseCancelledOrders(List.of(orderId));
+            // The payment was updated in bulk, which cleared the persistence context
+            Long readVersion = order.getVersion();
+            order = orderRepository.findWithDetailsById(orderId).orElseThrow();
+            if (!readVersion.equals(order.getVersion())) {
+                throw new OptimisticLockingFailureException("Order " + orderId + " changed while being cancelled");
+            }
+        }
+        order.setStatus(status);
+        // Flushing here surfaces a version conflict inside the retried transaction and bumps the returned version
+        Order saved = orderRepository.saveAndFlush(order);
+        if (previousStatus == Order.OrderStatus.PENDING && status == Order.OrderStatus.PAID) {
+            inventoryReservationService.commit(orderId);
+        }
+        eventPublisher.publishEvent(OrderStatusChangedEvent.of(orderId, previousStatus, status, order.getTotalAmount()));
+        log.info("Order {} status updated to {}", orderId, status);
+        return OrderResponse.fromOrder(saved);
+    }
 }
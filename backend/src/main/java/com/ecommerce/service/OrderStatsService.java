@@ -0,0 +1,191 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderStatsResponse;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.OrderStatusCounter;
+import com.ecommerce.repository.ArchivedOrderRepository;
+import com.ecommerce.repository.OrderStatusCounterRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Service
+@Slf4j
+public class OrderStatsService {
+
+    private final OrderStatusCounterRepository counterRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTransactionTemplate;
+
+    @Value("${orders.stats.counter-slots:8}")
+    private int counterSlots;
+
+    public OrderStatsService(OrderStatusCounterRepository counterRepository,
+                             ArchivedOrderRepository archivedOrderRepository,
+                             PlatformTransactionManager transactionManager) {
+        this.counterRepository = counterRepository;
+        this.archivedOrderRepository = archivedOrderRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransactionTemplate.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeCounters() {
+        try {
+            boolean created = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                boolean empty = counterRepository.count() == 0;
+                Set<OrderStatusCounter.Key> existing = new HashSet<>();
+                counterRepository.findAll().forEach(counter ->
+                        existing.add(new OrderStatusCounter.Key(counter.getStatus(), counter.getSlot())));
+                List<OrderStatusCounter> missing = new ArrayList<>();
+                for (Order.OrderStatus orderStatus : Order.OrderStatus.values()) {
+                    for (int slot = 0; slot < counterSlots; slot++) {
+                        if (!existing.contains(new OrderStatusCounter.Key(orderStatus, slot))) {
+                            missing.add(OrderStatusCounter.builder()
+                                    .status(orderStatus)
+                                    .slot(slot)
+                                    .orderCount(0L)
+                                    .revenue(BigDecimal.ZERO)
+                                    .build());
+                        }
+                    }
+                }
+                counterRepository.saveAll(missing);
+                return empty;
+            }));
+            if (created) {
+                reconcile();
+            }
+        } catch (DataIntegrityViolationException e) {
+            log.info("Order status counters were initialized concurrently by another instance");
+        }
+    }
+
+    // Runs in the publisher's transaction so the counters commit or roll back together with the orders
+    @EventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        Map<Order.OrderStatus, long[]> counts = new EnumMap<>(Order.OrderStatus.class);
+        Map<Order.OrderStatus, BigDecimal> revenue = new EnumMap<>(Order.OrderStatus.class);
+        for (OrderStatusChangedEvent.Change change : event.getChanges()) {
+            if (change.from() == change.to()) {
+                continue;
+            }
+            if (change.from() != null) {
+                counts.computeIfAbsent(change.from(), s -> new long[1])[0]--;
+                revenue.merge(change.from(), change.amount().negate(), BigDecimal::add);
+            }
+            counts.computeIfAbsent(change.to(), s -> new long[1])[0]++;
+            revenue.merge(change.to(), change.amount(), BigDecimal::add);
+        }
+
+        int slot = ThreadLocalRandom.current().nextInt(counterSlots);
+        counts.forEach((status, count) -> {
+            if (counterRepository.increment(status, slot, count[0], revenue.get(status)) == 0) {
+                log.warn("Order status counter {}:{} is missing, stats will drift until reconciled", status, slot);
+            }
+        });
+    }
+
+    public OrderStatsResponse getStats() {
+        log.debug("Reading order stats from counters");
+        Map<String, Long> ordersByStatus = new LinkedHashMap<>();
+        Map<String, BigDecimal> revenueByStatus = new LinkedHashMap<>();
+        Map<Order.OrderStatus, Object[]> rows = new EnumMap<>(Order.OrderStatus.class);
+        for (Object[] row : counterRepository.sumByStatus()) {
+            rows.put((Order.OrderStatus) row[0], row);
+        }
+
+        long totalOrders = 0;
+        long paidOrders = 0;
+        BigDecimal grossRevenue = BigDecimal.ZERO;
+        BigDecimal paidRevenue = BigDecimal.ZERO;
+        for (Order.OrderStatus status : Order.OrderStatus.values()) {
+            Object[] row = rows.get(status);
+            long count = row != null ? ((Number) row[1]).longValue() : 0;
+            BigDecimal amount = row != null ? (BigDecimal) row[2] : BigDecimal.ZERO;
+            ordersByStatus.put(status.name(), count);
+            revenueByStatus.put(status.name(), amount);
+            totalOrders += count;
+            if (status != Order.OrderStatus.CANCELLED) {
+                grossRevenue = grossRevenue.add(amount);
+            }
+            if (status.isPaid()) {
+                paidOrders += count;
+                paidRevenue = paidRevenue.add(amount);
+            }
+        }
+
+        return OrderStatsResponse.builder()
+                .ordersByStatus(ordersByStatus)
+                .revenueByStatus(revenueByStatus)
+                .totalOrders(totalOrders)
+                .grossRevenue(grossRevenue)
+                .paidRevenue(paidRevenue)
+                .averageOrderValue(paidOrders == 0 ? BigDecimal.ZERO
+                        : paidRevenue.divide(BigDecimal.valueOf(paidOrders), 2, RoundingMode.HALF_UP))
+                .build();
+    }
+
+    /**
+     * Corrects counter drift without blocking checkout. The counter sums and the order aggregates are read in one
+     * repeatable-read snapshot, in which every committed order change is reflected in both because they commit
+     * together; the difference between them is the drift as of that snapshot. It is then added to one stripe per
+     * status with the same increment checkouts use, which commutes with whatever committed since.
+     */
+    public OrderStatsResponse reconcile() {
+        log.info("Reconciling order status counters from the orders table");
+        Map<Order.OrderStatus, Drift> drift = snapshotTransactionTemplate.execute(status -> {
+            Map<Order.OrderStatus, Drift> result = new EnumMap<>(Order.OrderStatus.class);
+            for (Object[] row : counterRepository.aggregateOrdersByStatus()) {
+                result.computeIfAbsent((Order.OrderStatus) row[0], s -> new Drift()).add(row, 1);
+            }
+            // Archived orders left the orders table but are still part of the totals
+            for (Object[] row : archivedOrderRepository.aggregateByStatus()) {
+                result.computeIfAbsent((Order.OrderStatus) row[0], s -> new Drift()).add(row, 1);
+            }
+            for (Object[] row : counterRepository.sumByStatus()) {
+                result.computeIfAbsent((Order.OrderStatus) row[0], s -> new Drift()).add(row, -1);
+            }
+            return result;
+        });
+
+        transactionTemplate.executeWithoutResult(status -> drift.forEach((orderStatus, delta) -> {
+            if (delta.count != 0 || delta.revenue.signum() != 0) {
+                log.warn("Order status counter {} drifted by {} orders and {} revenue, correcting", orderStatus,
+                        delta.count, delta.revenue);
+                counterRepository.increment(orderStatus, 0, delta.count, delta.revenue);
+            }
+        }));
+        return getStats();
+    }
+
+    private static final class Drift {
+        private long count;
+        private BigDecimal revenue = BigDecimal.ZERO;
+
+        private void add(Object[] row, int sign) {
+            count += sign * ((Number) row[1]).longValue();
+            revenue = revenue.add(sign > 0 ? (BigDecimal) row[2] : ((BigDecimal) row[2]).negate());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Order;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Published inside the transaction that changes order statuses. {@code from} is {@code null} for a newly created
+ * order.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class OrderStatusChangedEvent {
+
+    private final List<Change> changes;
+
+    public static OrderStatusChangedEvent of(Long orderId, Order.OrderStatus from, Order.OrderStatus to,
+                                             BigDecimal amount) {
+        return new OrderStatusChangedEvent(List.of(new Change(orderId, from, to, amount)));
+    }
+
+    public static OrderStatusChangedEvent of(List<Change> changes) {
+        return new OrderStatusChangedEvent(List.copyOf(changes));
+    }
+
+    public record Change(Long orderId, Order.OrderStatus from, Order.OrderStatus to, BigDecimal amount) {
+    }
+}
@@ -0,0 +1,229 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.OutboxEvent;
+import com.ecommerce.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Delivers outbox events to every enabled {@link OutboxSink} from a background poller, so checkout never waits on
+ * downstream systems. Instances claim batches with a lease instead of holding row locks while sinks run; the lease
+ * covers the whole batch at the sinks' timeouts, a batch whose instance dies is picked up again once it runs out, and
+ * every write back is keyed on the claim token. Each event remembers the sinks that accepted it, so a retry only goes
+ * to the rest. Failed deliveries back off exponentially and are parked as FAILED after the configured number of
+ * attempts. A poll works off at most a bounded number of batches within a time budget and hands unstarted events
+ * back, so a backlog or a slow sink never keeps a scheduler thread busy for long.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final List<OutboxSink> sinks;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${outbox.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Value("${outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${outbox.backoff-initial-ms:1000}")
+    private long backoffInitialMs;
+
+    @Value("${outbox.backoff-max-ms:600000}")
+    private long backoffMaxMs;
+
+    @Value("${outbox.retention-hours:72}")
+    private long retentionHours;
+
+    @Value("${outbox.max-batches-per-poll:10}")
+    private int maxBatchesPerPoll;
+
+    @Value("${outbox.max-poll-ms:10000}")
+    private long maxPollMs;
+
+    @Scheduled(fixedDelayString = "${outbox.poll-interval-ms:1000}")
+    public void dispatch() {
+        LocalDateTime deadline = LocalDateTime.now().plus(Duration.ofMillis(maxPollMs));
+        int batches = 0;
+        int claimed;
+        do {
+            claimed = dispatchBatch(deadline);
+            batches++;
+        } while (claimed == batchSize && batches < maxBatchesPerPoll && LocalDateTime.now().isBefore(deadline));
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.cleanup-interval-ms:3600000}")
+    public void deleteDeliveredEvents() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(retentionHours);
+        int deleted = 0;
+        List<Long> ids;
+        do {
+            ids = outboxEventRepository.findDeliveredIdsBefore(OutboxEvent.Status.DELIVERED, cutoff,
+                    Limit.of(batchSize * 10));
+            if (!ids.isEmpty()) {
+                List<Long> batch = ids;
+                Integer count = transactionTemplate.execute(status -> outboxEventRepository.deleteByIdIn(batch));
+                deleted += count != null ? count : 0;
+            }
+        } while (ids.size() == batchSize * 10);
+        if (deleted > 0) {
+            log.info("Deleted {} delivered outbox events older than {}", deleted, cutoff);
+        }
+    }
+
+    public Map<String, Long> getStatusCounts() {
+        Map<OutboxEvent.Status, Long> counts = new EnumMap<>(OutboxEvent.Status.class);
+        for (Object[] row : outboxEventRepository.countByStatus()) {
+            counts.put((OutboxEvent.Status) row[0], ((Number) row[1]).longValue());
+        }
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (OutboxEvent.Status status : OutboxEvent.Status.values()) {
+            result.put(status.name(), counts.getOrDefault(status, 0L));
+        }
+        return result;
+    }
+
+    public int retryFailedEvents() {
+        Integer requeued = transactionTemplate.execute(status -> outboxEventRepository.requeue(
+                OutboxEvent.Status.FAILED, OutboxEvent.Status.PENDING, LocalDateTime.now()));
+        log.info("Requeued {} failed outbox events", requeued);
+        return requeued != null ? requeued : 0;
+    }
+
+    private int dispatchBatch(LocalDateTime deadline) {
+        String token = UUID.randomUUID().toString();
+        List<OutboxSink> enabledSinks = sinks.stream().filter(OutboxSink::isEnabled).toList();
+        Duration perEvent = enabledSinks.stream()
+                .map(OutboxSink::getDeliveryTimeout)
+                .reduce(Duration.ZERO, Duration::plus);
+        Duration lease = Duration.ofSeconds(leaseSeconds);
+        if (perEvent.multipliedBy(batchSize).compareTo(lease) > 0) {
+            lease = perEvent.multipliedBy(batchSize);
+        }
+        Duration leaseFor = lease;
+        List<OutboxEvent> events = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> ids = outboxEventRepository.findDueIds(OutboxEvent.Status.PENDING, now, Limit.of(batchSize));
+            if (ids.isEmpty()) {
+                return List.<OutboxEvent>of();
+            }
+            outboxEventRepository.claim(ids, OutboxEvent.Status.PENDING, token, now, now.plus(leaseFor));
+            return outboxEventRepository.findByClaimedByOrderById(token);
+        });
+        if (events == null || events.isEmpty()) {
+            return 0;
+        }
+
+        LocalDateTime claimedUntil = events.get(0).getClaimedUntil();
+        List<Long> delivered = new ArrayList<>();
+        List<Long> released = new ArrayList<>();
+        int failed = 0;
+        for (OutboxEvent event : events) {
+            // Never start a delivery that could outlast the lease, after which another instance may claim the event,
+            // or once the poll has used up its time; released events are due again at the next poll
+            LocalDateTime now = LocalDateTime.now();
+            if (now.plus(perEvent).isAfter(claimedUntil) || now.isAfter(deadline)) {
+                released.add(event.getId());
+            } else if (deliver(event, enabledSinks)) {
+                delivered.add(event.getId());
+            } else {
+                failed++;
+                recordFailure(event, token);
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!delivered.isEmpty()) {
+                int marked = outboxEventRepository.markDelivered(delivered, OutboxEvent.Status.DELIVERED, token,
+                        LocalDateTime.now());
+                if (marked != delivered.size()) {
+                    log.warn("Lost the claim on {} of {} delivered outbox events", delivered.size() - marked,
+                            delivered.size());
+                }
+            }
+            if (!released.isEmpty()) {
+                outboxEventRepository.release(released, token);
+            }
+        });
+        if (failed > 0 || !released.isEmpty()) {
+            log.warn("Delivered {} of {} outbox events, {} released when the lease or the poll ran short",
+                    delivered.size(), events.size(), released.size());
+        } else {
+            log.debug("Delivered {} outbox events", delivered.size());
+        }
+        return events.size();
+    }
+
+    private void recordFailure(OutboxEvent event, String token) {
+        Integer updated = transactionTemplate.execute(status -> outboxEventRepository.recordFailure(event.getId(),
+                token, event.getStatus(), event.getAttempts(), event.getNextAttemptAt(), event.getLastError(),
+                event.getDeliveredSinks()));
+        if (updated == null || updated == 0) {
+            log.warn("Lost the claim on outbox event {}, not recording its failed attempt", event.getId());
+        }
+    }
+
+    /**
+     * Delivers the event to every enabled sink that has not accepted it yet. On failure the event is updated in
+     * memory with the sinks that did accept it, the attempt count and the next attempt time.
+     */
+    private boolean deliver(OutboxEvent event, List<OutboxSink> enabledSinks) {
+        Set<String> deliveredSinks = new LinkedHashSet<>();
+        if (event.getDeliveredSinks() != null && !event.getDeliveredSinks().isEmpty()) {
+            deliveredSinks.addAll(Arrays.asList(event.getDeliveredSinks().split(",")));
+        }
+        try {
+            for (OutboxSink sink : enabledSinks) {
+                if (!deliveredSinks.contains(sink.getName())) {
+                    sink.deliver(event);
+                    deliveredSinks.add(sink.getName());
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            LocalDateTime now = LocalDateTime.now();
+            event.setAttempts(event.getAttempts() + 1);
+            event.setDeliveredSinks(deliveredSinks.isEmpty() ? null : String.join(",", deliveredSinks));
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            event.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+            if (event.getAttempts() >= maxAttempts) {
+                event.setStatus(OutboxEvent.Status.FAILED);
+                log.error("Outbox event {} ({}) failed after {} attempts: {}", event.getId(), event.getEventType(),
+                        event.getAttempts(), error);
+            } else {
+                long delayMs = Math.min(backoffMaxMs, backoffInitialMs << Math.min(event.getAttempts() - 1, 20));
+                event.setNextAttemptAt(now.plusNanos(delayMs * 1_000_000));
+                log.warn("Outbox event {} ({}) attempt {} failed, retrying in {} ms: {}", event.getId(),
+                        event.getEventType(), event.getAttempts(), delayMs, error);
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.ecommerce.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published by {@link InProcessOutboxSink} after an outbox event has committed, for listeners inside this
+ * application.
+ */
+@Getter
+@RequiredArgsConstructor
+public class OutboxMessageEvent {
+
+    private final Long eventId;
+    private final String aggregateType;
+    private final Long aggregateId;
+    private final String eventType;
+    private final String payload;
+}
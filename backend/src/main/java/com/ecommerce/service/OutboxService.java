@@ -0,0 +1,82 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.OutboxEvent;
+import com.ecommerce.repository.OutboxEventJdbcRepository;
+import com.ecommerce.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes events for downstream systems into the outbox table inside the caller's transaction, so an event exists
+ * exactly when the change it describes committed. Delivery happens later in {@link OutboxDispatcher}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxService {
+
+    public static final String ORDER_CREATED = "order.created";
+    public static final String ORDER_STATUS_CHANGED = "order.status_changed";
+    public static final String PAYMENT_SUCCEEDED = "payment.succeeded";
+    public static final String PAYMENT_FAILED = "payment.failed";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxEventJdbcRepository outboxEventJdbcRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(String aggregateType, Long aggregateId, String eventType, Map<String, Object> payload) {
+        outboxEventRepository.save(newEvent(aggregateType, aggregateId, eventType, payload, LocalDateTime.now()));
+    }
+
+    // Runs in the publisher's transaction, which covers order creation, single and bulk updates and the hold sweeper
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = new ArrayList<>(event.getChanges().size());
+        for (OrderStatusChangedEvent.Change change : event.getChanges()) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("orderId", change.orderId());
+            payload.put("previousStatus", change.from() != null ? change.from().name() : null);
+            payload.put("status", change.to().name());
+            payload.put("totalAmount", change.amount());
+            events.add(newEvent(OutboxEvent.AGGREGATE_ORDER, change.orderId(),
+                    change.from() == null ? ORDER_CREATED : ORDER_STATUS_CHANGED, payload, now));
+        }
+        if (!events.isEmpty()) {
+            outboxEventJdbcRepository.insert(events);
+        }
+        log.debug("Recorded {} order events in the outbox", events.size());
+    }
+
+    private OutboxEvent newEvent(String aggregateType, Long aggregateId, String eventType,
+                                 Map<String, Object> payload, LocalDateTime now) {
+        try {
+            return OutboxEvent.builder()
+                    .aggregateType(aggregateType)
+                    .aggregateId(aggregateId)
+                    .eventType(eventType)
+                    .payload(objectMapper.writeValueAsString(payload))
+                    .status(OutboxEvent.Status.PENDING)
+                    .attempts(0)
+                    .nextAttemptAt(now)
+                    .createdAt(now)
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize " + eventType + " event", e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.OutboxEvent;
+
+import java.time.Duration;
+
+/**
+ * A destination for outbox events. Delivery is at-least-once, so sinks should use the event id to drop duplicates.
+ */
+public interface OutboxSink {
+
+    String getName();
+
+    boolean isEnabled();
+
+    /**
+     * The longest a single {@link #deliver} call can take before it fails, used to size the dispatcher's lease.
+     */
+    Duration getDeliveryTimeout();
+
+    void deliver(OutboxEvent event) throws Exception;
+}
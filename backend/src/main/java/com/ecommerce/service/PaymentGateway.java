@@ -0,0 +1,32 @@
+package com.ecommerce.service;
+
+import java.util.Map;
+
+/**
+ * A payment provider. Implementations make one blocking remote call per method and must never be invoked inside a
+ * database transaction; callers go through {@link ResilientPaymentGateway}, which adds timeouts, a bulkhead and a
+ * circuit breaker.
+ */
+public interface PaymentGateway {
+
+    String getName();
+
+    CreatedIntent createPaymentIntent(long amountInCents, String currency, Map<String, String> metadata,
+                                      String idempotencyKey);
+
+    CreatedIntent updatePaymentIntentAmount(String intentId, long amountInCents, String idempotencyKey);
+
+    IntentStatus getPaymentIntentStatus(String intentId);
+
+    void cancelPaymentIntent(String intentId, String idempotencyKey);
+
+    record CreatedIntent(String id, String clientSecret) {
+    }
+
+    enum IntentStatus {
+        OPEN,
+        SUCCEEDED,
+        FAILED,
+        CANCELED
+    }
+}
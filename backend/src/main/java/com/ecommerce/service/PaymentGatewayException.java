@@ -0,0 +1,23 @@
+package com.ecommerce.service;
+
+import lombok.Getter;
+
+/**
+ * A failed payment gateway call. {@code retryable} failures (timeouts, connectivity, provider errors, a busy or open
+ * gateway) say nothing about the payment itself and are answered with 503; the rest are rejected requests.
+ */
+@Getter
+public class PaymentGatewayException extends RuntimeException {
+
+    private final boolean retryable;
+
+    public PaymentGatewayException(String message, boolean retryable) {
+        super(message);
+        this.retryable = retryable;
+    }
+
+    public PaymentGatewayException(String message, boolean retryable, Throwable cause) {
+        super(message, cause);
+        this.retryable = retryable;
+    }
+}
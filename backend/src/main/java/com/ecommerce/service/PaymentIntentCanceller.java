@@ -0,0 +1,80 @@
+package com.ecommerce.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cancels the provider intents of payments that were cancelled locally, so a customer can no longer pay an order
+ * that gave its stock back. Cancels run on a background thread and never inside a transaction; callers hand intents
+ * over once the cancelling transaction has committed. An intent that cannot be cancelled is logged, and a payment
+ * that still arrives on it is rejected by confirmation because its order is cancelled.
+ */
+@Service
+@Slf4j
+public class PaymentIntentCanceller {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final ResilientPaymentGateway paymentGateway;
+    private final ThreadPoolExecutor executor;
+
+    @Value("${payments.intent-cancel.retry-delay-ms:1000}")
+    private long retryDelayMs;
+
+    public PaymentIntentCanceller(ResilientPaymentGateway paymentGateway,
+                                  @Value("${payments.intent-cancel.queue-capacity:10000}") int queueCapacity) {
+        this.paymentGateway = paymentGateway;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "payment-intent-cancel");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public void cancel(Collection<String> intentIds) {
+        for (String intentId : List.copyOf(intentIds)) {
+            try {
+                executor.execute(() -> cancelWithRetries(intentId));
+            } catch (RejectedExecutionException e) {
+                log.error("Payment intent cancel queue is full, intent {} stays open", intentId);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void cancelWithRetries(String intentId) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                paymentGateway.cancelPaymentIntent(intentId, "cancel-" + intentId);
+                log.info("Cancelled payment intent {}", intentId);
+                return;
+            } catch (PaymentGatewayException e) {
+                if (!e.isRetryable() || attempt == MAX_ATTEMPTS) {
+                    log.warn("Could not cancel payment intent {} after {} attempts: {}", intentId, attempt,
+                            e.getMessage());
+                    return;
+                }
+            }
+            try {
+                Thread.sleep(retryDelayMs * attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.PaymentConfirmationResponse;
+import com.ecommerce.dto.PaymentReconciliationResponse;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.Payment;
+import com.ecommerce.repository.PaymentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds payments that are stuck or disagree with their order. Stale PENDING payments are read in keyset chunks,
+ * looked up at the payment provider with bounded concurrency and settled with one transaction per chunk. A second
+ * pass reads payments that succeeded within the drift lookback, in keyset chunks, for orders that were never marked
+ * paid. No query or transaction spans more than one chunk, so the job scales with the table without holding locks.
+ * Only the instance holding the job lease runs it; the lease is taken once per run and renewed after every chunk,
+ * and a run that cannot renew it stops, because another instance may have taken over.
+ */
+@Service
+@Slf4j
+public class PaymentReconciliationService {
+
+    static final String JOB = "payment-reconciliation";
+    static final String DRIFT_ORDER_NOT_MARKED_PAID = "order_not_marked_paid";
+    static final String DRIFT_PAID_AFTER_CANCEL = "paid_after_cancel";
+    static final String DRIFT_FAILED_FOR_PAID_ORDER = "failed_for_paid_order";
+    static final String DRIFT_PENDING_FOR_CANCELLED_ORDER = "pending_for_cancelled_order";
+    private static final List<String> DRIFT_TYPES = List.of(DRIFT_ORDER_NOT_MARKED_PAID, DRIFT_PAID_AFTER_CANCEL,
+            DRIFT_FAILED_FOR_PAID_ORDER, DRIFT_PENDING_FOR_CANCELLED_ORDER);
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentService paymentService;
+    private final OrderService orderService;
+    private final ResilientPaymentGateway paymentGateway;
+    private final OptimisticRetryService optimisticRetryService;
+    private final JobLeaseService jobLeaseService;
+    private final PaymentIntentCanceller paymentIntentCanceller;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+    private final BackgroundJob reconcileJob = new BackgroundJob("payment-reconciliation-run");
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final Counter checkedCounter;
+    private final Counter gatewayErrorCounter;
+    private final Counter retryableRejectionCounter;
+    private final Counter permanentRejectionCounter;
+    private final Map<Payment.PaymentStatus, Counter> transitionCounters = new EnumMap<>(Payment.PaymentStatus.class);
+    private final Timer runTimer;
+    private final AtomicLong lastRunPaymentsPerSecond = new AtomicLong();
+    private final Map<String, AtomicLong> lastRunDrift = new LinkedHashMap<>();
+
+    @Value("${payments.reconciliation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${payments.reconciliation.min-age-minutes:30}")
+    private long minAgeMinutes;
+
+    @Value("${payments.reconciliation.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${payments.reconciliation.max-payments-per-run:100000}")
+    private int maxPaymentsPerRun;
+
+    @Value("${payments.reconciliation.lease-seconds:900}")
+    private long leaseSeconds;
+
+    @Value("${payments.reconciliation.drift-lookback-minutes:1440}")
+    private long driftLookbackMinutes;
+
+    public PaymentReconciliationService(PaymentRepository paymentRepository, PaymentService paymentService,
+                                        OrderService orderService, ResilientPaymentGateway paymentGateway,
+                                        OptimisticRetryService optimisticRetryService,
+                                        JobLeaseService jobLeaseService,
+                                        PaymentIntentCanceller paymentIntentCanceller,
+                                        TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                                        @Value("${payments.reconciliation.concurrency:8}") int concurrency) {
+        this.paymentRepository = paymentRepository;
+        this.paymentService = paymentService;
+        this.orderService = orderService;
+        this.paymentGateway = paymentGateway;
+        this.optimisticRetryService = optimisticRetryService;
+        this.jobLeaseService = jobLeaseService;
+        this.paymentIntentCanceller = paymentIntentCanceller;
+        this.transactionTemplate = transactionTemplate;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "payment-reconciliation-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.checkedCounter = meterRegistry.counter("payments.reconciliation.checked");
+        this.gatewayErrorCounter = meterRegistry.counter("payments.reconciliation.gateway.errors");
+        this.retryableRejectionCounter = meterRegistry.counter("payments.reconciliation.rejected",
+                "retryable", "true");
+        this.permanentRejectionCounter = meterRegistry.counter("payments.reconciliation.rejected",
+                "retryable", "false");
+        for (Payment.PaymentStatus status : List.of(Payment.PaymentStatus.SUCCEEDED, Payment.PaymentStatus.FAILED,
+                Payment.PaymentStatus.CANCELLED)) {
+            transitionCounters.put(status, meterRegistry.counter("payments.reconciliation.transitions",
+                    "to", status.name()));
+        }
+        this.runTimer = meterRegistry.timer("payments.reconciliation.run");
+        Gauge.builder("payments.reconciliation.throughput", lastRunPaymentsPerSecond, AtomicLong::get)
+                .description("Payments checked per second in the last run")
+                .register(meterRegistry);
+        for (String type : DRIFT_TYPES) {
+            AtomicLong value = new AtomicLong();
+            lastRunDrift.put(type, value);
+            Gauge.builder("payments.reconciliation.drift", value, AtomicLong::get)
+                    .description("Payments found disagreeing with their order in the last run")
+                    .tag("type", type)
+                    .register(meterRegistry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${payments.reconciliation.interval-ms:300000}",
+            initialDelayString = "${payments.reconciliation.interval-ms:300000}")
+    public void reconcileScheduled() {
+        if (enabled && !running.get()) {
+            reconcileJob.start(this::reconcileInBackground);
+        }
+    }
+
+    /**
+     * Starts a run on the job's own thread and returns at once; the outcome is logged and recorded in the metrics.
+     */
+    public void startReconciliation() {
+        if (running.get() || !reconcileJob.start(this::reconcileInBackground)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Payment reconciliation is already running");
+        }
+    }
+
+    public PaymentReconciliationResponse reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Payment reconciliation is already running");
+        }
+        try {
+            // Reconciling is cluster-wide work, so it only runs on the instance holding the lease
+            if (!renewLease()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Payment reconciliation is running on another instance");
+            }
+            return runTimer.record(this::runReconciliation);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Confirms payments that an admin reports as paid, but only those whose intent the payment provider reports as
+     * succeeded. Intents are looked up with the job's bounded concurrency; any other intent is rejected without
+     * touching its payment, as retryable while the provider still reports it open or cannot be reached.
+     */
+    public PaymentConfirmationResponse confirmVerified(Collection<String> paymentIntentIds) {
+        long start = System.currentTimeMillis();
+        List<String> intentIds = new ArrayList<>(new LinkedHashSet<>(paymentIntentIds));
+        List<CompletableFuture<PaymentGateway.IntentStatus>> lookups = new ArrayList<>(intentIds.size());
+        for (String intentId : intentIds) {
+            lookups.add(CompletableFuture.supplyAsync(() -> lookUp(intentId), executor));
+        }
+
+        List<String> succeeded = new ArrayList<>();
+        List<PaymentConfirmationResponse.Rejected> unverified = new ArrayList<>();
+        for (int i = 0; i < intentIds.size(); i++) {
+            String intentId = intentIds.get(i);
+            PaymentGateway.IntentStatus status = lookups.get(i).join();
+            if (status == PaymentGateway.IntentStatus.SUCCEEDED) {
+                succeeded.add(intentId);
+                continue;
+            }
+            String reason = status == null ? "Payment provider could not be reached for intent: " + intentId
+                    : "Payment intent " + intentId + " is " + status + " at the payment provider";
+            log.warn("Not confirming payment {}: {}", intentId, reason);
+            unverified.add(PaymentConfirmationResponse.Rejected.builder()
+                    .paymentIntentId(intentId)
+                    .reason(reason)
+                    .retryable(status == null || status == PaymentGateway.IntentStatus.OPEN)
+                    .build());
+        }
+
+        PaymentConfirmationResponse response = succeeded.isEmpty()
+                ? PaymentConfirmationResponse.builder()
+                        .confirmed(new ArrayList<>())
+                        .alreadyConfirmed(new ArrayList<>())
+                        .rejected(new ArrayList<>())
+                        .build()
+                : paymentService.confirmPayments(succeeded);
+        response.getRejected().addAll(unverified);
+        response.setRequested(intentIds.size());
+        response.setDurationMs(System.currentTimeMillis() - start);
+        log.info("Verified {} of {} payment intents at the provider", succeeded.size(), intentIds.size());
+        return response;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reconcileJob.shutdown();
+        executor.shutdownNow();
+    }
+
+    private void reconcileInBackground() {
+        try {
+            reconcile();
+        } catch (ResponseStatusException e) {
+            log.info("Skipping payment reconciliation: {}", e.getReason());
+        }
+    }
+
+    private boolean renewLease() {
+        return jobLeaseService.tryAcquire(JOB, Duration.ofSeconds(leaseSeconds));
+    }
+
+    private PaymentReconciliationResponse runReconciliation() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(minAgeMinutes);
+        log.info("Reconciling PENDING payments older than {}", cutoff);
+        long start = System.currentTimeMillis();
+        Tally tally = new Tally();
+
+        long afterId = 0;
+        while (tally.checked < maxPaymentsPerRun) {
+            List<Object[]> rows = paymentRepository.findStaleAfter(Payment.PaymentStatus.PENDING, cutoff, afterId,
+                    Limit.of(chunkSize));
+            if (rows.isEmpty()) {
+                break;
+            }
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+            if (!reconcileChunk(rows, tally)) {
+                log.warn("Payment provider unavailable for a whole chunk, stopping reconciliation after {} payments",
+                        tally.checked);
+                break;
+            }
+            if (!renewLease()) {
+                tally.leaseLost = true;
+                break;
+            }
+            if (rows.size() < chunkSize) {
+                break;
+            }
+        }
+        if (!tally.leaseLost) {
+            findUnmarkedPaidOrders(tally);
+        }
+        if (tally.leaseLost) {
+            log.warn("Lost the payment reconciliation lease, stopping after {} payments", tally.checked);
+        }
+
+        long durationMs = System.currentTimeMillis() - start;
+        double paymentsPerSecond = durationMs > 0 ? tally.checked * 1000.0 / durationMs : tally.checked;
+        lastRunPaymentsPerSecond.set(Math.round(paymentsPerSecond));
+        tally.drift.forEach((type, count) -> lastRunDrift.get(type).set(count));
+        log.info("Payment reconciliation checked {} payments in {} ms - succeeded: {}, failed: {}, cancelled: {}, " +
+                        "open: {}, rejected: {} ({} retryable), gateway errors: {}, drift: {}", tally.checked,
+                durationMs, tally.succeeded, tally.failed, tally.cancelled, tally.stillOpen, tally.rejected,
+                tally.retryableRejections, tally.gatewayErrors, tally.drift);
+        return PaymentReconciliationResponse.builder()
+                .cutoff(cutoff)
+                .checked(tally.checked)
+                .succeeded(tally.succeeded)
+                .failed(tally.failed)
+                .cancelled(tally.cancelled)
+                .stillOpen(tally.stillOpen)
+                .leaseLost(tally.leaseLost)
+                .rejected(tally.rejected)
+                .retryableRejections(tally.retryableRejections)
+                .gatewayErrors(tally.gatewayErrors)
+                .drift(tally.drift)
+                .durationMs(durationMs)
+                .paymentsPerSecond(paymentsPerSecond)
+                .build();
+    }
+
+    private boolean reconcileChunk(List<Object[]> rows, Tally tally) {
+        List<CompletableFuture<PaymentGateway.IntentStatus>> lookups = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            String intentId = (String) row[1];
+            lookups.add(CompletableFuture.supplyAsync(() -> lookUp(intentId), executor));
+        }
+
+        List<String> succeeded = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        List<Long> cancelledOrderIds = new ArrayList<>();
+        Set<String> openIntentsOfCancelledOrders = new HashSet<>();
+        int errors = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            String intentId = (String) row[1];
+            Long orderId = (Long) row[2];
+            Order.OrderStatus orderStatus = (Order.OrderStatus) row[3];
+            PaymentGateway.IntentStatus status = lookups.get(i).join();
+            if (status == null) {
+                errors++;
+                continue;
+            }
+            boolean orderCancelled = orderStatus == Order.OrderStatus.CANCELLED;
+            if (status == PaymentGateway.IntentStatus.SUCCEEDED && orderCancelled) {
+                log.error("Payment {} for cancelled order {} succeeded at the provider and needs a refund",
+                        intentId, orderId);
+                tally.drift(DRIFT_PAID_AFTER_CANCEL);
+            } else if (status == PaymentGateway.IntentStatus.SUCCEEDED) {
+                succeeded.add(intentId);
+            } else if (orderCancelled) {
+                tally.drift(DRIFT_PENDING_FOR_CANCELLED_ORDER);
+                cancelledOrderIds.add(orderId);
+                if (status == PaymentGateway.IntentStatus.OPEN) {
+                    openIntentsOfCancelledOrders.add(intentId);
+                }
+            } else if (status == PaymentGateway.IntentStatus.OPEN) {
+                tally.stillOpen++;
+            } else if (orderStatus.isPaid()) {
+                log.error("Payment {} failed at the provider but order {} is {}", intentId, orderId, orderStatus);
+                tally.drift(DRIFT_FAILED_FOR_PAID_ORDER);
+            } else {
+                failed.add(intentId);
+            }
+        }
+
+        int confirmed = 0;
+        int retryableRejections = 0;
+        int permanentRejections = 0;
+        if (!succeeded.isEmpty() || !failed.isEmpty()) {
+            PaymentConfirmationResponse response = paymentService.applyReconciledOutcomes(succeeded, failed);
+            confirmed = response.getConfirmed().size() + response.getAlreadyConfirmed().size();
+            for (PaymentConfirmationResponse.Rejected rejected : response.getRejected()) {
+                // Rejections are left PENDING and looked at again by the next run
+                log.warn("Reconciliation could not confirm payment {} ({}): {}", rejected.getPaymentIntentId(),
+                        rejected.isRetryable() ? "retryable" : "permanent", rejected.getReason());
+                if (rejected.isRetryable()) {
+                    retryableRejections++;
+                } else {
+                    permanentRejections++;
+                }
+            }
+        }
+        if (!cancelledOrderIds.isEmpty()) {
+            List<String> cancelledIntents = transactionTemplate.execute(status -> {
+                paymentRepository.updateStatusByOrderIds(cancelledOrderIds, Payment.PaymentStatus.PENDING,
+                        Payment.PaymentStatus.CANCELLED);
+                // Read back after the update, which locks the rows, so a payment that changed meanwhile is left out
+                return paymentRepository.findIntentIdsByOrderIdsAndStatus(cancelledOrderIds,
+                        Payment.PaymentStatus.CANCELLED);
+            });
+            // The intents could still be paid at the provider; the cancelling transaction has committed by now
+            paymentIntentCanceller.cancel(cancelledIntents.stream().filter(openIntentsOfCancelledOrders::contains)
+                    .toList());
+        }
+
+        tally.checked += rows.size();
+        tally.succeeded += confirmed;
+        tally.rejected += retryableRejections + permanentRejections;
+        tally.retryableRejections += retryableRejections;
+        tally.failed += failed.size();
+        tally.cancelled += cancelledOrderIds.size();
+        tally.gatewayErrors += errors;
+        checkedCounter.increment(rows.size());
+        gatewayErrorCounter.increment(errors);
+        retryableRejectionCounter.increment(retryableRejections);
+        permanentRejectionCounter.increment(permanentRejections);
+        transitionCounters.get(Payment.PaymentStatus.SUCCEEDED).increment(confirmed);
+        transitionCounters.get(Payment.PaymentStatus.FAILED).increment(failed.size());
+        transitionCounters.get(Payment.PaymentStatus.CANCELLED).increment(cancelledOrderIds.size());
+        return errors < rows.size();
+    }
+
+    private PaymentGateway.IntentStatus lookUp(String intentId) {
+        try {
+            return paymentGateway.getPaymentIntentStatus(intentId);
+        } catch (RuntimeException e) {
+            log.debug("Payment intent lookup failed for {}: {}", intentId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void findUnmarkedPaidOrders(Tally tally) {
+        // Only payments that succeeded recently can still disagree with their order, which keeps the pass from
+        // rescanning the whole payments table on every run
+        LocalDateTime since = LocalDateTime.now().minusMinutes(driftLookbackMinutes);
+        List<Order.OrderStatus> orderStatuses = List.of(Order.OrderStatus.PENDING, Order.OrderStatus.CANCELLED);
+        long afterId = 0;
+        while (true) {
+            List<Object[]> rows = paymentRepository.findCompletedSinceWithOrderStatus(Payment.PaymentStatus.SUCCEEDED,
+                    since, afterId, orderStatuses, Limit.of(chunkSize));
+            if (rows.isEmpty()) {
+                break;
+            }
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+            for (Object[] row : rows) {
+                Long orderId = (Long) row[1];
+                if (row[2] == Order.OrderStatus.CANCELLED) {
+                    log.error("Order {} was cancelled after its payment {} succeeded and needs a refund", orderId,
+                            row[0]);
+                    tally.drift(DRIFT_PAID_AFTER_CANCEL);
+                } else {
+                    log.warn("Order {} has a succeeded payment but was not marked paid, fixing", orderId);
+                    tally.drift(DRIFT_ORDER_NOT_MARKED_PAID);
+                    optimisticRetryService.run("order " + orderId, () -> orderService.markOrderAsPaid(orderId));
+                }
+            }
+            if (!renewLease()) {
+                tally.leaseLost = true;
+                break;
+            }
+            if (rows.size() < chunkSize) {
+                break;
+            }
+        }
+    }
+
+    private static final class Tally {
+        private long checked;
+        private long succeeded;
+        private long failed;
+        private long cancelled;
+        private long stillOpen;
+        private long rejected;
+        private long retryableRejections;
+        private boolean leaseLost;
+        private long gatewayErrors;
+        private final Map<String, Long> drift = new LinkedHashMap<>();
+
+        private Tally() {
+            DRIFT_TYPES.forEach(type -> drift.put(type, 0L));
+        }
+
+        private void drift(String type) {
+            drift.merge(type, 1L, Long::sum);
+        }
+    }
+}
@@ -1,106 +1,235 @@
 package com.ecommerce.service;
 
+import com.ecommerce.dto.PaymentConfirmationResponse;
 import com.ecommerce.dto.PaymentIntentResponse;
 import com.ecommerce.model.Order;
+import com.ecommerce.model.OutboxEvent;
 import com.ecommerce.model.Payment;
 import com.ecommerce.repository.PaymentRepository;
-import com.stripe.Stripe;
-import com.stripe.exception.StripeException;
-import com.stripe.model.PaymentIntent;
-import com.stripe.param.PaymentIntentCreateParams;
-import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class PaymentService {
 
+    private static final String CURRENCY = "usd";
+    private static final int CONFIRMATION_CHUNK_SIZE = 500;
+
     private final PaymentRepository paymentRepository;
     private final OrderService orderService;
+    private final OptimisticRetryService optimisticRetryService;
+    private final OutboxService outboxService;
+    private final ResilientPaymentGateway paymentGateway;
+    private final PaymentIntentCanceller paymentIntentCanceller;
 
-    @Value("${stripe.api.key}")
-    private String stripeApiKey;
+    @Value("${payments.gateway.reservation-timeout-ms:60000}")
+    private long reservationTimeoutMs;
 
-    @PostConstruct
-    public void init() {
-        Stripe.apiKey = stripeApiKey;
-        log.info("Stripe API initialized");
+    public PaymentService(PaymentRepository paymentRepository, OrderService orderService,
+                          OptimisticRetryService optimisticRetryService, OutboxService outboxService,
+                          ResilientPaymentGateway paymentGateway, PaymentIntentCanceller paymentIntentCanceller) {
+        this.paymentRepository = paymentRepository;
+        this.orderService = orderService;
+        this.optimisticRetryService = optimisticRetryService;
+        this.outboxService = outboxService;
+        this.paymentGateway = paymentGateway;
+        this.paymentIntentCanceller = paymentIntentCanceller;
     }
 
-    @Transactional
-    public PaymentIntentResponse createPaymentIntent(Long orderId) throws StripeException {
+    /**
+     * Creates a payment intent in three steps so that no database connection is held while the provider is called:
+     * the payment row is reserved as CREATING in a short transaction, the gateway is called with no transaction open,
+     * and the intent is attached in a second short transaction. A reservation left behind by a crashed request is
+     * taken over once it is older than the reservation timeout. Until an intent is attached, every attempt and
+     * takeover sends the same idempotency key, so an intent created by a call whose answer was lost is returned
+     * again instead of being orphaned.
+     * <p>
+     * An order keeps one open intent: repeated calls, such as checkout page reloads, return it from the payment row,
+     * while it is still PENDING, without calling the provider, and a changed order total updates its amount instead
+     * of creating another intent.
+     */
+    public PaymentIntentResponse createPaymentIntent(Long orderId) {
         log.info("Creating payment intent for order: {}", orderId);
-        Order order = orderService.getOrderEntity(orderId);
+        Reservation reservation = optimisticRetryService.execute("payment for order " + orderId,
+                () -> reservePayment(orderId));
+        if (reservation.openIntent() != null) {
+            OpenIntent open = reservation.openIntent();
+            log.info("Reusing open payment intent: {} for order: {}", open.id(), orderId);
+            return toResponse(open);
+        }
 
-        if (order.getPayment() != null &&
-            order.getPayment().getStatus() == Payment.PaymentStatus.SUCCEEDED) {
-            log.warn("Attempted to pay for already paid order: {}", orderId);
-            throw new RuntimeException("Order has already been paid");
+        PaymentGateway.CreatedIntent intent;
+        try {
+            intent = reservation.intentToUpdate() != null
+                    ? paymentGateway.updatePaymentIntentAmount(reservation.intentToUpdate(),
+                    reservation.amountInCents(), reservation.idempotencyKey())
+                    : paymentGateway.createPaymentIntent(reservation.amountInCents(), CURRENCY,
+                    Map.of("orderId", orderId.toString()), reservation.idempotencyKey());
+        } catch (RuntimeException e) {
+            log.error("Payment intent creation failed for order: {}: {}", orderId, e.getMessage());
+            // Only a refusal proves no intent was created; after a timeout the next attempt must replay the request
+            boolean refused = e instanceof PaymentGatewayException gatewayException && !gatewayException.isRetryable();
+            optimisticRetryService.run("payment for order " + orderId, () -> releaseReservation(reservation, refused));
+            throw e;
         }
 
-        long amountInCents = order.getTotalAmount()
-                .multiply(BigDecimal.valueOf(100))
-                .longValue();
+        try {
+            optimisticRetryService.run("payment for order " + orderId, () -> attachIntent(reservation, intent));
+        } catch (RuntimeException e) {
+            cancelIfPaymentCancelled(reservation, intent);
+            throw e;
+        }
+        OpenIntent open = new OpenIntent(intent.id(), intent.clientSecret(), reservation.amountInCents());
+        log.info("Payment intent {}: {} for order: {} amount: ${}",
+                reservation.intentToUpdate() != null ? "updated" : "created", intent.id(), orderId,
+                reservation.amount());
+        return toResponse(open);
+    }
 
-        PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
-                .setAmount(amountInCents)
-                .setCurrency("usd")
-                .putMetadata("orderId", orderId.toString())
-                .setAutomaticPaymentMethods(
-                        PaymentIntentCreateParams.AutomaticPaymentMethods.builder()
-                                .setEnabled(true)
-                                .build()
-                )
+    /**
+     * Confirms a batch of payments, for example from a webhook batch. Each chunk costs one joined read of payments
+     * and orders and one set-based update of each, in a single transaction; a chunk that races with another change
+     * is retried as a whole. Intents that are unknown or belong to cancelled orders are rejected individually.
+     */
+    public PaymentConfirmationResponse confirmPayments(Collection<String> paymentIntentIds) {
+        long start = System.currentTimeMillis();
+        List<String> intentIds = new ArrayList<>(new LinkedHashSet<>(paymentIntentIds));
+        PaymentConfirmationResponse response = PaymentConfirmationResponse.builder()
+                .requested(intentIds.size())
+                .confirmed(new ArrayList<>())
+                .alreadyConfirmed(new ArrayList<>())
+                .rejected(new ArrayList<>())
                 .build();
+        for (int from = 0; from < intentIds.size(); from += CONFIRMATION_CHUNK_SIZE) {
+            List<String> chunk = intentIds.subList(from, Math.min(from + CONFIRMATION_CHUNK_SIZE, intentIds.size()));
+            PaymentConfirmationResponse result = optimisticRetryService.execute(
+                    "confirmation of " + chunk.size() + " payments", () -> applyConfirmations(chunk));
+            response.getConfirmed().addAll(result.getConfirmed());
+            response.getAlreadyConfirmed().addAll(result.getAlreadyConfirmed());
+            response.getRejected().addAll(result.getRejected());
+        }
+        response.setDurationMs(System.currentTimeMillis() - start);
+        return response;
+    }
 
-        PaymentIntent paymentIntent = PaymentIntent.create(params);
+    public void failPayment(String paymentIntentId) {
+        optimisticRetryService.run("payment " + paymentIntentId, () -> applyFailure(paymentIntentId));
+    }
 
-        Payment payment = Payment.builder()
-                .order(order)
-                .stripePaymentIntentId(paymentIntent.getId())
-                .amount(order.getTotalAmount())
-                .currency("usd")
-                .status(Payment.PaymentStatus.PENDING)
-                .build();
+    /**
+     * Applies provider outcomes found by reconciliation for one chunk of payments in a single transaction, so a
+     * chunk is settled completely or, after a conflict, retried as a whole. Returns the confirmation outcome of the
+     * succeeded intents.
+     */
+    public PaymentConfirmationResponse applyReconciledOutcomes(Collection<String> succeededIntentIds,
+                                                               Collection<String> failedIntentIds) {
+        List<String> intentIds = new ArrayList<>(new LinkedHashSet<>(succeededIntentIds));
+        return optimisticRetryService.execute("reconciliation of " + (intentIds.size() + failedIntentIds.size())
+                + " payments", () -> {
+            PaymentConfirmationResponse response = PaymentConfirmationResponse.builder()
+                    .requested(intentIds.size())
+                    .confirmed(new ArrayList<>())
+                    .alreadyConfirmed(new ArrayList<>())
+                    .rejected(new ArrayList<>())
+                    .build();
+            for (int from = 0; from < intentIds.size(); from += CONFIRMATION_CHUNK_SIZE) {
+                PaymentConfirmationResponse result = applyConfirmations(
+                        intentIds.subList(from, Math.min(from + CONFIRMATION_CHUNK_SIZE, intentIds.size())));
+                response.getConfirmed().addAll(result.getConfirmed());
+                response.getAlreadyConfirmed().addAll(result.getAlreadyConfirmed());
+                response.getRejected().addAll(result.getRejected());
+            }
+            failedIntentIds.forEach(this::applyFailure);
+            return response;
+        });
+    }
 
-        paymentRepository.save(payment);
-        log.info("Payment intent created: {} for order: {} amount: ${}", paymentIntent.getId(), orderId, order.getTotalAmount());
+    private PaymentConfirmationResponse applyConfirmations(List<String> intentIds) {
+        log.info("Confirming {} payments", intentIds.size());
+        Map<String, Object[]> rows = new HashMap<>();
+        for (Object[] row : paymentRepository.findWithOrderByIntentIdIn(intentIds)) {
+            rows.put((String) row[1], row);
+        }
 
-        return PaymentIntentResponse.builder()
-                .clientSecret(paymentIntent.getClientSecret())
-                .paymentIntentId(paymentIntent.getId())
-                .amount(amountInCents)
-                .currency("usd")
+        List<String> confirmed = new ArrayList<>();
+        List<String> alreadyConfirmed = new ArrayList<>();
+        List<PaymentConfirmationResponse.Rejected> rejected = new ArrayList<>();
+        List<Object[]> toComplete = new ArrayList<>();
+        Map<Long, BigDecimal> pendingOrders = new LinkedHashMap<>();
+        for (String intentId : intentIds) {
+            Object[] row = rows.get(intentId);
+            if (row == null) {
+                log.error("Payment not found for intent: {}", intentId);
+                // The intent may not be attached to its payment yet
+                rejected.add(rejection(intentId, "Payment not found for intent: " + intentId, true));
+                continue;
+            }
+            Long orderId = (Long) row[5];
+            Order.OrderStatus orderStatus = (Order.OrderStatus) row[6];
+            if (orderStatus != Order.OrderStatus.PENDING && !orderStatus.isPaid()) {
+                log.error("Payment received for {} order: {}", orderStatus, orderId);
+                rejected.add(rejection(intentId, "Order has been cancelled: " + orderId, false));
+                continue;
+            }
+            if (row[2] == Payment.PaymentStatus.SUCCEEDED) {
+                alreadyConfirmed.add(intentId);
+            } else {
+                toComplete.add(row);
+                confirmed.add(intentId);
+            }
+            if (orderStatus == Order.OrderStatus.PENDING) {
+                pendingOrders.put(orderId, (BigDecimal) row[7]);
+            }
+        }
+
+        if (!toComplete.isEmpty()) {
+            List<Long> paymentIds = toComplete.stream().map(row -> (Long) row[0]).toList();
+            int updated = paymentRepository.complete(paymentIds, Payment.PaymentStatus.SUCCEEDED, LocalDateTime.now());
+            if (updated != paymentIds.size()) {
+                throw new OptimisticLockingFailureException("Confirmed " + updated + " of " + paymentIds.size()
+                        + " payments, some changed concurrently");
+            }
+            for (Object[] row : toComplete) {
+                recordPaymentEvent((Long) row[0], (Long) row[5], (String) row[1], (BigDecimal) row[3],
+                        (String) row[4], Payment.PaymentStatus.SUCCEEDED, OutboxService.PAYMENT_SUCCEEDED);
+            }
+        }
+        orderService.markPendingOrdersAsPaid(pendingOrders);
+        log.info("Confirmed {} payments ({} already confirmed, {} rejected), {} orders marked paid",
+                confirmed.size(), alreadyConfirmed.size(), rejected.size(), pendingOrders.size());
+        return PaymentConfirmationResponse.builder()
+                .confirmed(confirmed)
+                .alreadyConfirmed(alreadyConfirmed)
+                .rejected(rejected)
                 .build();
     }
 
-    @Transactional
-    public void confirmPayment(String paymentIntentId) {
-        log.info("Confirming payment for intent: {}", paymentIntentId);
-        Payment payment = paymentRepository.findByStripePaymentIntentId(paymentIntentId)
-                .orElseThrow(() -> {
-                    log.error("Payment not found for intent: {}", paymentIntentId);
-                    return new RuntimeException("Payment not found for intent: " + paymentIntentId);
-                });
-
-        payment.setStatus(Payment.PaymentStatus.SUCCEEDED);
-        payment.setCompletedAt(LocalDateTime.now());
-        paymentRepository.save(payment);
-        log.info("Payment confirmed for order: {}", payment.getOrder().getId());
-
-        orderService.markOrderAsPaid(payment.getOrder().getId());
+    private static PaymentConfirmationResponse.Rejected rejection(String intentId, String reason, boolean retryable) {
+        return PaymentConfirmationResponse.Rejected.builder()
+                .paymentIntentId(intentId)
+                .reason(reason)
+                .retryable(retryable)
+                .build();
     }
 
-    @Transactional
-    public void failPayment(String paymentIntentId) {
+    private void applyFailure(String paymentIntentId) {
         log.warn("Failing payment for intent: {}", paymentIntentId);
         Payment payment = paymentRepository.findByStripePaymentIntentId(paymentIntentId)
                 .orElseThrow(() -> {
@@ -108,8 +237,152 @@ public class PaymentService {
                     return new RuntimeException("Payment not found for intent: " + paymentIntentId);
                 });
 
+        if (payment.getStatus() == Payment.PaymentStatus.SUCCEEDED) {
+            log.warn("Ignoring failure for already succeeded payment: {}", paymentIntentId);
+            return;
+        }
         payment.setStatus(Payment.PaymentStatus.FAILED);
         paymentRepository.save(payment);
+        recordPaymentEvent(payment, OutboxService.PAYMENT_FAILED);
         log.warn("Payment failed for order: {}", payment.getOrder().getId());
     }
+
+    private Reservation reservePayment(Long orderId) {
+        Order order = orderService.getOrderEntity(orderId);
+        if (order.getStatus() == Order.OrderStatus.CANCELLED) {
+            log.warn("Attempted to pay for cancelled order: {}", orderId);
+            throw new RuntimeException("Order has been cancelled");
+        }
+
+        long amountInCents = order.getTotalAmount()
+                .multiply(BigDecimal.valueOf(100))
+                .longValue();
+        LocalDateTime now = LocalDateTime.now();
+        Payment payment = paymentRepository.findByOrderId(orderId).orElse(null);
+        if (payment != null && payment.getStatus() == Payment.PaymentStatus.SUCCEEDED) {
+            log.warn("Attempted to pay for already paid order: {}", orderId);
+            throw new RuntimeException("Order has already been paid");
+        }
+        boolean open = payment != null && payment.getStatus() == Payment.PaymentStatus.PENDING
+                && payment.getStripePaymentIntentId() != null && payment.getClientSecret() != null;
+        if (open && payment.getAmount().compareTo(order.getTotalAmount()) == 0) {
+            return Reservation.reuse(new OpenIntent(payment.getStripePaymentIntentId(), payment.getClientSecret(),
+                    amountInCents));
+        }
+        if (payment != null && payment.getStatus() == Payment.PaymentStatus.CREATING
+                && payment.getReservedAt().isAfter(now.minusNanos(reservationTimeoutMs * 1_000_000))) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "A payment is already being created for order " + orderId);
+        }
+        String intentToUpdate = open ? payment.getStripePaymentIntentId() : null;
+        if (payment == null) {
+            payment = Payment.builder().order(order).build();
+        } else if (payment.getStatus() == Payment.PaymentStatus.CREATING) {
+            log.warn("Taking over abandoned payment reservation {} for order: {}", payment.getId(), orderId);
+        }
+        String idempotencyKey;
+        if (intentToUpdate != null) {
+            // Same intent and amount, so replaying an update is harmless
+            idempotencyKey = "intent-" + intentToUpdate + "-amount-" + amountInCents;
+        } else {
+            if (payment.getIntentRequestKey() == null) {
+                payment.setIntentRequestKey("order-" + orderId + "-intent-" + UUID.randomUUID());
+            }
+            idempotencyKey = payment.getIntentRequestKey();
+        }
+        payment.setStatus(Payment.PaymentStatus.CREATING);
+        payment.setAmount(order.getTotalAmount());
+        payment.setCurrency(CURRENCY);
+        payment.setReservedAt(now);
+
+        try {
+            payment = paymentRepository.saveAndFlush(payment);
+        } catch (DataIntegrityViolationException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "A payment is already being created for order " + orderId);
+        }
+        return new Reservation(payment.getId(), payment.getVersion(), order.getTotalAmount(), amountInCents,
+                idempotencyKey, intentToUpdate, null);
+    }
+
+    private void attachIntent(Reservation reservation, PaymentGateway.CreatedIntent intent) {
+        Payment payment = findReservedPayment(reservation);
+        payment.setStripePaymentIntentId(intent.id());
+        payment.setClientSecret(intent.clientSecret());
+        payment.setStatus(Payment.PaymentStatus.PENDING);
+        payment.setIntentRequestKey(null);
+        paymentRepository.save(payment);
+    }
+
+    private void releaseReservation(Reservation reservation, boolean refused) {
+        Payment payment = paymentRepository.findById(reservation.paymentId()).orElse(null);
+        if (payment != null && payment.getStatus() == Payment.PaymentStatus.CREATING
+                && payment.getVersion().equals(reservation.version())) {
+            payment.setStatus(Payment.PaymentStatus.FAILED);
+            if (refused) {
+                payment.setIntentRequestKey(null);
+            }
+            paymentRepository.save(payment);
+        }
+    }
+
+    private void cancelIfPaymentCancelled(Reservation reservation, PaymentGateway.CreatedIntent intent) {
+        // The order was cancelled while the provider was called, so the intent was never attached and nobody else
+        // will cancel it
+        paymentRepository.findById(reservation.paymentId())
+                .filter(payment -> payment.getStatus() == Payment.PaymentStatus.CANCELLED)
+                .ifPresent(payment -> paymentIntentCanceller.cancel(List.of(intent.id())));
+    }
+
+    private Payment findReservedPayment(Reservation reservation) {
+        Payment payment = paymentRepository.findById(reservation.paymentId())
+                .orElseThrow(() -> new RuntimeException("Payment not found: " + reservation.paymentId()));
+        if (payment.getStatus() == Payment.PaymentStatus.CANCELLED) {
+            log.warn("Order of payment {} was cancelled while its intent was being created", payment.getId());
+            throw new RuntimeException("Order has been cancelled");
+        }
+        if (payment.getStatus() != Payment.PaymentStatus.CREATING
+                || !payment.getVersion().equals(reservation.version())) {
+            log.warn("Payment reservation {} was taken over while its intent was being created", payment.getId());
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "The payment for this order was changed concurrently, please retry");
+        }
+        return payment;
+    }
+
+    private void recordPaymentEvent(Payment payment, String eventType) {
+        recordPaymentEvent(payment.getId(), payment.getOrder().getId(), payment.getStripePaymentIntentId(),
+                payment.getAmount(), payment.getCurrency(), payment.getStatus(), eventType);
+    }
+
+    private void recordPaymentEvent(Long paymentId, Long orderId, String intentId, BigDecimal amount, String currency,
+                                    Payment.PaymentStatus status, String eventType) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("paymentId", paymentId);
+        payload.put("orderId", orderId);
+        payload.put("paymentIntentId", intentId);
+        payload.put("amount", amount);
+        payload.put("currency", currency);
+        payload.put("status", status.name());
+        outboxService.record(OutboxEvent.AGGREGATE_PAYMENT, paymentId, eventType, payload);
+    }
+
+    private PaymentIntentResponse toResponse(OpenIntent intent) {
+        return PaymentIntentResponse.builder()
+                .clientSecret(intent.clientSecret())
+                .paymentIntentId(intent.id())
+                .amount(intent.amountInCents())
+                .currency(CURRENCY)
+                .build();
+    }
+
+    private record OpenIntent(String id, String clientSecret, long amountInCents) {
+    }
+
+    private record Reservation(Long paymentId, Long version, BigDecimal amount, long amountInCents,
+                               String idempotencyKey, String intentToUpdate, OpenIntent openIntent) {
+        private static Reservation reuse(OpenIntent openIntent) {
+            return new Reservation(null, null, null, openIntent.amountInCents(), null, null, openIntent);
+        }
+    }
 }
@@ -0,0 +1,247 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.PaymentConfirmationResponse;
+import com.ecommerce.model.WebhookEvent;
+import com.ecommerce.repository.WebhookEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Applies stored payment webhook events in batches from a background poller, confirming all succeeded payments of
+ * a batch with one bulk confirmation. Batches are claimed with a lease like the outbox, so several instances can
+ * process side by side, and results are only written back while the batch's claim is still held. Events that fail,
+ * for example because the webhook overtook the request that attaches the intent to its payment, back off
+ * exponentially and are parked as FAILED after the configured number of attempts; events that can never succeed,
+ * such as a payment for a cancelled order, are parked as FAILED right away. A poll works off at most a bounded number
+ * of batches within a time budget, so a backlog never keeps a scheduler thread busy for long.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentWebhookProcessor {
+
+    public static final String PAYMENT_INTENT_SUCCEEDED = "payment_intent.succeeded";
+    public static final String PAYMENT_INTENT_FAILED = "payment_intent.payment_failed";
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final List<WebhookEvent.Status> FINISHED_STATUSES =
+            List.of(WebhookEvent.Status.PROCESSED, WebhookEvent.Status.IGNORED);
+
+    private final WebhookEventRepository webhookEventRepository;
+    private final PaymentService paymentService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${payments.webhook.batch-size:100}")
+    private int batchSize;
+
+    @Value("${payments.webhook.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Value("${payments.webhook.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${payments.webhook.backoff-initial-ms:1000}")
+    private long backoffInitialMs;
+
+    @Value("${payments.webhook.backoff-max-ms:300000}")
+    private long backoffMaxMs;
+
+    @Value("${payments.webhook.retention-hours:168}")
+    private long retentionHours;
+
+    @Value("${payments.webhook.max-batches-per-poll:10}")
+    private int maxBatchesPerPoll;
+
+    @Value("${payments.webhook.max-poll-ms:5000}")
+    private long maxPollMs;
+
+    @Scheduled(fixedDelayString = "${payments.webhook.poll-interval-ms:500}")
+    public void processPending() {
+        long deadline = System.currentTimeMillis() + maxPollMs;
+        int batches = 0;
+        int claimed;
+        do {
+            claimed = processBatch();
+            batches++;
+        } while (claimed == batchSize && batches < maxBatchesPerPoll && System.currentTimeMillis() < deadline);
+    }
+
+    @Scheduled(fixedDelayString = "${payments.webhook.cleanup-interval-ms:3600000}")
+    public void deleteProcessedEvents() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(retentionHours);
+        int deleted = 0;
+        List<Long> ids;
+        do {
+            ids = webhookEventRepository.findProcessedIdsBefore(FINISHED_STATUSES, cutoff, Limit.of(batchSize * 10));
+            if (!ids.isEmpty()) {
+                List<Long> batch = ids;
+                Integer count = transactionTemplate.execute(status -> webhookEventRepository.deleteByIdIn(batch));
+                deleted += count != null ? count : 0;
+            }
+        } while (ids.size() == batchSize * 10);
+        if (deleted > 0) {
+            log.info("Deleted {} processed webhook events older than {}", deleted, cutoff);
+        }
+    }
+
+    public Map<String, Long> getStatusCounts() {
+        Map<WebhookEvent.Status, Long> counts = new EnumMap<>(WebhookEvent.Status.class);
+        for (Object[] row : webhookEventRepository.countByStatus()) {
+            counts.put((WebhookEvent.Status) row[0], ((Number) row[1]).longValue());
+        }
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (WebhookEvent.Status status : WebhookEvent.Status.values()) {
+            result.put(status.name(), counts.getOrDefault(status, 0L));
+        }
+        return result;
+    }
+
+    public int retryFailedEvents() {
+        Integer requeued = transactionTemplate.execute(status -> webhookEventRepository.requeue(
+                WebhookEvent.Status.FAILED, WebhookEvent.Status.RECEIVED, LocalDateTime.now()));
+        log.info("Requeued {} failed webhook events", requeued);
+        return requeued != null ? requeued : 0;
+    }
+
+    private int processBatch() {
+        String token = UUID.randomUUID().toString();
+        List<WebhookEvent> events = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> ids = webhookEventRepository.findDueIds(WebhookEvent.Status.RECEIVED, now,
+                    Limit.of(batchSize));
+            if (ids.isEmpty()) {
+                return List.<WebhookEvent>of();
+            }
+            webhookEventRepository.claim(ids, WebhookEvent.Status.RECEIVED, token, now, now.plusSeconds(leaseSeconds));
+            return webhookEventRepository.findByClaimedByOrderById(token);
+        });
+        if (events == null || events.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> processed = new ArrayList<>();
+        List<Long> ignored = new ArrayList<>();
+        List<WebhookEvent> failed = new ArrayList<>();
+        Map<String, List<WebhookEvent>> succeededByIntent = new LinkedHashMap<>();
+        // Providers send several events with different ids for the same outcome; apply each outcome once per batch
+        Set<String> appliedFailures = new HashSet<>();
+        for (WebhookEvent event : events) {
+            if (!isHandled(event)) {
+                log.debug("Ignoring webhook event {} of type {}", event.getEventId(), event.getEventType());
+                ignored.add(event.getId());
+            } else if (PAYMENT_INTENT_SUCCEEDED.equals(event.getEventType())) {
+                succeededByIntent.computeIfAbsent(event.getObjectId(), id -> new ArrayList<>()).add(event);
+            } else if (appliedFailures.contains(event.getObjectId()) || applyFailure(event)) {
+                appliedFailures.add(event.getObjectId());
+                processed.add(event.getId());
+            } else {
+                failed.add(event);
+            }
+        }
+        confirmSucceeded(succeededByIntent, processed, failed);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (!processed.isEmpty()) {
+                webhookEventRepository.markProcessed(processed, WebhookEvent.Status.PROCESSED, token, now);
+            }
+            if (!ignored.isEmpty()) {
+                webhookEventRepository.markProcessed(ignored, WebhookEvent.Status.IGNORED, token, now);
+            }
+            for (WebhookEvent event : failed) {
+                int updated = webhookEventRepository.recordFailure(event.getId(), token, event.getStatus(),
+                        event.getAttempts(), event.getNextAttemptAt(), event.getLastError());
+                if (updated == 0) {
+                    log.warn("Lost the claim on webhook event {}, not recording its failed attempt",
+                            event.getEventId());
+                }
+            }
+        });
+        if (!failed.isEmpty()) {
+            log.warn("Processed {} of {} webhook events", processed.size() + ignored.size(), events.size());
+        } else {
+            log.debug("Processed {} webhook events", events.size());
+        }
+        return events.size();
+    }
+
+    private boolean isHandled(WebhookEvent event) {
+        return event.getObjectId() != null && (PAYMENT_INTENT_SUCCEEDED.equals(event.getEventType())
+                || PAYMENT_INTENT_FAILED.equals(event.getEventType()));
+    }
+
+    private void confirmSucceeded(Map<String, List<WebhookEvent>> eventsByIntent, List<Long> processed,
+                                  List<WebhookEvent> failed) {
+        if (eventsByIntent.isEmpty()) {
+            return;
+        }
+        PaymentConfirmationResponse response;
+        try {
+            response = paymentService.confirmPayments(eventsByIntent.keySet());
+        } catch (RuntimeException e) {
+            eventsByIntent.values().forEach(intentEvents -> intentEvents.forEach(event -> {
+                scheduleRetry(event, e, true);
+                failed.add(event);
+            }));
+            return;
+        }
+        Map<String, PaymentConfirmationResponse.Rejected> rejections = new HashMap<>();
+        response.getRejected().forEach(rejected -> rejections.put(rejected.getPaymentIntentId(), rejected));
+        eventsByIntent.forEach((intentId, intentEvents) -> intentEvents.forEach(event -> {
+            PaymentConfirmationResponse.Rejected rejected = rejections.get(intentId);
+            if (rejected == null) {
+                processed.add(event.getId());
+            } else {
+                scheduleRetry(event, new RuntimeException(rejected.getReason()), rejected.isRetryable());
+                failed.add(event);
+            }
+        }));
+    }
+
+    private boolean applyFailure(WebhookEvent event) {
+        try {
+            paymentService.failPayment(event.getObjectId());
+            return true;
+        } catch (RuntimeException e) {
+            scheduleRetry(event, e, true);
+            return false;
+        }
+    }
+
+    private void scheduleRetry(WebhookEvent event, RuntimeException e, boolean retryable) {
+        LocalDateTime now = LocalDateTime.now();
+        event.setAttempts(event.getAttempts() + 1);
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        event.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+        if (!retryable) {
+            event.setStatus(WebhookEvent.Status.FAILED);
+            log.error("Webhook event {} ({}) was rejected and will not be retried: {}", event.getEventId(),
+                    event.getEventType(), error);
+        } else if (event.getAttempts() >= maxAttempts) {
+            event.setStatus(WebhookEvent.Status.FAILED);
+            log.error("Webhook event {} ({}) failed after {} attempts: {}", event.getEventId(),
+                    event.getEventType(), event.getAttempts(), error);
+        } else {
+            long delayMs = Math.min(backoffMaxMs, backoffInitialMs << Math.min(event.getAttempts() - 1, 20));
+            event.setNextAttemptAt(now.plusNanos(delayMs * 1_000_000));
+            log.warn("Webhook event {} ({}) attempt {} failed, retrying in {} ms: {}", event.getEventId(),
+                    event.getEventType(), event.getAttempts(), delayMs, error);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.WebhookEvent;
+import com.ecommerce.repository.WebhookEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.net.Webhook;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+
+/**
+ * Accepts payment provider webhooks. The signature is checked and the raw event is stored with a single insert,
+ * so the provider gets its acknowledgement right away; {@link PaymentWebhookProcessor} applies the events later.
+ * The event id is unique, so redelivered events are acknowledged without being stored twice.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentWebhookService {
+
+    private final WebhookEventRepository webhookEventRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${payments.webhook.secret}")
+    private String secret;
+
+    @Value("${payments.webhook.tolerance-seconds:300}")
+    private long toleranceSeconds;
+
+    @PostConstruct
+    public void checkSecret() {
+        // An empty STRIPE_WEBHOOK_SECRET would otherwise only show up as every webhook being rejected
+        if (secret.isBlank()) {
+            throw new IllegalStateException("payments.webhook.secret is empty, set STRIPE_WEBHOOK_SECRET");
+        }
+    }
+
+    public boolean receive(String payload, String signature) {
+        if (signature == null || signature.isBlank()) {
+            log.warn("Rejected webhook without signature");
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing webhook signature");
+        }
+        try {
+            Webhook.Signature.verifyHeader(payload, signature, secret, toleranceSeconds);
+        } catch (SignatureVerificationException e) {
+            log.warn("Rejected webhook with invalid signature: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid webhook signature");
+        }
+
+        JsonNode event;
+        try {
+            event = objectMapper.readTree(payload);
+        } catch (JsonProcessingException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed webhook payload");
+        }
+        String eventId = event.path("id").asText(null);
+        String eventType = event.path("type").asText(null);
+        if (eventId == null || eventType == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Webhook event id and type are required");
+        }
+        if (webhookEventRepository.existsByEventId(eventId)) {
+            log.info("Acknowledging duplicate webhook event {} ({})", eventId, eventType);
+            return false;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        WebhookEvent webhookEvent = WebhookEvent.builder()
+                .eventId(eventId)
+                .eventType(eventType)
+                .objectId(event.path("data").path("object").path("id").asText(null))
+                .payload(payload)
+                .status(WebhookEvent.Status.RECEIVED)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .receivedAt(now)
+                .build();
+        try {
+            transactionTemplate.executeWithoutResult(status -> webhookEventRepository.save(webhookEvent));
+        } catch (DataIntegrityViolationException e) {
+            // The same event was delivered concurrently and the other request stored it first
+            log.info("Acknowledging concurrently delivered webhook event {} ({})", eventId, eventType);
+            return false;
+        }
+        log.info("Stored webhook event {} ({}) for {}", eventId, eventType, webhookEvent.getObjectId());
+        return true;
+    }
+}
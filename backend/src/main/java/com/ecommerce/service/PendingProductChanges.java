@@ -0,0 +1,58 @@
+package com.ecommerce.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects product changes between refreshes of an in-memory view. The version is bumped after the
+ * ids are recorded, so a reader that sees a new version is guaranteed to drain the matching ids.
+ */
+class PendingProductChanges {
+
+    private final Set<Long> productIds = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean fullRefresh = new AtomicBoolean(true);
+    private final AtomicLong version = new AtomicLong();
+
+    void record(ProductsChangedEvent event) {
+        if (event.isAllProducts()) {
+            fullRefresh.set(true);
+        } else {
+            productIds.addAll(event.getProductIds());
+        }
+        version.incrementAndGet();
+    }
+
+    void requestFullRefresh() {
+        fullRefresh.set(true);
+        version.incrementAndGet();
+    }
+
+    long getVersion() {
+        return version.get();
+    }
+
+    Drained drain() {
+        boolean full = fullRefresh.getAndSet(false);
+        List<Long> ids = new ArrayList<>();
+        for (Iterator<Long> it = productIds.iterator(); it.hasNext(); ) {
+            ids.add(it.next());
+            it.remove();
+        }
+        return new Drained(full, ids);
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    static class Drained {
+        private final boolean fullRefresh;
+        private final List<Long> productIds;
+    }
+}
@@ -0,0 +1,216 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-facet bitsets over the active catalog, keyed by product id. Filtered listings and facet counts are
+ * answered by intersecting bitsets instead of GROUP BY queries.
+ */
+@Component
+@Slf4j
+public class ProductFacetIndex extends IncrementalProductIndex {
+
+    public static final String IN_STOCK = "inStock";
+    public static final String OUT_OF_STOCK = "outOfStock";
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<BigDecimal> priceBoundaries;
+
+    private Facets facets;
+
+    public ProductFacetIndex(ProductRepository productRepository,
+                             @Value("${catalog.facets.price-boundaries:25,50,100,250,500}") List<BigDecimal> priceBoundaries) {
+        super(productRepository);
+        this.priceBoundaries = priceBoundaries.stream().sorted().toList();
+        this.facets = new Facets(this.priceBoundaries);
+    }
+
+    public FacetResult query(String category, String priceRange, String availability, long afterId, int limit) {
+        if (afterId < 0) {
+            throw new IllegalArgumentException("afterId must not be negative");
+        }
+        awaitInitialBuild();
+        lock.readLock().lock();
+        try {
+            Facets current = facets;
+            BitSet categoryFilter = filter(current.byCategory, category);
+            BitSet priceFilter = filter(current.byPriceRange, priceRange);
+            BitSet availabilityFilter = filter(current.byAvailability, availability);
+
+            BitSet matches = current.intersect(categoryFilter, priceFilter, availabilityFilter);
+            List<Long> productIds = new ArrayList<>(limit);
+            int id = afterId >= Integer.MAX_VALUE ? -1 : matches.nextSetBit((int) afterId + 1);
+            for (; id >= 0 && productIds.size() < limit; id = matches.nextSetBit(id + 1)) {
+                productIds.add((long) id);
+            }
+            Long nextAfterId = id >= 0 ? productIds.get(productIds.size() - 1) : null;
+
+            // Each facet is counted against the other facets' filters, so the counts show what selecting it would yield
+            return new FacetResult(
+                    productIds,
+                    nextAfterId,
+                    matches.cardinality(),
+                    counts(current.byCategory, current.intersect(null, priceFilter, availabilityFilter)),
+                    counts(current.byPriceRange, current.intersect(categoryFilter, null, availabilityFilter)),
+                    counts(current.byAvailability, current.intersect(categoryFilter, priceFilter, null)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected void rebuild() {
+        // Scan into fresh bitsets without the lock and only hold it for the swap, so queries keep running
+        Facets fresh = new Facets(priceBoundaries);
+        forEachActiveProduct(product -> fresh.update(product.getId(), facetValues(product)));
+        lock.writeLock().lock();
+        try {
+            facets = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Facet index rebuilt with {} active products in {} categories",
+                fresh.active.cardinality(), fresh.byCategory.size());
+    }
+
+    @Override
+    protected void update(Map<Long, Product> changes) {
+        Map<Long, FacetValues> values = new HashMap<>();
+        changes.forEach((productId, product) -> values.put(productId, facetValues(product)));
+        lock.writeLock().lock();
+        try {
+            values.forEach(facets::update);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private FacetValues facetValues(Product product) {
+        if (product == null || !Boolean.TRUE.equals(product.getActive())) {
+            return null;
+        }
+        return new FacetValues(product.getCategory(), priceRange(product.getPrice()),
+                product.getStockQuantity() > 0 ? IN_STOCK : OUT_OF_STOCK);
+    }
+
+    private String priceRange(BigDecimal price) {
+        BigDecimal lower = BigDecimal.ZERO;
+        for (BigDecimal boundary : priceBoundaries) {
+            if (price.compareTo(boundary) < 0) {
+                return lower.toPlainString() + "-" + boundary.toPlainString();
+            }
+            lower = boundary;
+        }
+        return lower.toPlainString() + "+";
+    }
+
+    private static BitSet filter(Map<String, BitSet> facet, String value) {
+        if (value == null) {
+            return null;
+        }
+        return facet.getOrDefault(value, new BitSet());
+    }
+
+    private static Map<String, Long> counts(Map<String, BitSet> facet, BitSet scope) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        facet.forEach((value, bits) -> {
+            BitSet matching = (BitSet) bits.clone();
+            matching.and(scope);
+            counts.put(value, (long) matching.cardinality());
+        });
+        return counts;
+    }
+
+    /**
+     * One generation of the bitsets. Rebuilds fill a new instance off to the side; incremental updates mutate
+     * the published one under the write lock.
+     */
+    private static class Facets {
+
+        private final BitSet active = new BitSet();
+        private final Map<String, BitSet> byCategory = new TreeMap<>();
+        private final Map<String, BitSet> byPriceRange = new LinkedHashMap<>();
+        private final Map<String, BitSet> byAvailability = new LinkedHashMap<>();
+        private final Map<Integer, FacetValues> indexed = new HashMap<>();
+
+        Facets(List<BigDecimal> priceBoundaries) {
+            BigDecimal lower = BigDecimal.ZERO;
+            for (BigDecimal boundary : priceBoundaries) {
+                byPriceRange.put(lower.toPlainString() + "-" + boundary.toPlainString(), new BitSet());
+                lower = boundary;
+            }
+            byPriceRange.put(lower.toPlainString() + "+", new BitSet());
+            byAvailability.put(IN_STOCK, new BitSet());
+            byAvailability.put(OUT_OF_STOCK, new BitSet());
+        }
+
+        void update(Long productId, FacetValues values) {
+            // Bits are product ids; a larger id cannot be represented and must not silently drop out of listings
+            if (productId > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Product id " + productId + " exceeds the facet index range");
+            }
+            int bit = productId.intValue();
+            FacetValues previous = values == null ? indexed.remove(bit) : indexed.put(bit, values);
+            if (previous != null) {
+                active.clear(bit);
+                clear(byCategory, previous.category(), bit);
+                clear(byPriceRange, previous.priceRange(), bit);
+                clear(byAvailability, previous.availability(), bit);
+            }
+            if (values != null) {
+                active.set(bit);
+                byCategory.computeIfAbsent(values.category(), c -> new BitSet()).set(bit);
+                byPriceRange.get(values.priceRange()).set(bit);
+                byAvailability.get(values.availability()).set(bit);
+            }
+        }
+
+        BitSet intersect(BitSet... filters) {
+            BitSet result = (BitSet) active.clone();
+            for (BitSet filter : filters) {
+                if (filter != null) {
+                    result.and(filter);
+                }
+            }
+            return result;
+        }
+
+        private static void clear(Map<String, BitSet> facet, String value, int bit) {
+            BitSet bits = facet.get(value);
+            if (bits != null) {
+                bits.clear(bit);
+            }
+        }
+    }
+
+    private record FacetValues(String category, String priceRange, String availability) {
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class FacetResult {
+        private final List<Long> productIds;
+        private final Long nextAfterId;
+        private final long total;
+        private final Map<String, Long> categoryCounts;
+        private final Map<String, Long> priceRangeCounts;
+        private final Map<String, Long> availabilityCounts;
+    }
+}
@@ -0,0 +1,307 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ProductImportResponse;
+import com.ecommerce.dto.ProductImportRow;
+import com.ecommerce.repository.ProductJdbcRepository;
+import com.ecommerce.repository.ProductJdbcRepository.StockMode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductImportService {
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private static final int MAX_REPORTED_ERRORS = 1_000;
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+
+    private final ProductJdbcRepository productJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${catalog.import.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * @param stockMode how rows for existing SKUs treat stock; new SKUs always take the row's stockQuantity
+     */
+    public ProductImportResponse importProducts(InputStream body, String format, StockMode stockMode) {
+        log.info("Starting product import, format: {}, stock: {}", format, stockMode);
+        if (!FORMAT_CSV.equals(format) && !FORMAT_NDJSON.equals(format)) {
+            throw new RuntimeException("Unsupported import format: " + format);
+        }
+
+        ImportRun run = new ImportRun();
+        long start = System.currentTimeMillis();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            Map<String, Integer> csvColumns = null;
+            // Keyed by SKU so a SKU repeated within one batch is written once, last row wins
+            Map<String, PendingRow> batch = new LinkedHashMap<>();
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (FORMAT_CSV.equals(format) && csvColumns == null) {
+                    csvColumns = parseCsvHeader(line);
+                    continue;
+                }
+                run.processed++;
+                try {
+                    ProductImportRow row = FORMAT_CSV.equals(format)
+                            ? parseCsvRow(line, csvColumns)
+                            : objectMapper.readValue(line, ProductImportRow.class);
+                    validate(row);
+                    if (batch.put(row.getSku(), new PendingRow(lineNumber, row)) != null) {
+                        run.duplicates++;
+                    }
+                } catch (Exception e) {
+                    run.reject(lineNumber, null, e.getMessage());
+                }
+                if (batch.size() >= batchSize) {
+                    writeBatch(batch, stockMode, run);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch, stockMode, run);
+            }
+        } catch (IOException e) {
+            log.error("Product import aborted while reading input: {}", e.getMessage());
+            throw new UncheckedIOException(e);
+        } finally {
+            if (run.inserted + run.updated > 0) {
+                eventPublisher.publishEvent(ProductsChangedEvent.allProducts());
+            }
+        }
+
+        long durationMs = Math.max(1, System.currentTimeMillis() - start);
+        log.info("Product import finished: {} processed, {} inserted, {} updated, {} unchanged, {} duplicates, {} failed in {} ms",
+                run.processed, run.inserted, run.updated, run.unchanged, run.duplicates, run.failed, durationMs);
+
+        return ProductImportResponse.builder()
+                .processed(run.processed)
+                .inserted(run.inserted)
+                .updated(run.updated)
+                .unchanged(run.unchanged)
+                .duplicates(run.duplicates)
+                .failed(run.failed)
+                .errors(run.errors)
+                .errorsTruncated(run.failed > run.errors.size())
+                .durationMs(durationMs)
+                .rowsPerSecond(run.processed * 1000 / durationMs)
+                .build();
+    }
+
+    private void writeBatch(Map<String, PendingRow> batch, StockMode stockMode, ImportRun run) {
+        List<PendingRow> rows = new ArrayList<>(batch.values());
+        try {
+            run.add(transactionTemplate.execute(status -> upsert(rows, stockMode)));
+        } catch (DataAccessException e) {
+            log.warn("Batch of {} rows failed ({}), retrying row by row", rows.size(), e.getMostSpecificCause().getMessage());
+            for (PendingRow row : rows) {
+                try {
+                    run.add(transactionTemplate.execute(status -> upsert(List.of(row), stockMode)));
+                } catch (DataAccessException rowError) {
+                    run.reject(row.lineNumber(), row.row().getSku(), rowError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return inserted, updated and unchanged counts; rows identical to the stored product are not written
+     */
+    private long[] upsert(List<PendingRow> rows, StockMode stockMode) {
+        Map<String, ProductImportRow> existing = productJdbcRepository.findImportRowsBySku(
+                rows.stream().map(row -> row.row().getSku()).toList());
+        List<ProductImportRow> updates = new ArrayList<>();
+        List<ProductImportRow> inserts = new ArrayList<>();
+        long unchanged = 0;
+        for (PendingRow pending : rows) {
+            ProductImportRow row = pending.row();
+            ProductImportRow stored = existing.get(row.getSku());
+            if (stored == null) {
+                inserts.add(row);
+            } else if (isUnchanged(stored, row, stockMode)) {
+                unchanged++;
+            } else {
+                updates.add(row);
+            }
+        }
+        if (!updates.isEmpty()) {
+            productJdbcRepository.updateBySku(updates, stockMode);
+        }
+        if (!inserts.isEmpty()) {
+            productJdbcRepository.insert(inserts);
+        }
+        return new long[]{inserts.size(), updates.size(), unchanged};
+    }
+
+    private static boolean isUnchanged(ProductImportRow stored, ProductImportRow row, StockMode stockMode) {
+        boolean stockUnchanged = switch (stockMode) {
+            case KEEP -> true;
+            case ADD -> row.getStockQuantity() == 0;
+            case SET -> stored.getStockQuantity().equals(row.getStockQuantity());
+        };
+        return stockUnchanged
+                && stored.getName().equals(row.getName())
+                && Objects.equals(stored.getDescription(), row.getDescription())
+                && stored.getPrice().compareTo(row.getPrice()) == 0
+                && Objects.equals(stored.getImageUrl(), row.getImageUrl())
+                && stored.getCategory().equals(row.getCategory())
+                && stored.getActive().equals(row.getActive());
+    }
+
+    private static void validate(ProductImportRow row) {
+        if (row.getSku() == null || row.getSku().isBlank() || row.getSku().length() > 64) {
+            throw new IllegalArgumentException("sku is required and must be at most 64 characters");
+        }
+        if (row.getName() == null || row.getName().isBlank() || row.getName().length() > 255) {
+            throw new IllegalArgumentException("name is required and must be at most 255 characters");
+        }
+        if (row.getDescription() != null && row.getDescription().length() > 2000) {
+            throw new IllegalArgumentException("description must be at most 2000 characters");
+        }
+        if (row.getPrice() == null || row.getPrice().signum() < 0 || row.getPrice().scale() > 2
+                || row.getPrice().compareTo(MAX_PRICE) > 0) {
+            throw new IllegalArgumentException("price is required, non-negative and has at most 2 decimals");
+        }
+        if (row.getStockQuantity() == null || row.getStockQuantity() < 0) {
+            throw new IllegalArgumentException("stockQuantity is required and must be non-negative");
+        }
+        if (row.getCategory() == null || row.getCategory().isBlank() || row.getCategory().length() > 255) {
+            throw new IllegalArgumentException("category is required and must be at most 255 characters");
+        }
+        if (row.getImageUrl() != null && row.getImageUrl().length() > 255) {
+            throw new IllegalArgumentException("imageUrl must be at most 255 characters");
+        }
+        if (row.getActive() == null) {
+            row.setActive(true);
+        }
+    }
+
+    private static Map<String, Integer> parseCsvHeader(String line) {
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = parseCsvLine(line);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim(), i);
+        }
+        for (String required : List.of("sku", "name", "price", "stockQuantity", "category")) {
+            if (!columns.containsKey(required)) {
+                throw new RuntimeException("CSV header is missing column: " + required);
+            }
+        }
+        return columns;
+    }
+
+    private static ProductImportRow parseCsvRow(String line, Map<String, Integer> columns) {
+        List<String> values = parseCsvLine(line);
+        ProductImportRow row = new ProductImportRow();
+        row.setSku(column(values, columns, "sku"));
+        row.setName(column(values, columns, "name"));
+        row.setDescription(column(values, columns, "description"));
+        row.setImageUrl(column(values, columns, "imageUrl"));
+        row.setCategory(column(values, columns, "category"));
+        String price = column(values, columns, "price");
+        row.setPrice(price == null ? null : new BigDecimal(price));
+        String stock = column(values, columns, "stockQuantity");
+        row.setStockQuantity(stock == null ? null : Integer.valueOf(stock));
+        String active = column(values, columns, "active");
+        row.setActive(active == null ? null : Boolean.valueOf(active));
+        return row;
+    }
+
+    private static String column(List<String> values, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index);
+        return value.isEmpty() ? null : value;
+    }
+
+    // RFC 4180 fields on a single line: quoted fields may contain commas and doubled quotes
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private record PendingRow(long lineNumber, ProductImportRow row) {
+    }
+
+    private static class ImportRun {
+        private long processed;
+        private long inserted;
+        private long updated;
+        private long unchanged;
+        private long failed;
+        private long duplicates;
+        private final List<ProductImportResponse.RowError> errors = new ArrayList<>();
+
+        void add(long[] counts) {
+            inserted += counts[0];
+            updated += counts[1];
+            unchanged += counts[2];
+        }
+
+        void reject(long lineNumber, String sku, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ProductImportResponse.RowError(lineNumber, sku, message));
+            }
+        }
+    }
+}
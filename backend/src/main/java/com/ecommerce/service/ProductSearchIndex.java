@@ -0,0 +1,488 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-process inverted index over active products' name, category and description. Terms live in a sorted
+ * dictionary so prefixes expand with a range scan; each term's postings are parallel primitive arrays of
+ * ascending product ids and weights. Scores are field-weighted term frequency times IDF.
+ * <p>
+ * Segments are immutable once published, so searches never lock. Changes go to a small delta over a shared base
+ * and are merged into a new base in batches, so an update costs time in the size of the delta, not the catalog.
+ */
+@Component
+@Slf4j
+public class ProductSearchIndex extends IncrementalProductIndex {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float CATEGORY_WEIGHT = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final float PREFIX_MATCH_FACTOR = 0.5f;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final int MAX_DELTA_SIZE = 4096;
+
+    private volatile Segment segment = Segment.EMPTY;
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        super(productRepository);
+    }
+
+    public List<Long> search(String query, int limit) {
+        awaitInitialBuild();
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+
+        Segment current = segment;
+        List<List<Expansion>> tokenExpansions = new ArrayList<>();
+        for (String token : tokens) {
+            List<Expansion> expansions = current.expand(token);
+            if (expansions.isEmpty()) {
+                return List.of();
+            }
+            tokenExpansions.add(expansions);
+        }
+        // Drive from the rarest token and probe the others, so large postings are never materialized
+        tokenExpansions.sort(Comparator.comparingLong(ProductSearchIndex::postingCount));
+
+        int documentCount = Math.max(1, current.documentCount());
+        PriorityQueue<ScoredProduct> top = new PriorityQueue<>(Comparator.comparingDouble(ScoredProduct::score));
+        Postings driver = scoreToken(tokenExpansions.get(0), documentCount);
+        for (int d = 0; d < driver.size(); d++) {
+            long productId = driver.productIds[d];
+            double score = driver.weights[d];
+            for (int i = 1; i < tokenExpansions.size() && score > 0; i++) {
+                float tokenScore = scoreDocument(tokenExpansions.get(i), productId, documentCount);
+                score = tokenScore > 0 ? score + tokenScore : 0;
+            }
+            if (score > 0) {
+                top.offer(new ScoredProduct(productId, score));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        }
+
+        List<Long> ranked = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            ranked.add(top.poll().productId());
+        }
+        Collections.reverse(ranked);
+        return ranked;
+    }
+
+    @Override
+    protected void rebuild() {
+        long start = System.currentTimeMillis();
+        Map<Long, IndexedDocument> documents = new HashMap<>();
+        Map<String, PostingsBuilder> builders = new HashMap<>();
+        // Products arrive in ascending id order, so appending keeps every posting list sorted
+        forEachActiveProduct(product -> {
+            IndexedDocument document = IndexedDocument.of(product);
+            documents.put(product.getId(), document);
+            document.termWeights().forEach((term, weight) ->
+                    builders.computeIfAbsent(term, t -> new PostingsBuilder()).add(product.getId(), weight));
+        });
+        NavigableMap<String, Postings> postings = new TreeMap<>();
+        builders.forEach((term, builder) -> postings.put(term, builder.build()));
+        Segment fresh = new Segment(postings, documents);
+        segment = fresh;
+        log.info("Search index rebuilt with {} products and {} terms in {} ms",
+                fresh.documentCount(), fresh.termCount(), System.currentTimeMillis() - start);
+    }
+
+    @Override
+    protected void update(Map<Long, Product> changes) {
+        segment = segment.withChanges(changes);
+    }
+
+    private static long postingCount(List<Expansion> expansions) {
+        long count = 0;
+        for (Expansion expansion : expansions) {
+            count += expansion.postings().size();
+        }
+        return count;
+    }
+
+    /**
+     * Merges the expansions of one query token into a single sorted list, keeping each product's best score.
+     */
+    private static Postings scoreToken(List<Expansion> expansions, int documentCount) {
+        int total = 0;
+        float[] factors = new float[expansions.size()];
+        for (int e = 0; e < expansions.size(); e++) {
+            Expansion expansion = expansions.get(e);
+            total += expansion.postings().size();
+            factors[e] = idf(documentCount, expansion.postings().size()) * expansion.factor();
+        }
+
+        long[] productIds = new long[total];
+        float[] scores = new float[total];
+        int[] cursors = new int[expansions.size()];
+        int size = 0;
+        while (true) {
+            long next = Long.MAX_VALUE;
+            for (int e = 0; e < expansions.size(); e++) {
+                Expansion expansion = expansions.get(e);
+                Postings postings = expansion.postings();
+                while (cursors[e] < postings.size() && !expansion.excluded().isEmpty()
+                        && expansion.excluded().contains(postings.productIds[cursors[e]])) {
+                    cursors[e]++;
+                }
+                if (cursors[e] < postings.size()) {
+                    next = Math.min(next, postings.productIds[cursors[e]]);
+                }
+            }
+            if (next == Long.MAX_VALUE) {
+                break;
+            }
+            float best = 0;
+            for (int e = 0; e < expansions.size(); e++) {
+                Postings postings = expansions.get(e).postings();
+                if (cursors[e] < postings.size() && postings.productIds[cursors[e]] == next) {
+                    best = Math.max(best, postings.weights[cursors[e]] * factors[e]);
+                    cursors[e]++;
+                }
+            }
+            productIds[size] = next;
+            scores[size] = best;
+            size++;
+        }
+        return new Postings(Arrays.copyOf(productIds, size), Arrays.copyOf(scores, size));
+    }
+
+    private static float scoreDocument(List<Expansion> expansions, long productId, int documentCount) {
+        float best = 0;
+        for (Expansion expansion : expansions) {
+            Postings postings = expansion.postings();
+            int index = Arrays.binarySearch(postings.productIds, productId);
+            if (index >= 0 && !expansion.excluded().contains(productId)) {
+                best = Math.max(best, postings.weights[index] * idf(documentCount, postings.size()) * expansion.factor());
+            }
+        }
+        return best;
+    }
+
+    private static float idf(int documentCount, int documentFrequency) {
+        return (float) Math.log(1 + (double) documentCount / Math.max(1, documentFrequency));
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * One dictionary term matched by a query token. Postings of products in {@code excluded} are out of date and
+     * skipped; document frequencies still count them until the next merge, which only nudges the IDF.
+     */
+    private record Expansion(Postings postings, float factor, Set<Long> excluded) {
+    }
+
+    private record ScoredProduct(long productId, double score) {
+    }
+
+    /**
+     * The indexed text of one product. Term weights are derived when the postings need them, so a large catalog
+     * keeps only its text between updates.
+     */
+    private record IndexedDocument(String name, String category, String description) {
+
+        static IndexedDocument of(Product product) {
+            return new IndexedDocument(product.getName(), product.getCategory(), product.getDescription());
+        }
+
+        boolean matches(Product product) {
+            return Objects.equals(name, product.getName()) && Objects.equals(category, product.getCategory())
+                    && Objects.equals(description, product.getDescription());
+        }
+
+        Map<String, Float> termWeights() {
+            Map<String, Float> termWeights = new HashMap<>();
+            addTerms(termWeights, name, NAME_WEIGHT);
+            addTerms(termWeights, category, CATEGORY_WEIGHT);
+            addTerms(termWeights, description, DESCRIPTION_WEIGHT);
+            return termWeights;
+        }
+
+        private static void addTerms(Map<String, Float> termWeights, String text, float weight) {
+            for (String token : tokenize(text)) {
+                termWeights.merge(token, weight, Float::sum);
+            }
+        }
+    }
+
+    /**
+     * One term's postings: ascending product ids and the matching field weights, never mutated once built.
+     */
+    private static final class Postings {
+
+        private final long[] productIds;
+        private final float[] weights;
+
+        private Postings(long[] productIds, float[] weights) {
+            this.productIds = productIds;
+            this.weights = weights;
+        }
+
+        int size() {
+            return productIds.length;
+        }
+
+        /**
+         * Returns a copy without the given products, which must be sorted, and with the added ones merged in by id.
+         */
+        Postings with(long[] removed, NavigableMap<Long, Float> added) {
+            PostingsBuilder builder = new PostingsBuilder(productIds.length + added.size());
+            Iterator<Map.Entry<Long, Float>> additions = added.entrySet().iterator();
+            Map.Entry<Long, Float> next = additions.hasNext() ? additions.next() : null;
+            int r = 0;
+            for (int i = 0; i < productIds.length; i++) {
+                while (next != null && next.getKey() < productIds[i]) {
+                    builder.add(next.getKey(), next.getValue());
+                    next = additions.hasNext() ? additions.next() : null;
+                }
+                while (r < removed.length && removed[r] < productIds[i]) {
+                    r++;
+                }
+                if (r == removed.length || removed[r] != productIds[i]) {
+                    builder.add(productIds[i], weights[i]);
+                }
+            }
+            for (; next != null; next = additions.hasNext() ? additions.next() : null) {
+                builder.add(next.getKey(), next.getValue());
+            }
+            return builder.size == 0 ? null : builder.build();
+        }
+    }
+
+    private static final class PostingsBuilder {
+
+        private long[] productIds;
+        private float[] weights;
+        private int size;
+
+        PostingsBuilder() {
+            this(4);
+        }
+
+        PostingsBuilder(int capacity) {
+            productIds = new long[Math.max(4, capacity)];
+            weights = new float[Math.max(4, capacity)];
+        }
+
+        void add(long productId, float weight) {
+            if (size == productIds.length) {
+                productIds = Arrays.copyOf(productIds, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            productIds[size] = productId;
+            weights[size] = weight;
+            size++;
+        }
+
+        Postings build() {
+            return new Postings(Arrays.copyOf(productIds, size), Arrays.copyOf(weights, size));
+        }
+    }
+
+    /**
+     * A base built in full plus a delta of the products changed since. The base maps are shared unchanged by every
+     * segment derived from it; an update copies only the delta, and the delta is merged into a new base once it
+     * holds {@code MAX_DELTA_SIZE} products, so the cost of a full copy is spread over that many changes.
+     */
+    private static final class Segment {
+
+        static final Segment EMPTY = new Segment(new TreeMap<>(), new HashMap<>());
+
+        private final NavigableMap<String, Postings> postings;
+        private final Map<Long, IndexedDocument> documents;
+        // Products whose base entries are out of date: changed ones are indexed again in the delta
+        private final Set<Long> staleIds;
+        private final Map<Long, IndexedDocument> deltaDocuments;
+        private final NavigableMap<String, Postings> deltaPostings;
+        private final int documentCount;
+
+        private Segment(NavigableMap<String, Postings> postings, Map<Long, IndexedDocument> documents) {
+            this(postings, documents, Set.of(), Map.of(), Collections.emptyNavigableMap(), documents.size());
+        }
+
+        private Segment(NavigableMap<String, Postings> postings, Map<Long, IndexedDocument> documents,
+                        Set<Long> staleIds, Map<Long, IndexedDocument> deltaDocuments,
+                        NavigableMap<String, Postings> deltaPostings, int documentCount) {
+            this.postings = postings;
+            this.documents = documents;
+            this.staleIds = staleIds;
+            this.deltaDocuments = deltaDocuments;
+            this.deltaPostings = deltaPostings;
+            this.documentCount = documentCount;
+        }
+
+        /**
+         * Returns this segment if no indexed text changed, otherwise one with the changes applied to a copy of the
+         * delta. The base is shared as is.
+         */
+        Segment withChanges(Map<Long, Product> changes) {
+            Map<Long, IndexedDocument> changedDocuments = new HashMap<>();
+            Set<Long> replacedIds = new HashSet<>();
+            int[] nextDocumentCount = {documentCount};
+            changes.forEach((productId, product) -> {
+                IndexedDocument previous = document(productId);
+                if (product == null || !Boolean.TRUE.equals(product.getActive())) {
+                    if (previous != null) {
+                        replacedIds.add(productId);
+                        nextDocumentCount[0]--;
+                    }
+                } else if (previous == null || !previous.matches(product)) {
+                    replacedIds.add(productId);
+                    changedDocuments.put(productId, IndexedDocument.of(product));
+                    if (previous == null) {
+                        nextDocumentCount[0]++;
+                    }
+                }
+            });
+            if (replacedIds.isEmpty()) {
+                return this;
+            }
+
+            Set<Long> nextStaleIds = new HashSet<>(staleIds);
+            nextStaleIds.addAll(replacedIds);
+            Map<Long, IndexedDocument> nextDeltaDocuments = new HashMap<>(deltaDocuments);
+            NavigableMap<String, Postings> nextDeltaPostings = new TreeMap<>(deltaPostings);
+            apply(nextDeltaDocuments, nextDeltaPostings, replacedIds, changedDocuments);
+            Segment next = new Segment(postings, documents, nextStaleIds, nextDeltaDocuments, nextDeltaPostings,
+                    nextDocumentCount[0]);
+            return nextStaleIds.size() >= MAX_DELTA_SIZE ? next.compact() : next;
+        }
+
+        /**
+         * Merges the delta into a new base.
+         */
+        Segment compact() {
+            Map<Long, IndexedDocument> nextDocuments = new HashMap<>(documents);
+            NavigableMap<String, Postings> nextPostings = new TreeMap<>(postings);
+            apply(nextDocuments, nextPostings, staleIds, deltaDocuments);
+            return new Segment(nextPostings, nextDocuments);
+        }
+
+        /**
+         * Removes the given products from the maps and adds the changed documents, rebuilding only the postings of
+         * the terms either side contains.
+         */
+        private static void apply(Map<Long, IndexedDocument> documents, NavigableMap<String, Postings> postings,
+                                  Set<Long> removedIds, Map<Long, IndexedDocument> changedDocuments) {
+            Map<String, NavigableMap<Long, Float>> addedByTerm = new HashMap<>();
+            Set<String> affectedTerms = new HashSet<>();
+            for (Long productId : removedIds) {
+                IndexedDocument previous = documents.remove(productId);
+                if (previous != null) {
+                    affectedTerms.addAll(previous.termWeights().keySet());
+                }
+            }
+            changedDocuments.forEach((productId, document) -> {
+                documents.put(productId, document);
+                document.termWeights().forEach((term, weight) ->
+                        addedByTerm.computeIfAbsent(term, t -> new TreeMap<>()).put(productId, weight));
+            });
+            affectedTerms.addAll(addedByTerm.keySet());
+
+            long[] removed = removedIds.stream().mapToLong(Long::longValue).sorted().toArray();
+            Postings none = new Postings(new long[0], new float[0]);
+            for (String term : affectedTerms) {
+                Postings updated = postings.getOrDefault(term, none)
+                        .with(removed, addedByTerm.getOrDefault(term, Collections.emptyNavigableMap()));
+                if (updated == null) {
+                    postings.remove(term);
+                } else {
+                    postings.put(term, updated);
+                }
+            }
+        }
+
+        int documentCount() {
+            return documentCount;
+        }
+
+        int termCount() {
+            return postings.size();
+        }
+
+        List<Expansion> expand(String token) {
+            List<Expansion> expansions = new ArrayList<>();
+            addExpansions(expansions, token, 1.0f);
+            if (token.length() >= MIN_PREFIX_LENGTH) {
+                // Walk the base and delta dictionaries together so the cap keeps the first terms in order
+                Iterator<String> baseTerms = postings.subMap(token, false, token + Character.MAX_VALUE, false)
+                        .keySet().iterator();
+                Iterator<String> deltaTerms = deltaPostings.subMap(token, false, token + Character.MAX_VALUE, false)
+                        .keySet().iterator();
+                String baseTerm = baseTerms.hasNext() ? baseTerms.next() : null;
+                String deltaTerm = deltaTerms.hasNext() ? deltaTerms.next() : null;
+                int terms = expansions.isEmpty() ? 0 : 1;
+                while ((baseTerm != null || deltaTerm != null) && terms < MAX_PREFIX_EXPANSIONS) {
+                    String term = baseTerm == null ? deltaTerm
+                            : deltaTerm == null || baseTerm.compareTo(deltaTerm) <= 0 ? baseTerm : deltaTerm;
+                    if (term.equals(baseTerm)) {
+                        baseTerm = baseTerms.hasNext() ? baseTerms.next() : null;
+                    }
+                    if (term.equals(deltaTerm)) {
+                        deltaTerm = deltaTerms.hasNext() ? deltaTerms.next() : null;
+                    }
+                    addExpansions(expansions, term, PREFIX_MATCH_FACTOR);
+                    terms++;
+                }
+            }
+            return expansions;
+        }
+
+        private void addExpansions(List<Expansion> expansions, String term, float factor) {
+            Postings base = postings.get(term);
+            if (base != null) {
+                expansions.add(new Expansion(base, factor, staleIds));
+            }
+            Postings delta = deltaPostings.get(term);
+            if (delta != null) {
+                expansions.add(new Expansion(delta, factor, Set.of()));
+            }
+        }
+
+        private IndexedDocument document(Long productId) {
+            IndexedDocument changed = deltaDocuments.get(productId);
+            if (changed != null || staleIds.contains(productId)) {
+                return changed;
+            }
+            return documents.get(productId);
+        }
+    }
+}
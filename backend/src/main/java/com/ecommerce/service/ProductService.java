@@ -1,42 +1,64 @@
 package com.ecommerce.service;
 
+import com.ecommerce.dto.FacetedBrowseResponse;
+import com.ecommerce.dto.ProductPageResponse;
 import com.ecommerce.dto.ProductResponse;
 import com.ecommerce.model.Product;
 import com.ecommerce.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ProductService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+    private final ProductSearchIndex searchIndex;
+    private final ProductFacetIndex facetIndex;
+
+    private final PendingProductChanges pendingChanges = new PendingProductChanges();
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile CatalogSnapshot catalog = CatalogSnapshot.EMPTY;
 
     public List<ProductResponse> getAllActiveProducts() {
         log.info("Fetching all active products");
-        List<ProductResponse> products = productRepository.findByActiveTrue().stream()
-                .map(ProductResponse::fromProduct)
-                .collect(Collectors.toList());
+        List<ProductResponse> products = getCatalog().getActiveProducts();
         log.debug("Found {} active products", products.size());
         return products;
     }
 
     public List<ProductResponse> getAllProducts() {
         log.info("Fetching all products (including inactive)");
-        List<ProductResponse> products = productRepository.findAll().stream()
-                .map(ProductResponse::fromProduct)
-                .collect(Collectors.toList());
+        List<ProductResponse> products = getCatalog().getAllProducts();
         log.debug("Found {} total products", products.size());
         return products;
     }
 
     public ProductResponse getProductById(Long id) {
         log.info("Fetching product by id: {}", id);
+        ProductResponse cached = getCatalog().getProductsById().get(id);
+        if (cached != null) {
+            return cached;
+        }
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> {
                     log.error("Product not found with id: {}", id);
@@ -54,12 +76,275 @@ public class ProductService {
                 });
     }
 
+    public Map<Long, Product> getProductEntities(Collection<Long> ids) {
+        log.debug("Fetching {} product entities", ids.size());
+        Map<Long, Product> products = new LinkedHashMap<>();
+        for (Product product : productRepository.findAllById(ids)) {
+            products.put(product.getId(), product);
+        }
+        for (Long id : ids) {
+            if (!products.containsKey(id)) {
+                log.error("Product entity not found with id: {}", id);
+                throw new RuntimeException("Product not found with id: " + id);
+            }
+        }
+        return products;
+    }
+
     public List<ProductResponse> getProductsByCategory(String category) {
         log.info("Fetching products by category: {}", category);
-        List<ProductResponse> products = productRepository.findByCategoryAndActiveTrue(category).stream()
-                .map(ProductResponse::fromProduct)
-                .collect(Collectors.toList());
+        List<ProductResponse> products = getCatalog().getActiveProductsInCategory(category);
         log.debug("Found {} products in category: {}", products.size(), category);
         return products;
     }
+
+    public List<ProductResponse> searchProducts(String query, int limit) {
+        log.info("Searching products for: {}", query);
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new RuntimeException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        Map<Long, ProductResponse> productsById = getCatalog().getProductsById();
+        List<ProductResponse> products = searchIndex.search(query, limit).stream()
+                .map(productsById::get)
+                .filter(product -> product != null && Boolean.TRUE.equals(product.getActive()))
+                .toList();
+        log.debug("Found {} products matching: {}", products.size(), query);
+        return products;
+    }
+
+    public FacetedBrowseResponse browseProducts(String category, String priceRange, String availability,
+                                                Long afterId, int limit) {
+        log.info("Browsing products - category: {}, price: {}, availability: {}", category, priceRange, availability);
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new RuntimeException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (availability != null && !ProductFacetIndex.IN_STOCK.equals(availability)
+                && !ProductFacetIndex.OUT_OF_STOCK.equals(availability)) {
+            throw new RuntimeException("Availability must be inStock or outOfStock");
+        }
+        if (afterId != null && afterId < 0) {
+            throw new RuntimeException("afterId must not be negative");
+        }
+        ProductFacetIndex.FacetResult result = facetIndex.query(category, priceRange, availability,
+                afterId == null ? 0 : afterId, limit);
+
+        Map<Long, ProductResponse> productsById = getCatalog().getProductsById();
+        List<ProductResponse> products = result.getProductIds().stream()
+                .map(productsById::get)
+                .filter(product -> product != null)
+                .toList();
+        log.debug("Found {} products matching facets, returning {}", result.getTotal(), products.size());
+
+        return FacetedBrowseResponse.builder()
+                .products(products)
+                .total(result.getTotal())
+                .nextAfterId(result.getNextAfterId())
+                .categories(result.getCategoryCounts())
+                .priceRanges(result.getPriceRangeCounts())
+                .availability(result.getAvailabilityCounts())
+                .build();
+    }
+
+    public ProductPageResponse getActiveProductPage(String category, String sort, String cursor,
+                                                    int limit, List<String> fields) {
+        log.info("Fetching product page - category: {}, sort: {}, limit: {}", category, sort, limit);
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new RuntimeException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        List<String> selectedFields = fields == null || fields.isEmpty() ? ProductResponse.FIELDS : fields;
+        for (String field : selectedFields) {
+            if (!ProductResponse.FIELDS.contains(field)) {
+                throw new RuntimeException("Unknown product field: " + field);
+            }
+        }
+
+        CursorPosition position = decodeCursor(sort, cursor);
+        Limit fetchLimit = Limit.of(limit + 1);
+        List<Product> rows = switch (sort) {
+            case "id" -> {
+                Long afterId = position == null ? 0L : position.id();
+                yield category == null
+                        ? productRepository.findActivePageById(afterId, fetchLimit)
+                        : productRepository.findActiveCategoryPageById(category, afterId, fetchLimit);
+            }
+            case "price" -> {
+                BigDecimal afterPrice = position == null ? BigDecimal.valueOf(-1) : position.price();
+                Long afterId = position == null ? 0L : position.id();
+                yield category == null
+                        ? productRepository.findActivePageByPrice(afterPrice, afterId, fetchLimit)
+                        : productRepository.findActiveCategoryPageByPrice(category, afterPrice, afterId, fetchLimit);
+            }
+            case "newest" -> {
+                Long beforeId = position == null ? Long.MAX_VALUE : position.id();
+                yield category == null
+                        ? productRepository.findActivePageByNewest(beforeId, fetchLimit)
+                        : productRepository.findActiveCategoryPageByNewest(category, beforeId, fetchLimit);
+            }
+            default -> throw new RuntimeException("Unsupported sort: " + sort);
+        };
+
+        boolean hasMore = rows.size() > limit;
+        List<Product> page = hasMore ? rows.subList(0, limit) : rows;
+        List<Map<String, Object>> items = page.stream()
+                .map(product -> ProductResponse.fromProduct(product).toFieldMap(selectedFields))
+                .toList();
+        log.debug("Found {} products for page, hasMore: {}", items.size(), hasMore);
+
+        return ProductPageResponse.builder()
+                .items(items)
+                .sort(sort)
+                .limit(limit)
+                .nextCursor(hasMore ? encodeCursor(sort, page.get(page.size() - 1)) : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    public CatalogView getActiveCatalogView() {
+        return catalogView(getCatalog(), CatalogSnapshot.ALL_VIEW);
+    }
+
+    public CatalogView getCategoryCatalogView(String category) {
+        CatalogSnapshot snapshot = getCatalog();
+        if (!snapshot.getActiveProductsByCategory().containsKey(category)) {
+            return catalogView(snapshot, CatalogSnapshot.EMPTY_VIEW);
+        }
+        return catalogView(snapshot, CatalogSnapshot.CATEGORY_VIEW_PREFIX + category);
+    }
+
+    /**
+     * Returns the last published snapshot. Only the very first read loads the catalog; after that, changes
+     * are patched in by {@link #refreshCatalog()} in the background and readers never wait on the database.
+     */
+    public CatalogSnapshot getCatalog() {
+        CatalogSnapshot current = catalog;
+        if (current != CatalogSnapshot.EMPTY) {
+            return current;
+        }
+        refreshLock.lock();
+        try {
+            if (catalog == CatalogSnapshot.EMPTY) {
+                applyPendingChanges();
+            }
+            return catalog;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.refresh-interval-ms:250}")
+    public void refreshCatalog() {
+        if (catalog.getVersion() == pendingChanges.getVersion()) {
+            return;
+        }
+        // The first load is still running on a request thread; it will pick these changes up
+        if (!refreshLock.tryLock()) {
+            return;
+        }
+        try {
+            applyPendingChanges();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Other instances' writes publish no events here, so the snapshot is also reloaded in full on this
+     * interval. That bounds how stale a node's catalog can get; listings that did not change keep their ETag.
+     */
+    @Scheduled(fixedDelayString = "${catalog.full-refresh-interval-ms:60000}",
+            initialDelayString = "${catalog.full-refresh-interval-ms:60000}")
+    public void scheduleFullRefresh() {
+        pendingChanges.requestFullRefresh();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductsChangedEvent event) {
+        log.debug("Catalog invalidated for {} products", event.isAllProducts() ? "all" : event.getProductIds().size());
+        pendingChanges.record(event);
+    }
+
+    private static String encodeCursor(String sort, Product last) {
+        String position = switch (sort) {
+            case "price" -> last.getPrice().toPlainString() + "|" + last.getId();
+            default -> String.valueOf(last.getId());
+        };
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((sort + "|" + position).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static CursorPosition decodeCursor(String sort, String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            int expected = "price".equals(sort) ? 3 : 2;
+            if (parts.length != expected || !parts[0].equals(sort)) {
+                throw new IllegalArgumentException("cursor does not match sort " + sort);
+            }
+            return "price".equals(sort)
+                    ? new CursorPosition(new BigDecimal(parts[1]), Long.valueOf(parts[2]))
+                    : new CursorPosition(null, Long.valueOf(parts[1]));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected invalid product cursor: {}", e.getMessage());
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+
+    private record CursorPosition(BigDecimal price, Long id) {
+    }
+
+    private CatalogView catalogView(CatalogSnapshot snapshot, String key) {
+        return snapshot.view(key, k -> serialize(snapshot, k));
+    }
+
+    private CatalogView serialize(CatalogSnapshot snapshot, String key) {
+        List<ProductResponse> products;
+        if (key.equals(CatalogSnapshot.ALL_VIEW)) {
+            products = snapshot.getActiveProducts();
+        } else if (key.startsWith(CatalogSnapshot.CATEGORY_VIEW_PREFIX)) {
+            products = snapshot.getActiveProductsInCategory(key.substring(CatalogSnapshot.CATEGORY_VIEW_PREFIX.length()));
+        } else {
+            products = List.of();
+        }
+        try {
+            return new CatalogView(objectMapper.writeValueAsBytes(products));
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize catalog view: {}", e.getMessage());
+            throw new RuntimeException("Failed to serialize catalog", e);
+        }
+    }
+
+    private void applyPendingChanges() {
+        CatalogSnapshot current = catalog;
+        long version = pendingChanges.getVersion();
+        if (current.getVersion() == version) {
+            return;
+        }
+
+        PendingProductChanges.Drained changes = pendingChanges.drain();
+        CatalogSnapshot next;
+        try {
+            if (current == CatalogSnapshot.EMPTY) {
+                next = CatalogSnapshot.of(version, productRepository.findAll());
+                log.info("Catalog snapshot built at version {} with {} products", version, next.getAllProducts().size());
+            } else if (changes.isFullRefresh()) {
+                next = current.reloaded(version, productRepository.findAll());
+                log.info("Catalog snapshot rebuilt at version {} with {} products", version, next.getAllProducts().size());
+            } else {
+                next = current.withChanges(version, changes.getProductIds(),
+                        productRepository.findAllById(changes.getProductIds()));
+                log.debug("Catalog snapshot patched to version {} for {} products", version, changes.getProductIds().size());
+            }
+        } catch (RuntimeException e) {
+            pendingChanges.requestFullRefresh();
+            throw e;
+        }
+
+        // Re-serialize the listings clients have asked for before publishing, so requests find them ready
+        for (String key : current.getViewKeys()) {
+            catalogView(next, key);
+        }
+        catalog = next;
+    }
 }
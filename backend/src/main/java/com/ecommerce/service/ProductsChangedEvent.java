@@ -0,0 +1,24 @@
+package com.ecommerce.service;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Collection;
+import java.util.Set;
+
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class ProductsChangedEvent {
+
+    private final Set<Long> productIds;
+    private final boolean allProducts;
+
+    public static ProductsChangedEvent of(Collection<Long> productIds) {
+        return new ProductsChangedEvent(Set.copyOf(productIds), false);
+    }
+
+    public static ProductsChangedEvent allProducts() {
+        return new ProductsChangedEvent(Set.of(), true);
+    }
+}
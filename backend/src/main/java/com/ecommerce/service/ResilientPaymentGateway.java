@@ -0,0 +1,197 @@
+package com.ecommerce.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Guards calls to the configured {@link PaymentGateway}. Calls run on a small bounded pool, so a slow provider can
+ * tie up at most that many threads and never a database connection; a full pool is answered with 503 right away.
+ * Each call has a hard timeout, and a circuit breaker stops calling a provider that keeps failing until a single
+ * probe call succeeds again.
+ */
+@Service
+@Slf4j
+public class ResilientPaymentGateway {
+
+    public enum CircuitState {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final PaymentGateway delegate;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+    private final int failureThreshold;
+    private final long openMs;
+
+    private CircuitState state = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+    private final AtomicInteger rejectedCalls = new AtomicInteger();
+
+    public ResilientPaymentGateway(PaymentGateway delegate,
+                                   @Value("${payments.gateway.timeout-ms:8000}") long timeoutMs,
+                                   @Value("${payments.gateway.max-concurrent-calls:16}") int maxConcurrentCalls,
+                                   @Value("${payments.gateway.queue-capacity:64}") int queueCapacity,
+                                   @Value("${payments.gateway.breaker.failure-threshold:5}") int failureThreshold,
+                                   @Value("${payments.gateway.breaker.open-ms:30000}") long openMs) {
+        this.delegate = delegate;
+        this.timeoutMs = timeoutMs;
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrentCalls, maxConcurrentCalls, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "payment-gateway-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        log.info("Payment gateway '{}' - timeout: {} ms, max concurrent calls: {}, queue: {}", delegate.getName(),
+                timeoutMs, maxConcurrentCalls, queueCapacity);
+    }
+
+    public PaymentGateway.CreatedIntent createPaymentIntent(long amountInCents, String currency,
+                                                            Map<String, String> metadata, String idempotencyKey) {
+        return call(idempotencyKey, () -> delegate.createPaymentIntent(amountInCents, currency, metadata,
+                idempotencyKey));
+    }
+
+    public PaymentGateway.CreatedIntent updatePaymentIntentAmount(String intentId, long amountInCents,
+                                                                  String idempotencyKey) {
+        return call(idempotencyKey, () -> delegate.updatePaymentIntentAmount(intentId, amountInCents,
+                idempotencyKey));
+    }
+
+    public PaymentGateway.IntentStatus getPaymentIntentStatus(String intentId) {
+        return call(intentId, () -> delegate.getPaymentIntentStatus(intentId));
+    }
+
+    public void cancelPaymentIntent(String intentId, String idempotencyKey) {
+        call(idempotencyKey, () -> {
+            delegate.cancelPaymentIntent(intentId, idempotencyKey);
+            return null;
+        });
+    }
+
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("provider", delegate.getName());
+        status.put("circuitState", currentState(System.currentTimeMillis()).name());
+        status.put("consecutiveFailures", consecutiveFailures);
+        status.put("activeCalls", executor.getActiveCount());
+        status.put("queuedCalls", executor.getQueue().size());
+        status.put("rejectedCalls", rejectedCalls.get());
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T call(String idempotencyKey, Callable<T> action) {
+        boolean probe = acquirePermission();
+        Future<T> future;
+        try {
+            future = executor.submit(action);
+        } catch (RejectedExecutionException e) {
+            rejectedCalls.incrementAndGet();
+            release(probe);
+            log.warn("Payment gateway is saturated, rejecting call {}", idempotencyKey);
+            throw new PaymentGatewayException("Payment provider is busy, please retry", true);
+        }
+
+        try {
+            T result = future.get(timeoutMs, TimeUnit.MILLISECONDS);
+            recordSuccess();
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            recordFailure();
+            log.warn("Payment gateway call {} timed out after {} ms", idempotencyKey, timeoutMs);
+            throw new PaymentGatewayException("Payment provider timed out, please retry", true, e);
+        } catch (ExecutionException e) {
+            PaymentGatewayException failure = e.getCause() instanceof PaymentGatewayException gatewayException
+                    ? gatewayException
+                    : new PaymentGatewayException("Payment processing error: " + e.getCause().getMessage(), true,
+                    e.getCause());
+            if (failure.isRetryable()) {
+                recordFailure();
+            } else {
+                // The provider answered, it just refused this request
+                recordSuccess();
+            }
+            throw failure;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            release(probe);
+            Thread.currentThread().interrupt();
+            throw new PaymentGatewayException("Interrupted while calling the payment provider", true, e);
+        }
+    }
+
+    private synchronized boolean acquirePermission() {
+        CircuitState current = currentState(System.currentTimeMillis());
+        if (current == CircuitState.CLOSED) {
+            return false;
+        }
+        if (current == CircuitState.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            state = CircuitState.HALF_OPEN;
+            log.info("Payment gateway circuit half-open, sending a probe call");
+            return true;
+        }
+        throw new PaymentGatewayException("Payment provider is unavailable, please retry later", true);
+    }
+
+    private CircuitState currentState(long now) {
+        if (state == CircuitState.OPEN && now - openedAt >= openMs) {
+            return CircuitState.HALF_OPEN;
+        }
+        return state;
+    }
+
+    private synchronized void release(boolean probe) {
+        if (probe) {
+            probeInFlight = false;
+        }
+    }
+
+    private synchronized void recordSuccess() {
+        if (state != CircuitState.CLOSED) {
+            log.info("Payment gateway circuit closed");
+        }
+        state = CircuitState.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    private synchronized void recordFailure() {
+        consecutiveFailures++;
+        probeInFlight = false;
+        if (state == CircuitState.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != CircuitState.OPEN) {
+                log.error("Payment gateway circuit opened after {} consecutive failures", consecutiveFailures);
+            }
+            state = CircuitState.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+}
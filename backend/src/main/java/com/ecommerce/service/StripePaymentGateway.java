@@ -0,0 +1,122 @@
+package com.ecommerce.service;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.ApiException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.PaymentIntent;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.PaymentIntentCancelParams;
+import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.PaymentIntentUpdateParams;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+@Service
+@ConditionalOnProperty(name = "payments.gateway.provider", havingValue = "stripe", matchIfMissing = true)
+@Slf4j
+public class StripePaymentGateway implements PaymentGateway {
+
+    @Value("${stripe.api.key}")
+    private String apiKey;
+
+    @Value("${payments.gateway.stripe.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${payments.gateway.stripe.read-timeout-ms:5000}")
+    private int readTimeoutMs;
+
+    @Value("${payments.gateway.stripe.max-network-retries:1}")
+    private int maxNetworkRetries;
+
+    @Override
+    public String getName() {
+        return "stripe";
+    }
+
+    @Override
+    public CreatedIntent createPaymentIntent(long amountInCents, String currency, Map<String, String> metadata,
+                                             String idempotencyKey) {
+        PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
+                .setAmount(amountInCents)
+                .setCurrency(currency)
+                .putAllMetadata(metadata)
+                .setAutomaticPaymentMethods(
+                        PaymentIntentCreateParams.AutomaticPaymentMethods.builder()
+                                .setEnabled(true)
+                                .build()
+                )
+                .build();
+        try {
+            PaymentIntent paymentIntent = PaymentIntent.create(params, requestOptions(idempotencyKey));
+            return new CreatedIntent(paymentIntent.getId(), paymentIntent.getClientSecret());
+        } catch (StripeException e) {
+            throw translate("creation", e);
+        }
+    }
+
+    @Override
+    public CreatedIntent updatePaymentIntentAmount(String intentId, long amountInCents, String idempotencyKey) {
+        PaymentIntent paymentIntent = new PaymentIntent();
+        paymentIntent.setId(intentId);
+        try {
+            PaymentIntent updated = paymentIntent.update(
+                    PaymentIntentUpdateParams.builder().setAmount(amountInCents).build(),
+                    requestOptions(idempotencyKey));
+            return new CreatedIntent(updated.getId(), updated.getClientSecret());
+        } catch (StripeException e) {
+            throw translate("update", e);
+        }
+    }
+
+    @Override
+    public IntentStatus getPaymentIntentStatus(String intentId) {
+        try {
+            PaymentIntent paymentIntent = PaymentIntent.retrieve(intentId, requestOptions(null));
+            return switch (paymentIntent.getStatus()) {
+                case "succeeded" -> IntentStatus.SUCCEEDED;
+                case "canceled" -> IntentStatus.CANCELED;
+                case "requires_payment_method" -> paymentIntent.getLastPaymentError() != null
+                        ? IntentStatus.FAILED : IntentStatus.OPEN;
+                default -> IntentStatus.OPEN;
+            };
+        } catch (StripeException e) {
+            throw translate("lookup", e);
+        }
+    }
+
+    @Override
+    public void cancelPaymentIntent(String intentId, String idempotencyKey) {
+        PaymentIntent paymentIntent = new PaymentIntent();
+        paymentIntent.setId(intentId);
+        try {
+            paymentIntent.cancel(PaymentIntentCancelParams.builder()
+                    .setCancellationReason(PaymentIntentCancelParams.CancellationReason.ABANDONED)
+                    .build(), requestOptions(idempotencyKey));
+        } catch (StripeException e) {
+            throw translate("cancel", e);
+        }
+    }
+
+    private RequestOptions requestOptions(String idempotencyKey) {
+        // Per-request options instead of the global Stripe.apiKey, so every call carries its own timeouts and key
+        return RequestOptions.builder()
+                .setApiKey(apiKey)
+                .setIdempotencyKey(idempotencyKey)
+                .setConnectTimeout(connectTimeoutMs)
+                .setReadTimeout(readTimeoutMs)
+                .setMaxNetworkRetries(maxNetworkRetries)
+                .build();
+    }
+
+    private PaymentGatewayException translate(String operation, StripeException e) {
+        boolean retryable = e instanceof ApiConnectionException || e instanceof RateLimitException
+                || e instanceof ApiException;
+        log.warn("Stripe payment intent {} failed (retryable: {}): {}", operation, retryable, e.getMessage());
+        return new PaymentGatewayException("Payment processing error: " + e.getMessage(), retryable, e);
+    }
+}
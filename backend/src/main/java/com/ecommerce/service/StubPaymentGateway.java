@@ -0,0 +1,110 @@
+package com.ecommerce.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local stand-in for the payment provider with configurable latency and failure injection, for development and load
+ * tests. Honours idempotency keys like the real provider does.
+ */
+@Service
+@ConditionalOnProperty(name = "payments.gateway.provider", havingValue = "stub")
+@Slf4j
+public class StubPaymentGateway implements PaymentGateway {
+
+    private static final int MAX_REMEMBERED_KEYS = 10_000;
+
+    private final Map<String, CreatedIntent> intentsByKey = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CreatedIntent> eldest) {
+                    return size() > MAX_REMEMBERED_KEYS;
+                }
+            });
+
+    private final Map<String, Boolean> cancelledIntents = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > MAX_REMEMBERED_KEYS;
+                }
+            });
+
+    @Value("${payments.gateway.stub.latency-ms:50}")
+    private long latencyMs;
+
+    @Value("${payments.gateway.stub.latency-jitter-ms:0}")
+    private long latencyJitterMs;
+
+    @Value("${payments.gateway.stub.failure-rate:0}")
+    private double failureRate;
+
+    @Value("${payments.gateway.stub.intent-succeeded-rate:0}")
+    private double intentSucceededRate;
+
+    @Value("${payments.gateway.stub.intent-failed-rate:0}")
+    private double intentFailedRate;
+
+    @Override
+    public String getName() {
+        return "stub";
+    }
+
+    @Override
+    public CreatedIntent createPaymentIntent(long amountInCents, String currency, Map<String, String> metadata,
+                                             String idempotencyKey) {
+        simulateCall(idempotencyKey);
+        return intentsByKey.computeIfAbsent(idempotencyKey, key -> {
+            String id = "pi_stub_" + UUID.randomUUID().toString().replace("-", "");
+            return new CreatedIntent(id, id + "_secret_stub");
+        });
+    }
+
+    @Override
+    public CreatedIntent updatePaymentIntentAmount(String intentId, long amountInCents, String idempotencyKey) {
+        simulateCall(idempotencyKey);
+        return new CreatedIntent(intentId, intentId + "_secret_stub");
+    }
+
+    @Override
+    public IntentStatus getPaymentIntentStatus(String intentId) {
+        simulateCall(intentId);
+        if (cancelledIntents.containsKey(intentId)) {
+            return IntentStatus.CANCELED;
+        }
+        // Derived from the id so that repeated lookups of one intent agree
+        double roll = (intentId.hashCode() & Integer.MAX_VALUE) / (double) Integer.MAX_VALUE;
+        if (roll < intentSucceededRate) {
+            return IntentStatus.SUCCEEDED;
+        }
+        return roll < intentSucceededRate + intentFailedRate ? IntentStatus.FAILED : IntentStatus.OPEN;
+    }
+
+    @Override
+    public void cancelPaymentIntent(String intentId, String idempotencyKey) {
+        simulateCall(idempotencyKey);
+        cancelledIntents.put(intentId, Boolean.TRUE);
+    }
+
+    private void simulateCall(String idempotencyKey) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            Thread.sleep(latencyMs + (latencyJitterMs > 0 ? random.nextLong(latencyJitterMs + 1) : 0));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentGatewayException("Payment gateway call interrupted", true);
+        }
+        if (random.nextDouble() < failureRate) {
+            log.debug("Injecting stub gateway failure for key {}", idempotencyKey);
+            throw new PaymentGatewayException("Stub payment gateway failure", true);
+        }
+    }
+}
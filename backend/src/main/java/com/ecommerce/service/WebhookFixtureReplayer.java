@@ -0,0 +1,93 @@
+package com.ecommerce.service;
+
+import com.stripe.net.Webhook;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for the payment provider's webhook sender, enabled in development only. Fills in a fixture from
+ * classpath:webhook-fixtures, signs it with the webhook secret the way the provider does and posts it to the real
+ * webhook endpoint, so the whole ingestion path can be exercised offline.
+ */
+@Service
+@ConditionalOnProperty(name = "payments.webhook.stand-in.enabled", havingValue = "true")
+@Slf4j
+public class WebhookFixtureReplayer {
+
+    private static final Pattern FIXTURE_NAME = Pattern.compile("[a-z_.]+");
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    @Value("${payments.webhook.secret}")
+    private String secret;
+
+    @Value("${payments.webhook.stand-in.target-url:http://localhost:8080/api/payments/webhook}")
+    private String targetUrl;
+
+    public Map<String, Object> replay(String fixture, String paymentIntentId, String eventId) {
+        if (!FIXTURE_NAME.matcher(fixture).matches()) {
+            throw new RuntimeException("Invalid fixture name: " + fixture);
+        }
+        String id = eventId != null && !eventId.isBlank()
+                ? eventId : "evt_stub_" + UUID.randomUUID().toString().replace("-", "");
+        long timestamp = Webhook.Util.getTimeNow();
+        String payload = loadFixture(fixture)
+                .replace("${eventId}", id)
+                .replace("${paymentIntentId}", paymentIntentId)
+                .replace("${created}", Long.toString(timestamp));
+
+        try {
+            String signature = "t=" + timestamp + ",v1=" + Webhook.Util.computeHmacSha256(secret,
+                    timestamp + "." + payload);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(targetUrl))
+                    .timeout(Duration.ofSeconds(10))
+                    .header("Content-Type", "application/json")
+                    .header("Stripe-Signature", signature)
+                    .POST(HttpRequest.BodyPublishers.ofString(payload))
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            log.info("Replayed webhook fixture {} as event {} for {} - HTTP {}", fixture, id, paymentIntentId,
+                    response.statusCode());
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("eventId", id);
+            result.put("status", response.statusCode());
+            result.put("response", response.body());
+            return result;
+        } catch (GeneralSecurityException | IOException e) {
+            log.error("Failed to replay webhook fixture {}: {}", fixture, e.getMessage());
+            throw new RuntimeException("Failed to replay webhook fixture: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while replaying webhook fixture");
+        }
+    }
+
+    private String loadFixture(String fixture) {
+        ClassPathResource resource = new ClassPathResource("webhook-fixtures/" + fixture + ".json");
+        if (!resource.exists()) {
+            throw new RuntimeException("Unknown webhook fixture: " + fixture);
+        }
+        try (InputStream in = resource.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read webhook fixture " + fixture, e);
+        }
+    }
+}
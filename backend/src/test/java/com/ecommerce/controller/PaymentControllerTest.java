@@ -0,0 +1,80 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.dto.OrderResponse;
+import com.ecommerce.dto.PaymentIntentResponse;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.Payment;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.PaymentRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.service.OrderService;
+import com.ecommerce.service.PaymentGateway;
+import com.ecommerce.service.PaymentService;
+import com.ecommerce.support.IntegrationTest;
+import com.ecommerce.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class PaymentControllerTest extends IntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentGateway paymentGateway;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Test
+    void clientConfirmationIsOnlyAcceptedOnceTheProviderReportsSuccess() throws Exception {
+        Product product = productRepository.save(TestData.product("Client confirmation", 5));
+        OrderResponse order = orderService.createOrder(TestData.orderRequest("client-confirm@example.com", product),
+                null);
+        PaymentIntentResponse intent = paymentService.createPaymentIntent(order.getId());
+        String body = "{\"paymentIntentId\":\"" + intent.getPaymentIntentId() + "\"}";
+
+        // The stub still reports the intent as open
+        mockMvc.perform(post("/api/payments/confirm").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isConflict());
+        assertThat(paymentRepository.findByOrderId(order.getId()).orElseThrow().getStatus())
+                .isEqualTo(Payment.PaymentStatus.PENDING);
+
+        ReflectionTestUtils.setField(paymentGateway, "intentSucceededRate", 1.0);
+        try {
+            mockMvc.perform(post("/api/payments/confirm").contentType(MediaType.APPLICATION_JSON).content(body))
+                    .andExpect(status().isOk());
+        } finally {
+            ReflectionTestUtils.setField(paymentGateway, "intentSucceededRate", 0.0);
+        }
+        assertThat(orderRepository.findById(order.getId()).orElseThrow().getStatus())
+                .isEqualTo(Order.OrderStatus.PAID);
+    }
+
+    @Test
+    void unknownIntentIsNotConfirmed() throws Exception {
+        mockMvc.perform(post("/api/payments/confirm").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"paymentIntentId\":\"pi_made_up\"}"))
+                .andExpect(status().is4xxClientError());
+    }
+}
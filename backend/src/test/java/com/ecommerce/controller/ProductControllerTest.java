@@ -0,0 +1,125 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.service.ProductService;
+import com.ecommerce.support.IntegrationTest;
+import com.ecommerce.support.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ProductControllerTest extends IntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    private String category;
+
+    @BeforeEach
+    void setUp() {
+        category = "Etag " + UUID.randomUUID();
+        Product product = TestData.product("Cached listing", 4);
+        product.setCategory(category);
+        productRepository.save(product);
+        // Saving through the repository publishes no change event, so reload the catalog as another instance would
+        reloadCatalog();
+    }
+
+    @Test
+    void gzipAndIdentityBodiesHaveDifferentTags() throws Exception {
+        MvcResult identity = mockMvc.perform(get("/api/products/category/{category}", category))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+                .andReturn();
+        MvcResult gzip = mockMvc.perform(get("/api/products/category/{category}", category)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+                .andReturn();
+
+        String identityTag = identity.getResponse().getHeader(HttpHeaders.ETAG);
+        String gzipTag = gzip.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(gzipTag).isNotEqualTo(identityTag).endsWith("-gzip\"");
+        assertThat(gunzip(gzip.getResponse().getContentAsByteArray()))
+                .isEqualTo(identity.getResponse().getContentAsByteArray());
+        assertThat(identity.getResponse().getContentAsString()).contains("Cached listing");
+    }
+
+    @Test
+    void eitherEncodingsTagAnswersNotModified() throws Exception {
+        String identityTag = mockMvc.perform(get("/api/products/category/{category}", category))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String gzipTag = mockMvc.perform(get("/api/products/category/{category}", category)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/products/category/{category}", category)
+                        .header(HttpHeaders.IF_NONE_MATCH, identityTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, identityTag))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+                .andExpect(content().bytes(new byte[0]));
+        mockMvc.perform(get("/api/products/category/{category}", category)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, identityTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, gzipTag));
+        mockMvc.perform(get("/api/products/category/{category}", category)
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/" + gzipTag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void changedListingIsServedAgainUnderANewTag() throws Exception {
+        String tag = mockMvc.perform(get("/api/products/category/{category}", category))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        Product added = TestData.product("Second cached listing", 2);
+        added.setCategory(category);
+        productRepository.save(added);
+        reloadCatalog();
+
+        MvcResult changed = mockMvc.perform(get("/api/products/category/{category}", category)
+                        .header(HttpHeaders.IF_NONE_MATCH, tag))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(changed.getResponse().getHeader(HttpHeaders.ETAG)).isNotEqualTo(tag);
+        assertThat(changed.getResponse().getContentAsString()).contains("Second cached listing");
+    }
+
+    private void reloadCatalog() {
+        productService.getCatalog();
+        productService.scheduleFullRefresh();
+        productService.refreshCatalog();
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.support.IntegrationTest;
+import com.ecommerce.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many simultaneous checkouts racing for a product with little stock must never oversell it.
+ */
+class CheckoutConcurrencyTest extends IntegrationTest {
+
+    private static final int INITIAL_STOCK = 7;
+    private static final int CHECKOUTS = 48;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void parallelCheckoutsNeverOversellLowStock() throws Exception {
+        Product scarce = saveProduct("Scarce item", INITIAL_STOCK);
+        Product plentiful = saveProduct("Plentiful item", 10_000);
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < CHECKOUTS; i++) {
+            // Mixed carts: the scarce product together with another line, in either order
+            boolean scarceFirst = i % 2 == 0;
+            results.add(pool.submit(() -> {
+                start.await();
+                try {
+                    orderService.createOrder(TestData.orderRequest("race@example.com",
+                            scarceFirst ? scarce : plentiful, scarceFirst ? plentiful : scarce), null);
+                    return true;
+                } catch (RuntimeException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+
+        int succeeded = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(60, TimeUnit.SECONDS)) {
+                succeeded++;
+            }
+        }
+        pool.shutdown();
+
+        int finalStock = productRepository.findById(scarce.getId()).orElseThrow().getStockQuantity();
+        int plentifulStock = productRepository.findById(plentiful.getId()).orElseThrow().getStockQuantity();
+        assertThat(finalStock).isGreaterThanOrEqualTo(0);
+        assertThat(succeeded).isLessThanOrEqualTo(INITIAL_STOCK);
+        assertThat(succeeded + finalStock).isEqualTo(INITIAL_STOCK);
+        // A rejected checkout must not keep the decrement of its other line
+        assertThat(plentifulStock).isEqualTo(10_000 - succeeded);
+    }
+
+    private Product saveProduct(String name, int stock) {
+        return productRepository.save(TestData.product(name, stock));
+    }
+}
@@ -0,0 +1,101 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.CheckoutTicketResponse;
+import com.ecommerce.model.CheckoutTicket;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.CheckoutTicketRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.support.IntegrationTest;
+import com.ecommerce.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CheckoutQueueServiceTest extends IntegrationTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CheckoutTicketRepository checkoutTicketRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<CheckoutQueueService> instances = new ArrayList<>();
+
+    @AfterEach
+    void stopInstances() {
+        instances.forEach(CheckoutQueueService::stopWorkers);
+    }
+
+    @Test
+    void queuedTicketIsStoredAndCompletedByAWorker() throws Exception {
+        Product product = productRepository.save(TestData.product("Queued checkout", 5));
+        CheckoutQueueService service = instance();
+        service.startWorkers();
+
+        CheckoutTicketResponse queued = service.submit(TestData.orderRequest("queued@example.com", product), null);
+        CheckoutTicketResponse done = service.awaitTicket(queued.getTicketId()).get(10, TimeUnit.SECONDS);
+
+        assertThat(done.getStatus()).isEqualTo(CheckoutTicket.Status.COMPLETED.name());
+        CheckoutTicket stored = checkoutTicketRepository.findByTicketId(queued.getTicketId()).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(CheckoutTicket.Status.COMPLETED);
+        assertThat(stored.getOrderId()).isEqualTo(done.getOrderId());
+    }
+
+    @Test
+    void shutdownFailsTicketsStillInTheQueue() {
+        Product product = productRepository.save(TestData.product("Interrupted checkout", 5));
+        // No workers, so the ticket is still queued when the instance stops
+        CheckoutQueueService service = instance();
+        CheckoutTicketResponse queued = service.submit(TestData.orderRequest("shutdown@example.com", product), null);
+        assertThat(checkoutTicketRepository.findByTicketId(queued.getTicketId()).orElseThrow().getStatus())
+                .isEqualTo(CheckoutTicket.Status.QUEUED);
+
+        service.stopWorkers();
+
+        // Any other instance now reports the outcome from the stored ticket
+        CheckoutTicketResponse polled = instance().getTicket(queued.getTicketId());
+        assertThat(polled.getStatus()).isEqualTo(CheckoutTicket.Status.FAILED.name());
+        assertThat(polled.getError()).contains("please retry");
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStockQuantity()).isEqualTo(5);
+    }
+
+    @Test
+    void unknownTicketIsNotReportedAsQueued() {
+        String ticketId = Long.toString(System.currentTimeMillis(), 36) + "-unknown";
+
+        assertThatThrownBy(() -> instance().getTicket(ticketId))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+    }
+
+    private CheckoutQueueService instance() {
+        CheckoutQueueService service = new CheckoutQueueService(orderService, checkoutTicketRepository,
+                transactionTemplate);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "workerCount", 2);
+        ReflectionTestUtils.setField(service, "batchSize", 10);
+        ReflectionTestUtils.setField(service, "queueCapacityPerProduct", 100);
+        ReflectionTestUtils.setField(service, "maxQueued", 1000);
+        ReflectionTestUtils.setField(service, "resultTtlMinutes", 30L);
+        ReflectionTestUtils.setField(service, "shutdownTimeoutMs", 5000L);
+        instances.add(service);
+        return service;
+    }
+}
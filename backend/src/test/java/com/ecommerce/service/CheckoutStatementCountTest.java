@@ -0,0 +1,73 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.CartItemRequest;
+import com.ecommerce.dto.CreateOrderRequest;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checkout round trips per cart size: product reads and stock updates must not grow with the number of lines.
+ */
+class CheckoutStatementCountTest extends IntegrationTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void productRoundTripsAreConstantInCartSize() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            products.add(productRepository.save(Product.builder()
+                    .name("Round trip product " + i)
+                    .price(new BigDecimal("12.50"))
+                    .stockQuantity(100)
+                    .category("Statements")
+                    .build()));
+        }
+
+        Counts oneLine = checkout(products.subList(0, 1));
+        Counts eightLines = checkout(products);
+        System.out.printf("checkout statements: 1 line = %d (%d on products), 8 lines = %d (%d on products)%n",
+                oneLine.total(), oneLine.products(), eightLines.total(), eightLines.products());
+
+        // One SELECT ... WHERE id IN (...) and one batched conditional UPDATE, whatever the cart size
+        assertThat(oneLine.products()).isEqualTo(2);
+        assertThat(eightLines.products()).isEqualTo(2);
+    }
+
+    private Counts checkout(List<Product> products) {
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setCustomerEmail("statements@example.com");
+        request.setShippingAddress("1 Test Street");
+        request.setShippingCity("Testville");
+        request.setShippingZipCode("12345");
+        request.setShippingCountry("US");
+        List<CartItemRequest> items = new ArrayList<>();
+        for (Product product : products) {
+            CartItemRequest item = new CartItemRequest();
+            item.setProductId(product.getId());
+            item.setQuantity(1);
+            items.add(item);
+        }
+        request.setItems(items);
+
+        statementCounter.reset();
+        orderService.createOrder(request, null);
+        return new Counts(statementCounter.statementsOnCurrentThread().size(), statementCounter.countOnCurrentThread("products"));
+    }
+
+    private record Counts(long total, long products) {
+    }
+}
@@ -0,0 +1,103 @@
+package com.ecommerce.service;
+
+import com.ecommerce.repository.IdempotencyRecordRepository;
+import com.ecommerce.support.IntegrationTest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyServiceTest extends IntegrationTest {
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<IdempotencyService> instances = new ArrayList<>();
+
+    @AfterEach
+    void stopInstances() {
+        instances.forEach(IdempotencyService::stopHeartbeat);
+    }
+
+    @Test
+    void keysAreScopedToTheirOwner() {
+        IdempotencyService service = instance(60_000, 10_000);
+        String key = UUID.randomUUID().toString();
+        AtomicInteger runs = new AtomicInteger();
+
+        String alice = service.execute("test", "alice@example.com", key, "same request", String.class,
+                () -> "order " + runs.incrementAndGet());
+        String bob = service.execute("test", "bob@example.com", key, "same request", String.class,
+                () -> "order " + runs.incrementAndGet());
+        String aliceAgain = service.execute("test", "alice@example.com", key, "same request", String.class,
+                () -> "order " + runs.incrementAndGet());
+
+        assertThat(runs).hasValue(2);
+        assertThat(alice).isEqualTo("order 1").isEqualTo(aliceAgain);
+        assertThat(bob).isEqualTo("order 2");
+    }
+
+    @Test
+    void heartbeatKeepsALongRequestFromBeingTakenOver() throws Exception {
+        // Two instances with a lock timeout far shorter than the request, so only the heartbeat prevents a takeover
+        IdempotencyService first = instance(400, 10_000);
+        IdempotencyService second = instance(400, 10_000);
+        String key = UUID.randomUUID().toString();
+        AtomicInteger runs = new AtomicInteger();
+
+        CompletableFuture<String> slow = CompletableFuture.supplyAsync(() -> first.executeOutsideTransaction(
+                "test", "carol@example.com", key, "slow request", String.class, () -> {
+                    runs.incrementAndGet();
+                    pause(1500);
+                    return "done";
+                }));
+        pause(200);
+        String duplicate = second.executeOutsideTransaction("test", "carol@example.com", key, "slow request",
+                String.class, () -> {
+                    runs.incrementAndGet();
+                    return "ran twice";
+                });
+
+        assertThat(slow.get(10, TimeUnit.SECONDS)).isEqualTo("done");
+        assertThat(duplicate).isEqualTo("done");
+        assertThat(runs).hasValue(1);
+    }
+
+    private IdempotencyService instance(long lockTimeoutMs, long waitTimeoutMs) {
+        IdempotencyService service = new IdempotencyService(idempotencyRecordRepository, objectMapper,
+                transactionManager, 100);
+        ReflectionTestUtils.setField(service, "ttlHours", 24L);
+        ReflectionTestUtils.setField(service, "lockTimeoutMs", lockTimeoutMs);
+        ReflectionTestUtils.setField(service, "waitTimeoutMs", waitTimeoutMs);
+        ReflectionTestUtils.setField(service, "heartbeatIntervalMs", 100L);
+        service.startHeartbeat();
+        instances.add(service);
+        return service;
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderResponse;
+import com.ecommerce.dto.PaymentIntentResponse;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.Payment;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.PaymentRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.support.IntegrationTest;
+import com.ecommerce.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InventoryReservationServiceTest extends IntegrationTest {
+
+    @Autowired
+    private InventoryReservationService inventoryReservationService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentGateway paymentGateway;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void sweeperCancelsStaleOrderItsPaymentAndTheRemoteIntent() throws Exception {
+        Product product = productRepository.save(TestData.product("Abandoned cart item", 3));
+        OrderResponse order = orderService.createOrder(TestData.orderRequest("sweep@example.com", product), null);
+        PaymentIntentResponse intent = paymentService.createPaymentIntent(order.getId());
+        jdbcTemplate.update("UPDATE orders SET created_at = ? WHERE id = ?",
+                LocalDateTime.now().minusHours(2), order.getId());
+
+        inventoryReservationService.sweepExpiredHolds();
+
+        assertThat(orderRepository.findById(order.getId()).orElseThrow().getStatus())
+                .isEqualTo(Order.OrderStatus.CANCELLED);
+        assertThat(paymentRepository.findByOrderId(order.getId()).orElseThrow().getStatus())
+                .isEqualTo(Payment.PaymentStatus.CANCELLED);
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStockQuantity()).isEqualTo(3);
+
+        // The provider intent is cancelled in the background after the sweep transaction committed
+        long deadline = System.currentTimeMillis() + 5000;
+        PaymentGateway.IntentStatus status = paymentGateway.getPaymentIntentStatus(intent.getPaymentIntentId());
+        while (status != PaymentGateway.IntentStatus.CANCELED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            status = paymentGateway.getPaymentIntentStatus(intent.getPaymentIntentId());
+        }
+        assertThat(status).isEqualTo(PaymentGateway.IntentStatus.CANCELED);
+    }
+}
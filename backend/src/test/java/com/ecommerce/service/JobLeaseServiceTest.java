@@ -0,0 +1,41 @@
+package com.ecommerce.service;
+
+import com.ecommerce.repository.JobLeaseRepository;
+import com.ecommerce.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JobLeaseServiceTest extends IntegrationTest {
+
+    @Autowired
+    private JobLeaseRepository jobLeaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void onlyOneInstanceHoldsALiveLease() {
+        JobLeaseService first = new JobLeaseService(jobLeaseRepository, transactionManager);
+        JobLeaseService second = new JobLeaseService(jobLeaseRepository, transactionManager);
+
+        assertThat(first.tryAcquire("lease-test", Duration.ofMinutes(5))).isTrue();
+        assertThat(second.tryAcquire("lease-test", Duration.ofMinutes(5))).isFalse();
+        // The owner keeps renewing its own lease
+        assertThat(first.tryAcquire("lease-test", Duration.ofMinutes(5))).isTrue();
+    }
+
+    @Test
+    void expiredLeaseIsTakenOver() {
+        JobLeaseService crashed = new JobLeaseService(jobLeaseRepository, transactionManager);
+        JobLeaseService survivor = new JobLeaseService(jobLeaseRepository, transactionManager);
+
+        assertThat(crashed.tryAcquire("takeover-test", Duration.ofSeconds(-1))).isTrue();
+        assertThat(survivor.tryAcquire("takeover-test", Duration.ofMinutes(5))).isTrue();
+        assertThat(crashed.tryAcquire("takeover-test", Duration.ofMinutes(5))).isFalse();
+    }
+}
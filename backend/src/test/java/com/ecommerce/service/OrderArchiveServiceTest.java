@@ -0,0 +1,56 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderResponse;
+import com.ecommerce.dto.PaymentIntentResponse;
+import com.ecommerce.model.ArchivedOrder;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.Payment;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ArchivedOrderRepository;
+import com.ecommerce.repository.PaymentRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.support.IntegrationTest;
+import com.ecommerce.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderArchiveServiceTest extends IntegrationTest {
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    @Test
+    void archivedOrderKeepsThePaymentsProviderReference() {
+        Product product = productRepository.save(TestData.product("Archived", 5));
+        OrderResponse order = orderService.createOrder(TestData.orderRequest("archive@example.com", product), null);
+        PaymentIntentResponse intent = paymentService.createPaymentIntent(order.getId());
+        Long paymentId = paymentRepository.findByOrderId(order.getId()).orElseThrow().getId();
+        orderService.updateOrderStatus(order.getId(), Order.OrderStatus.CANCELLED, null);
+
+        orderArchiveService.archiveOrders(0);
+
+        assertThat(paymentRepository.findById(paymentId)).isEmpty();
+        ArchivedOrder archived = archivedOrderRepository.findByPaymentIntentId(intent.getPaymentIntentId())
+                .orElseThrow();
+        assertThat(archived.getId()).isEqualTo(order.getId());
+        assertThat(archived.getPaymentId()).isEqualTo(paymentId);
+        assertThat(archived.getPaymentStatus()).isEqualTo(Payment.PaymentStatus.CANCELLED);
+    }
+}
@@ -0,0 +1,83 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.BulkOrderStatusRequest;
+import com.ecommerce.dto.BulkOrderStatusResponse;
+import com.ecommerce.model.Order;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.support.IntegrationTest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bulk status transitions of 10k orders, by id and by filter, against the configured datasource.
+ * Run with {@code mvn test -Pbenchmark -Dtest=OrderBulkStatusBenchmarkTest}.
+ */
+@Tag("benchmark")
+class OrderBulkStatusBenchmarkTest extends IntegrationTest {
+
+    private static final int ORDERS = 10_000;
+
+    @Autowired
+    private OrderBulkStatusService orderBulkStatusService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Test
+    void bulkTransitionOfTenThousandOrders() {
+        // Warm-up run so JIT and connection pool are hot
+        run(orders(1_000, Order.OrderStatus.PAID), "shipped");
+
+        List<Long> paid = orders(ORDERS, Order.OrderStatus.PAID);
+        BulkOrderStatusResponse byIds = run(paid, "shipped");
+        assertThat(byIds.getUpdated()).hasSize(ORDERS);
+
+        String prefix = "bulk-bench-" + UUID.randomUUID();
+        orders(ORDERS, Order.OrderStatus.PENDING, prefix);
+        BulkOrderStatusRequest request = new BulkOrderStatusRequest();
+        request.setStatus("paid");
+        BulkOrderStatusRequest.Filter filter = new BulkOrderStatusRequest.Filter();
+        filter.setStatus("pending");
+        filter.setCustomerEmail(prefix);
+        request.setFilter(filter);
+        BulkOrderStatusResponse byFilter = orderBulkStatusService.updateStatuses(request);
+        System.out.printf("PENDING to PAID by filter: %d orders in %d ms%n",
+                byFilter.getUpdated().size(), byFilter.getDurationMs());
+        assertThat(byFilter.getUpdated()).hasSize(ORDERS);
+    }
+
+    private BulkOrderStatusResponse run(List<Long> orderIds, String status) {
+        BulkOrderStatusRequest request = new BulkOrderStatusRequest();
+        request.setStatus(status);
+        request.setOrderIds(orderIds);
+        BulkOrderStatusResponse response = orderBulkStatusService.updateStatuses(request);
+        System.out.printf("to %s by id: %d orders in %d ms%n", response.getStatus(), response.getUpdated().size(),
+                response.getDurationMs());
+        return response;
+    }
+
+    private List<Long> orders(int count, Order.OrderStatus status) {
+        return orders(count, status, "bulk-bench-" + UUID.randomUUID());
+    }
+
+    private List<Long> orders(int count, Order.OrderStatus status, String emailPrefix) {
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            orders.add(Order.builder()
+                    .customerEmail(emailPrefix + "-" + i + "@example.com")
+                    .shippingAddress("1 Benchmark Street")
+                    .totalAmount(new BigDecimal("19.99"))
+                    .status(status)
+                    .build());
+        }
+        return orderRepository.saveAll(orders).stream().map(Order::getId).toList();
+    }
+}
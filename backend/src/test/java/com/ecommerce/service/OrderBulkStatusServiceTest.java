@@ -0,0 +1,170 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.BulkOrderStatusRequest;
+import com.ecommerce.dto.BulkOrderStatusResponse;
+import com.ecommerce.dto.OrderResponse;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.Payment;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.PaymentRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.support.IntegrationTest;
+import com.ecommerce.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class OrderBulkStatusServiceTest extends IntegrationTest {
+
+    @Autowired
+    private OrderBulkStatusService orderBulkStatusService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Test
+    void classifiesEveryIdByTheAllowedTransitions() {
+        Product product = productRepository.save(TestData.product("Bulk transitions", 10));
+        Long paid = order(product, "bulk-paid@example.com", Order.OrderStatus.PAID);
+        Long processing = order(product, "bulk-processing@example.com", Order.OrderStatus.PROCESSING);
+        Long shipped = order(product, "bulk-shipped@example.com", Order.OrderStatus.SHIPPED);
+        Long delivered = order(product, "bulk-delivered@example.com", Order.OrderStatus.DELIVERED);
+        Long pending = order(product, "bulk-pending@example.com", Order.OrderStatus.PENDING);
+        long missing = Long.MAX_VALUE;
+
+        BulkOrderStatusResponse response = orderBulkStatusService.updateStatuses(
+                byIds("shipped", paid, processing, shipped, delivered, pending, missing, paid));
+
+        assertThat(response.getRequested()).isEqualTo(6);
+        assertThat(response.getUpdated()).containsExactlyInAnyOrder(paid, processing);
+        assertThat(response.getUnchanged()).containsExactly(shipped);
+        assertThat(response.getNotFound()).containsExactly(missing);
+        assertThat(response.getRejected())
+                .extracting(BulkOrderStatusResponse.Rejected::getId, BulkOrderStatusResponse.Rejected::getCurrentStatus)
+                .containsExactlyInAnyOrder(
+                        tuple(delivered, "DELIVERED"),
+                        tuple(pending, "PENDING"));
+        assertThat(status(paid)).isEqualTo(Order.OrderStatus.SHIPPED);
+        assertThat(status(processing)).isEqualTo(Order.OrderStatus.SHIPPED);
+        assertThat(status(delivered)).isEqualTo(Order.OrderStatus.DELIVERED);
+        assertThat(status(pending)).isEqualTo(Order.OrderStatus.PENDING);
+    }
+
+    @Test
+    void filterSelectsOrdersByTheirCurrentStatus() {
+        Product product = productRepository.save(TestData.product("Bulk filter", 10));
+        String prefix = "bulk-filter-" + UUID.randomUUID();
+        Long first = order(product, prefix + "-1@example.com", Order.OrderStatus.PAID);
+        Long second = order(product, prefix + "-2@example.com", Order.OrderStatus.PAID);
+        Long otherStatus = order(product, prefix + "-3@example.com", Order.OrderStatus.PENDING);
+        BulkOrderStatusRequest request = new BulkOrderStatusRequest();
+        request.setStatus("processing");
+        BulkOrderStatusRequest.Filter filter = new BulkOrderStatusRequest.Filter();
+        filter.setStatus("paid");
+        filter.setCustomerEmail(prefix);
+        request.setFilter(filter);
+
+        BulkOrderStatusResponse response = orderBulkStatusService.updateStatuses(request);
+
+        assertThat(response.getUpdated()).containsExactlyInAnyOrder(first, second);
+        assertThat(status(otherStatus)).isEqualTo(Order.OrderStatus.PENDING);
+    }
+
+    @Test
+    void requestNeedsExactlyOneOfIdsAndFilter() {
+        BulkOrderStatusRequest neither = new BulkOrderStatusRequest();
+        neither.setStatus("shipped");
+        assertThatThrownBy(() -> orderBulkStatusService.updateStatuses(neither))
+                .hasMessage("Provide either orderIds or a filter");
+
+        BulkOrderStatusRequest both = byIds("shipped", 1L);
+        both.setFilter(new BulkOrderStatusRequest.Filter());
+        assertThatThrownBy(() -> orderBulkStatusService.updateStatuses(both))
+                .hasMessage("Provide either orderIds or a filter");
+    }
+
+    @Test
+    void updateBumpsTheVersionSoStaleWritersConflict() {
+        Product product = productRepository.save(TestData.product("Bulk version", 10));
+        Long orderId = order(product, "bulk-version@example.com", Order.OrderStatus.PAID);
+        Order stale = orderRepository.findById(orderId).orElseThrow();
+
+        orderBulkStatusService.updateStatuses(byIds("shipped", orderId));
+
+        assertThat(orderRepository.findById(orderId).orElseThrow().getVersion()).isEqualTo(stale.getVersion() + 1);
+        stale.setStatus(Order.OrderStatus.CANCELLED);
+        assertThatThrownBy(() -> orderRepository.save(stale))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThat(status(orderId)).isEqualTo(Order.OrderStatus.SHIPPED);
+    }
+
+    @Test
+    void cancellingPendingOrdersRestocksAndCancelsTheirPayments() {
+        Product product = productRepository.save(TestData.product("Bulk cancel", 10));
+        OrderResponse first = orderService.createOrder(TestData.orderRequest("bulk-cancel-1@example.com", product), null);
+        OrderResponse second = orderService.createOrder(TestData.orderRequest("bulk-cancel-2@example.com", product), null);
+        Long paid = order(product, "bulk-cancel-paid@example.com", Order.OrderStatus.PAID);
+        paymentService.createPaymentIntent(first.getId());
+        assertThat(stock(product)).isEqualTo(7);
+
+        BulkOrderStatusResponse response = orderBulkStatusService.updateStatuses(
+                byIds("cancelled", first.getId(), second.getId(), paid));
+
+        assertThat(response.getUpdated()).containsExactlyInAnyOrder(first.getId(), second.getId(), paid);
+        // Only the two pending orders still held stock; the paid order's stock went out with the payment
+        assertThat(stock(product)).isEqualTo(9);
+        assertThat(paymentRepository.findByOrderId(first.getId()).orElseThrow().getStatus())
+                .isEqualTo(Payment.PaymentStatus.CANCELLED);
+
+        // Cancelling again changes nothing and does not restock twice
+        BulkOrderStatusResponse again = orderBulkStatusService.updateStatuses(
+                byIds("cancelled", first.getId(), second.getId()));
+        assertThat(again.getUnchanged()).containsExactlyInAnyOrder(first.getId(), second.getId());
+        assertThat(stock(product)).isEqualTo(9);
+    }
+
+    private Long order(Product product, String email, Order.OrderStatus status) {
+        OrderResponse order = orderService.createOrder(TestData.orderRequest(email, product), null);
+        if (status != Order.OrderStatus.PENDING) {
+            Order entity = orderRepository.findById(order.getId()).orElseThrow();
+            entity.setStatus(status);
+            orderRepository.save(entity);
+        }
+        return order.getId();
+    }
+
+    private Order.OrderStatus status(Long orderId) {
+        return orderRepository.findById(orderId).orElseThrow().getStatus();
+    }
+
+    private int stock(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().getStockQuantity();
+    }
+
+    private static BulkOrderStatusRequest byIds(String status, Long... orderIds) {
+        BulkOrderStatusRequest request = new BulkOrderStatusRequest();
+        request.setStatus(status);
+        request.setOrderIds(List.of(orderIds));
+        return request;
+    }
+}
@@ -0,0 +1,160 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderResponse;
+import com.ecommerce.dto.PaymentIntentResponse;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.Payment;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.PaymentRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.support.IntegrationTest;
+import com.ecommerce.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Admin cancellations racing with each other and with payment: version conflicts are retried, and whichever change
+ * wins, stock, payment and provider intent end up consistent with the order.
+ */
+class OrderCancellationConcurrencyTest extends IntegrationTest {
+
+    private static final int STOCK = 20;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentGateway paymentGateway;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Test
+    void concurrentCancellationsRestockOnceAndCancelThePayment() throws Exception {
+        Product product = productRepository.save(TestData.product("Cancelled twice", STOCK));
+        OrderResponse order = orderService.createOrder(TestData.orderRequest("cancel@example.com", product), null);
+        PaymentIntentResponse intent = paymentService.createPaymentIntent(order.getId());
+
+        List<Outcome> outcomes = race(8, () -> orderService.updateOrderStatus(order.getId(),
+                Order.OrderStatus.CANCELLED, null));
+
+        assertThat(outcomes).contains(Outcome.SUCCEEDED).doesNotContain(Outcome.FAILED);
+        assertThat(orderRepository.findById(order.getId()).orElseThrow().getStatus())
+                .isEqualTo(Order.OrderStatus.CANCELLED);
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStockQuantity()).isEqualTo(STOCK);
+        assertThat(paymentRepository.findByOrderId(order.getId()).orElseThrow().getStatus())
+                .isEqualTo(Payment.PaymentStatus.CANCELLED);
+        awaitIntentStatus(intent.getPaymentIntentId(), PaymentGateway.IntentStatus.CANCELED);
+    }
+
+    @Test
+    void cancellationRacingPaymentLeavesAConsistentOrder() throws Exception {
+        for (int round = 0; round < 5; round++) {
+            Product product = productRepository.save(TestData.product("Cancel or pay " + round, STOCK));
+            OrderResponse order = orderService.createOrder(TestData.orderRequest("race@example.com", product), null);
+            PaymentIntentResponse intent = paymentService.createPaymentIntent(order.getId());
+
+            // The admin cancels the version they saw, so a payment that lands first turns the cancel into a 409
+            List<Outcome> outcomes = race(2, () -> orderService.updateOrderStatus(order.getId(), Order.OrderStatus.CANCELLED,
+                            order.getVersion()),
+                    () -> paymentService.confirmPayments(List.of(intent.getPaymentIntentId())));
+
+            assertThat(outcomes).doesNotContain(Outcome.FAILED);
+
+            Order.OrderStatus status = orderRepository.findById(order.getId()).orElseThrow().getStatus();
+            Payment.PaymentStatus paymentStatus = paymentRepository.findByOrderId(order.getId()).orElseThrow()
+                    .getStatus();
+            int stock = productRepository.findById(product.getId()).orElseThrow().getStockQuantity();
+            if (status == Order.OrderStatus.CANCELLED) {
+                assertThat(paymentStatus).isEqualTo(Payment.PaymentStatus.CANCELLED);
+                assertThat(stock).isEqualTo(STOCK);
+            } else {
+                assertThat(status).isEqualTo(Order.OrderStatus.PAID);
+                assertThat(paymentStatus).isEqualTo(Payment.PaymentStatus.SUCCEEDED);
+                assertThat(stock).isEqualTo(STOCK - 1);
+            }
+        }
+    }
+
+    @Test
+    void staleExpectedVersionIsRejected() {
+        Product product = productRepository.save(TestData.product("Stale version", STOCK));
+        OrderResponse order = orderService.createOrder(TestData.orderRequest("stale@example.com", product), null);
+        orderService.updateOrderStatus(order.getId(), Order.OrderStatus.PAID, null);
+
+        assertThatThrownBy(() -> orderService.updateOrderStatus(order.getId(), Order.OrderStatus.CANCELLED,
+                order.getVersion()))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStockQuantity())
+                .isEqualTo(STOCK - 1);
+    }
+
+    private enum Outcome {
+        SUCCEEDED,
+        CONFLICT,
+        FAILED
+    }
+
+    private List<Outcome> race(int threads, Callable<?>... actions) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Outcome>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Callable<?> action = actions[i % actions.length];
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        action.call();
+                        return Outcome.SUCCEEDED;
+                    } catch (ResponseStatusException e) {
+                        return e.getStatusCode() == HttpStatus.CONFLICT ? Outcome.CONFLICT : Outcome.FAILED;
+                    }
+                }));
+            }
+            start.countDown();
+            List<Outcome> outcomes = new ArrayList<>();
+            for (Future<Outcome> future : futures) {
+                outcomes.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return outcomes;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void awaitIntentStatus(String intentId, PaymentGateway.IntentStatus expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        PaymentGateway.IntentStatus status = paymentGateway.getPaymentIntentStatus(intentId);
+        while (status != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            status = paymentGateway.getPaymentIntentStatus(intentId);
+        }
+        assertThat(status).isEqualTo(expected);
+    }
+}
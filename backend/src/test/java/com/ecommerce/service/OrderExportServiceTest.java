@@ -0,0 +1,80 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderResponse;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.support.IntegrationTest;
+import com.ecommerce.support.TestData;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderExportServiceTest extends IntegrationTest {
+
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void ndjsonHasOneCompleteLinePerOrder() throws Exception {
+        Product first = productRepository.save(TestData.product("Exported first", 10));
+        Product second = productRepository.save(TestData.product("Exported second", 10));
+        OrderResponse order = orderService.createOrder(TestData.orderRequest("export@example.com", first, second), null);
+
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : export(OrderExportService.FORMAT_NDJSON)) {
+            lines.add(objectMapper.readTree(line));
+        }
+
+        List<JsonNode> exported = lines.stream().filter(line -> line.get("id").asLong() == order.getId()).toList();
+        assertThat(exported).singleElement().satisfies(line -> {
+            assertThat(line.get("customerEmail").asText()).isEqualTo("export@example.com");
+            assertThat(line.get("items")).hasSize(2);
+        });
+        assertThat(lines.stream().map(line -> line.get("id").asLong()).distinct().count()).isEqualTo(lines.size());
+    }
+
+    @Test
+    void csvHasAHeaderAndOneRowPerItem() throws Exception {
+        Product first = productRepository.save(TestData.product("Csv, quoted", 10));
+        Product second = productRepository.save(TestData.product("Csv plain", 10));
+        OrderResponse order = orderService.createOrder(TestData.orderRequest("export-csv@example.com", first, second),
+                null);
+
+        List<String> rows = export(OrderExportService.FORMAT_CSV);
+
+        assertThat(rows.get(0)).startsWith("order_id,created_at,status,customer_email");
+        List<String> orderRows = rows.stream().filter(row -> row.startsWith(order.getId() + ",")).toList();
+        assertThat(orderRows).hasSize(2);
+        assertThat(orderRows).anySatisfy(row -> assertThat(row).contains("\"Csv, quoted\""));
+    }
+
+    @Test
+    void rejectsUnknownFormats() {
+        assertThatThrownBy(() -> orderExportService.exportOrders(new ByteArrayOutputStream(), "xml"))
+                .hasMessage("Unsupported export format: xml");
+    }
+
+    private List<String> export(String format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        orderExportService.exportOrders(out, format);
+        return out.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+}
@@ -0,0 +1,99 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderResponse;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.support.IntegrationTest;
+import com.ecommerce.support.TestData;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Order reads through {@code Order.DETAILS_GRAPH} must fetch items, products and the payment in the same query instead
+ * of lazily loading them per order. Hibernate statistics are global, so the fetch counters are compared before and
+ * after while the statement count is taken for the test thread only.
+ */
+class OrderReadStatementCountTest extends IntegrationTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        assertThat(statistics.isStatisticsEnabled()).isTrue();
+    }
+
+    @Test
+    void orderByIdIsOneQuery() {
+        Long orderId = placeOrder("single-read@example.com", 4);
+
+        Snapshot before = snapshot();
+        statementCounter.reset();
+        OrderResponse order = orderService.getOrderById(orderId);
+        Snapshot after = snapshot();
+
+        assertThat(order.getItems()).hasSize(4);
+        assertThat(statementCounter.statementsOnCurrentThread()).hasSize(1);
+        assertThat(after.detailsQueries() - before.detailsQueries()).isEqualTo(1);
+        assertThat(after.lazyFetches() - before.lazyFetches()).isZero();
+    }
+
+    @Test
+    void ordersByEmailDoNotGrowWithOrderCount() {
+        String email = "list-read@example.com";
+        for (int i = 0; i < 5; i++) {
+            placeOrder(email, 3);
+        }
+
+        Snapshot before = snapshot();
+        statementCounter.reset();
+        List<OrderResponse> orders = orderService.getOrdersByUserEmail(email);
+        Snapshot after = snapshot();
+
+        assertThat(orders).hasSize(5);
+        // One graph query for live orders and one lookup of archived orders
+        assertThat(statementCounter.statementsOnCurrentThread()).hasSize(2);
+        assertThat(after.lazyFetches() - before.lazyFetches()).isZero();
+    }
+
+    private Long placeOrder(String email, int lines) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            products.add(productRepository.save(TestData.product("Graph product " + i, 10)));
+        }
+        Long orderId = orderService.createOrder(TestData.orderRequest(email, products.toArray(Product[]::new)), null)
+                .getId();
+        paymentService.createPaymentIntent(orderId);
+        return orderId;
+    }
+
+    private Snapshot snapshot() {
+        return new Snapshot(
+                statistics.getQueryStatistics("SELECT o FROM Order o WHERE o.id = :id").getExecutionCount(),
+                statistics.getEntityFetchCount() + statistics.getCollectionFetchCount());
+    }
+
+    private record Snapshot(long detailsQueries, long lazyFetches) {
+    }
+}
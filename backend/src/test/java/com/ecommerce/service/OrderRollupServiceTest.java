@@ -0,0 +1,136 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderResponse;
+import com.ecommerce.dto.RollupBucketResponse;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.support.IntegrationTest;
+import com.ecommerce.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderRollupServiceTest extends IntegrationTest {
+
+    @Autowired
+    private OrderRollupService orderRollupService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void flushFoldsRecordedChangesOnce() {
+        Product product = saveProduct("Rollup flush");
+        OrderResponse order = orderService.createOrder(TestData.orderRequest("rollups@example.com", product), null);
+        orderService.markOrderAsPaid(order.getId());
+
+        orderRollupService.flush();
+        orderRollupService.flush();
+
+        RollupBucketResponse bucket = bucket(product.getCategory());
+        assertThat(bucket.getOrderCount()).isEqualTo(1);
+        assertThat(bucket.getGrossRevenue()).isEqualByComparingTo(product.getPrice());
+        assertThat(bucket.getPaidRevenue()).isEqualByComparingTo(product.getPrice());
+    }
+
+    @Test
+    void backfillDropsChangesItAlreadyCounted() {
+        Product product = saveProduct("Rollup backfill");
+        orderService.createOrder(TestData.orderRequest("rollups@example.com", product), null);
+        orderService.createOrder(TestData.orderRequest("rollups@example.com", product), null);
+
+        LocalDateTime now = LocalDateTime.now();
+        orderRollupService.backfill(now.minusHours(1), now.plusHours(1));
+        orderRollupService.flush();
+
+        RollupBucketResponse bucket = bucket(product.getCategory());
+        assertThat(bucket.getOrderCount()).isEqualTo(2);
+        assertThat(bucket.getGrossRevenue()).isEqualByComparingTo(product.getPrice().multiply(BigDecimal.valueOf(2)));
+        assertThat(bucket.getPaidRevenue()).isZero();
+    }
+
+    @Test
+    void hourBucketsSplitAtTheHourAndDayBucketsMergeThem() {
+        Product product = saveProduct("Rollup hours");
+        LocalDateTime hour = LocalDateTime.of(2002, 3, 4, 11, 0);
+        createdAt(orderService.createOrder(TestData.orderRequest("rollups@example.com", product), null),
+                hour.minusMinutes(1));
+        createdAt(orderService.createOrder(TestData.orderRequest("rollups@example.com", product), null), hour);
+        orderRollupService.backfill(hour.minusHours(2), hour.plusHours(2));
+
+        List<RollupBucketResponse> hours = orderRollupService.getRollups(hour.minusHours(2), hour.plusHours(2),
+                OrderRollupService.GRANULARITY_HOUR, product.getCategory());
+        assertThat(hours).extracting(RollupBucketResponse::getBucketStart)
+                .containsExactly(hour.minusHours(1), hour);
+        assertThat(hours).allSatisfy(bucket -> assertThat(bucket.getOrderCount()).isEqualTo(1));
+
+        List<RollupBucketResponse> days = orderRollupService.getRollups(hour.minusHours(2), hour.plusHours(2),
+                OrderRollupService.GRANULARITY_DAY, product.getCategory());
+        assertThat(days).singleElement().satisfies(bucket -> {
+            assertThat(bucket.getBucketStart()).isEqualTo(hour.truncatedTo(ChronoUnit.DAYS));
+            assertThat(bucket.getOrderCount()).isEqualTo(2);
+        });
+
+        // The range end is exclusive
+        assertThat(orderRollupService.getRollups(hour.minusHours(2), hour, OrderRollupService.GRANULARITY_HOUR,
+                product.getCategory())).singleElement()
+                .satisfies(bucket -> assertThat(bucket.getBucketStart()).isEqualTo(hour.minusHours(1)));
+    }
+
+    @Test
+    void rangeWithoutOrdersHasNoBuckets() {
+        LocalDateTime from = LocalDateTime.of(1999, 1, 1, 0, 0);
+
+        assertThat(orderRollupService.getRollups(from, from.plusDays(1), OrderRollupService.GRANULARITY_HOUR, null))
+                .isEmpty();
+        assertThat(orderRollupService.getRollups(from, from.plusDays(1), OrderRollupService.GRANULARITY_DAY,
+                "No such category")).isEmpty();
+    }
+
+    @Test
+    void rejectsEmptyOversizedAndUnknownQueries() {
+        LocalDateTime from = LocalDateTime.of(2002, 1, 1, 0, 0);
+
+        assertThatThrownBy(() -> orderRollupService.getRollups(from, from, OrderRollupService.GRANULARITY_DAY, null))
+                .hasMessage("from must be before to");
+        assertThatThrownBy(() -> orderRollupService.getRollups(from, from.plusYears(2),
+                OrderRollupService.GRANULARITY_DAY, null))
+                .hasMessageStartingWith("Range must not exceed");
+        assertThatThrownBy(() -> orderRollupService.getRollups(from, from.plusDays(1), "week", null))
+                .hasMessage("Unsupported granularity: week");
+        assertThatThrownBy(() -> orderRollupService.backfill(from, from))
+                .hasMessage("from must be before to");
+    }
+
+    private void createdAt(OrderResponse order, LocalDateTime createdAt) {
+        jdbcTemplate.update("UPDATE orders SET created_at = ? WHERE id = ?", createdAt, order.getId());
+    }
+
+    private Product saveProduct(String name) {
+        Product product = TestData.product(name, 100);
+        product.setCategory(name + " " + System.nanoTime());
+        return productRepository.save(product);
+    }
+
+    private RollupBucketResponse bucket(String category) {
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        List<RollupBucketResponse> buckets = orderRollupService.getRollups(hour.minusHours(1), hour.plusHours(2),
+                OrderRollupService.GRANULARITY_DAY, category);
+        assertThat(buckets).hasSize(1);
+        return buckets.get(0);
+    }
+}
@@ -0,0 +1,163 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderSearchCriteria;
+import com.ecommerce.dto.OrderSearchResponse;
+import com.ecommerce.dto.OrderSummaryResponse;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.support.IntegrationTest;
+import com.ecommerce.support.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Admin order search: filters, and keyset pages that neither skip nor repeat orders sharing a creation time.
+ */
+class OrderSearchTest extends IntegrationTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2001, 1, 1, 12, 0);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String prefix;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        prefix = "search-" + UUID.randomUUID().toString().substring(0, 8);
+        product = productRepository.save(TestData.product("Searched", 100));
+    }
+
+    @Test
+    void keysetPagesVisitEveryOrderOnceAcrossEqualCreationTimes() {
+        // Three orders per timestamp, so page boundaries fall between orders created at the same instant
+        List<Long> expected = new ArrayList<>();
+        for (int minute = 0; minute < 3; minute++) {
+            List<Long> sameInstant = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                sameInstant.add(order(prefix + "@example.com", BASE.plusMinutes(minute), "10.00"));
+            }
+            // Newest first, and the higher id first among equal creation times
+            sameInstant.sort(Comparator.reverseOrder());
+            expected.addAll(0, sameInstant);
+        }
+
+        List<Long> visited = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            OrderSearchResponse page = orderService.searchOrders(byEmail(), cursor, 2);
+            page.getItems().forEach(item -> visited.add(item.getId()));
+            assertThat(page.getHasMore()).isEqualTo(page.getNextCursor() != null);
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(visited).containsExactlyElementsOf(expected);
+        assertThat(pages).isEqualTo(5);
+    }
+
+    @Test
+    void lastFullPageHasNoCursor() {
+        order(prefix + "@example.com", BASE, "10.00");
+        order(prefix + "@example.com", BASE.plusMinutes(1), "10.00");
+
+        OrderSearchResponse page = orderService.searchOrders(byEmail(), null, 2);
+
+        assertThat(page.getItems()).hasSize(2);
+        assertThat(page.getHasMore()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void filtersCombineStatusEmailPrefixDateAndTotalRanges() {
+        Long match = order(prefix + "-a@example.com", BASE.plusHours(1), "50.00");
+        Long atLowerBounds = order(prefix + "-b@example.com", BASE, "20.00");
+        order(prefix + "-c@example.com", BASE.plusHours(2), "50.00");   // created at the exclusive upper bound
+        order(prefix + "-d@example.com", BASE.plusHours(1), "19.99");   // below the minimum total
+        order(prefix + "-e@example.com", BASE.plusHours(1), "80.01");   // above the maximum total
+        Long paid = order(prefix + "-f@example.com", BASE.plusHours(1), "50.00");
+        jdbcTemplate.update("UPDATE orders SET status = 'PAID' WHERE id = ?", paid);
+
+        OrderSearchCriteria criteria = OrderSearchCriteria.builder()
+                .status(Order.OrderStatus.PENDING)
+                .customerEmailPrefix(prefix)
+                .createdFrom(BASE)
+                .createdTo(BASE.plusHours(2))
+                .minTotal(new BigDecimal("20.00"))
+                .maxTotal(new BigDecimal("80.00"))
+                .build();
+        List<Long> ids = orderService.searchOrders(criteria, null, 50).getItems().stream()
+                .map(OrderSummaryResponse::getId)
+                .toList();
+
+        assertThat(ids).containsExactly(match, atLowerBounds);
+    }
+
+    @Test
+    void emailPrefixMatchesLikeWildcardsLiterally() {
+        Long literal = order(prefix + "_x@example.com", BASE, "10.00");
+        order(prefix + "zx@example.com", BASE, "10.00");
+
+        OrderSearchCriteria criteria = OrderSearchCriteria.builder().customerEmailPrefix(prefix + "_").build();
+
+        assertThat(orderService.searchOrders(criteria, null, 50).getItems())
+                .extracting(OrderSummaryResponse::getId)
+                .containsExactly(literal);
+    }
+
+    @Test
+    void emptyDateRangeFindsNothing() {
+        order(prefix + "@example.com", BASE, "10.00");
+
+        OrderSearchCriteria criteria = OrderSearchCriteria.builder()
+                .customerEmailPrefix(prefix)
+                .createdFrom(BASE)
+                .createdTo(BASE)
+                .build();
+        OrderSearchResponse page = orderService.searchOrders(criteria, null, 50);
+
+        assertThat(page.getItems()).isEmpty();
+        assertThat(page.getHasMore()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void rejectsBadPageSizesAndCursors() {
+        assertThatThrownBy(() -> orderService.searchOrders(byEmail(), null, 0))
+                .hasMessageStartingWith("Page size must be between 1 and");
+        assertThatThrownBy(() -> orderService.searchOrders(byEmail(), "not-a-cursor", 10))
+                .hasMessage("Invalid cursor");
+    }
+
+    private OrderSearchCriteria byEmail() {
+        return OrderSearchCriteria.builder().customerEmailPrefix(prefix).build();
+    }
+
+    private Long order(String email, LocalDateTime createdAt, String total) {
+        Long id = orderService.createOrder(TestData.orderRequest(email, product), null).getId();
+        jdbcTemplate.update("UPDATE orders SET created_at = ?, total_amount = ? WHERE id = ?",
+                createdAt, new BigDecimal(total), id);
+        return id;
+    }
+}
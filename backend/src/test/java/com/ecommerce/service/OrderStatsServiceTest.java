@@ -0,0 +1,97 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderStatsResponse;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ArchivedOrderRepository;
+import com.ecommerce.repository.OrderStatusCounterRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.support.IntegrationTest;
+import com.ecommerce.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderStatsServiceTest extends IntegrationTest {
+
+    @Autowired
+    private OrderStatsService orderStatsService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderStatusCounterRepository counterRepository;
+
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void reconcileCorrectsDrift() {
+        Product product = productRepository.save(TestData.product("Stats item", 50));
+        orderService.createOrder(TestData.orderRequest("stats@example.com", product), null);
+        jdbcTemplate.update("UPDATE order_status_counters SET order_count = order_count + 5, revenue = revenue + 12.34 "
+                + "WHERE status = 'PENDING' AND slot = 3");
+
+        OrderStatsResponse stats = orderStatsService.reconcile();
+
+        long pending = 0;
+        BigDecimal pendingRevenue = BigDecimal.ZERO;
+        for (Object[] row : counterRepository.aggregateOrdersByStatus()) {
+            if (row[0] == Order.OrderStatus.PENDING) {
+                pending += ((Number) row[1]).longValue();
+                pendingRevenue = pendingRevenue.add((BigDecimal) row[2]);
+            }
+        }
+        for (Object[] row : archivedOrderRepository.aggregateByStatus()) {
+            if (row[0] == Order.OrderStatus.PENDING) {
+                pending += ((Number) row[1]).longValue();
+                pendingRevenue = pendingRevenue.add((BigDecimal) row[2]);
+            }
+        }
+        assertThat(stats.getOrdersByStatus().get("PENDING")).isEqualTo(pending);
+        assertThat(stats.getRevenueByStatus().get("PENDING")).isEqualByComparingTo(pendingRevenue);
+    }
+
+    @Test
+    void reconcileDoesNotWaitForCounterRowLocks() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // An open checkout transaction holding a counter stripe, as checkouts do until they commit
+        CompletableFuture<Void> checkout = CompletableFuture.runAsync(() ->
+                transactionTemplate.executeWithoutResult(status -> {
+                    counterRepository.increment(Order.OrderStatus.PAID, 5, 1, BigDecimal.ONE);
+                    locked.countDown();
+                    try {
+                        release.await(30, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    status.setRollbackOnly();
+                }));
+        assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+        try {
+            CompletableFuture.supplyAsync(orderStatsService::reconcile).get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            checkout.get(30, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.OutboxEvent;
+import com.ecommerce.repository.OutboxEventRepository;
+import com.ecommerce.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutboxDispatcherTest extends IntegrationTest {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void retryOnlyGoesToTheSinksThatFailed() {
+        OutboxEvent event = saveEvent();
+        TestSink reliable = new TestSink("reliable", event.getId(), 0);
+        TestSink flaky = new TestSink("flaky", event.getId(), 1);
+        OutboxDispatcher dispatcher = dispatcher(List.of(reliable, flaky));
+
+        dispatcher.dispatch();
+
+        OutboxEvent afterFailure = outboxEventRepository.findById(event.getId()).orElseThrow();
+        assertThat(afterFailure.getStatus()).isEqualTo(OutboxEvent.Status.PENDING);
+        assertThat(afterFailure.getAttempts()).isEqualTo(1);
+        assertThat(afterFailure.getDeliveredSinks()).isEqualTo("reliable");
+        assertThat(afterFailure.getClaimedBy()).isNull();
+
+        makeDue(afterFailure);
+        dispatcher.dispatch();
+
+        OutboxEvent afterRetry = outboxEventRepository.findById(event.getId()).orElseThrow();
+        assertThat(afterRetry.getStatus()).isEqualTo(OutboxEvent.Status.DELIVERED);
+        assertThat(reliable.calls).hasValue(1);
+        assertThat(flaky.calls).hasValue(2);
+    }
+
+    @Test
+    void leaseCoversTheBatchAtTheSinkTimeouts() {
+        OutboxEvent event = saveEvent();
+        TestSink sink = new TestSink("slow", event.getId(), 0);
+        sink.timeout = Duration.ofSeconds(30);
+        OutboxDispatcher dispatcher = dispatcher(List.of(sink));
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatch();
+
+        // 10 events x 30 s is well past the configured 60 s minimum
+        assertThat(sink.claimedUntil.get()).isAfterOrEqualTo(before.plusSeconds(300));
+        assertThat(outboxEventRepository.findById(event.getId()).orElseThrow().getStatus())
+                .isEqualTo(OutboxEvent.Status.DELIVERED);
+    }
+
+    @Test
+    void failureIsNotRecordedOnceAnotherInstanceHoldsTheClaim() {
+        OutboxEvent event = saveEvent();
+        TestSink sink = new TestSink("taken-over", event.getId(), 1);
+        // Another instance claims the event while this one is still delivering it
+        sink.beforeFailure = () -> transactionTemplate.executeWithoutResult(status -> {
+            OutboxEvent current = outboxEventRepository.findById(event.getId()).orElseThrow();
+            current.setClaimedBy("other-instance");
+            outboxEventRepository.save(current);
+        });
+
+        dispatcher(List.of(sink)).dispatch();
+
+        OutboxEvent current = outboxEventRepository.findById(event.getId()).orElseThrow();
+        assertThat(current.getClaimedBy()).isEqualTo("other-instance");
+        assertThat(current.getAttempts()).isZero();
+        assertThat(current.getLastError()).isNull();
+    }
+
+    @Test
+    void pollStopsWhenItsTimeIsUsedUpAndHandsTheRestBack() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(saveEvent().getId());
+        }
+        TestSink sink = new TestSink("slow-backlog", null, 0);
+        sink.latencyMs = 200;
+        OutboxDispatcher dispatcher = dispatcher(List.of(sink));
+        ReflectionTestUtils.setField(dispatcher, "maxPollMs", 300L);
+
+        long start = System.currentTimeMillis();
+        dispatcher.dispatch();
+
+        assertThat(System.currentTimeMillis() - start).isLessThan(2_000);
+        List<OutboxEvent> left = outboxEventRepository.findAllById(ids).stream()
+                .filter(event -> event.getStatus() == OutboxEvent.Status.PENDING)
+                .toList();
+        assertThat(left).isNotEmpty().allSatisfy(event -> {
+            assertThat(event.getClaimedBy()).isNull();
+            assertThat(event.getAttempts()).isZero();
+        });
+    }
+
+    private OutboxDispatcher dispatcher(List<OutboxSink> sinks) {
+        OutboxDispatcher dispatcher = new OutboxDispatcher(outboxEventRepository, sinks, transactionTemplate);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 10);
+        ReflectionTestUtils.setField(dispatcher, "leaseSeconds", 60L);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 5);
+        ReflectionTestUtils.setField(dispatcher, "backoffInitialMs", 60_000L);
+        ReflectionTestUtils.setField(dispatcher, "backoffMaxMs", 60_000L);
+        ReflectionTestUtils.setField(dispatcher, "maxBatchesPerPoll", 10);
+        ReflectionTestUtils.setField(dispatcher, "maxPollMs", 10_000L);
+        return dispatcher;
+    }
+
+    private OutboxEvent saveEvent() {
+        LocalDateTime now = LocalDateTime.now();
+        return outboxEventRepository.save(OutboxEvent.builder()
+                .aggregateType(OutboxEvent.AGGREGATE_ORDER)
+                .aggregateId(1L)
+                .eventType("TestEvent")
+                .payload("{}")
+                .status(OutboxEvent.Status.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+    }
+
+    private void makeDue(OutboxEvent event) {
+        event.setNextAttemptAt(LocalDateTime.now());
+        outboxEventRepository.save(event);
+    }
+
+    private static final class TestSink implements OutboxSink {
+
+        private final String name;
+        private final Long eventId;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicReference<LocalDateTime> claimedUntil = new AtomicReference<>();
+        private int failuresLeft;
+        private Duration timeout = Duration.ofMillis(100);
+        private long latencyMs;
+        private Runnable beforeFailure = () -> { };
+
+        private TestSink(String name, Long eventId, int failures) {
+            this.name = name;
+            this.eventId = eventId;
+            this.failuresLeft = failures;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public Duration getDeliveryTimeout() {
+            return timeout;
+        }
+
+        @Override
+        public void deliver(OutboxEvent event) throws IOException {
+            if (latencyMs > 0) {
+                try {
+                    Thread.sleep(latencyMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            // Other tests' events may be in the batch; only the one under test is tracked
+            if (!event.getId().equals(eventId)) {
+                return;
+            }
+            calls.incrementAndGet();
+            claimedUntil.set(event.getClaimedUntil());
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                beforeFailure.run();
+                throw new IOException("sink " + name + " unavailable");
+            }
+        }
+    }
+}
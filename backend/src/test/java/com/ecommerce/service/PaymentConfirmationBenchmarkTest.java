@@ -0,0 +1,88 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderResponse;
+import com.ecommerce.dto.PaymentConfirmationResponse;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.support.IntegrationTest;
+import com.ecommerce.support.TestData;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Admin payment confirmation throughput by batch size, including the provider lookup of every intent, against the
+ * configured datasource and the stub provider.
+ * Run with {@code mvn test -Pbenchmark -Dtest=PaymentConfirmationBenchmarkTest}.
+ */
+@Tag("benchmark")
+class PaymentConfirmationBenchmarkTest extends IntegrationTest {
+
+    private static final int PAYMENTS_PER_RUN = 1_000;
+    private static final int[] BATCH_SIZES = {1, 10, 100, 500};
+
+    @Autowired
+    private PaymentReconciliationService paymentReconciliationService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PaymentGateway paymentGateway;
+
+    @Test
+    void confirmationThroughputByBatchSize() {
+        Product product = productRepository.save(TestData.product("Confirmation benchmark",
+                PAYMENTS_PER_RUN * (BATCH_SIZES.length + 1)));
+        ReflectionTestUtils.setField(paymentGateway, "intentSucceededRate", 1.0);
+        try {
+            // Warm-up run so JIT and connection pool are hot
+            run(intents(product, 200), 50);
+
+            for (int batchSize : BATCH_SIZES) {
+                List<String> intentIds = intents(product, PAYMENTS_PER_RUN);
+                long start = System.nanoTime();
+                int confirmed = run(intentIds, batchSize);
+                long durationMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+                System.out.printf("batch size %d: %d payments in %d ms = %d confirmations/s%n",
+                        batchSize, confirmed, durationMs, confirmed * 1000L / durationMs);
+                assertThat(confirmed).isEqualTo(PAYMENTS_PER_RUN);
+            }
+        } finally {
+            ReflectionTestUtils.setField(paymentGateway, "intentSucceededRate", 0.0);
+        }
+    }
+
+    private int run(List<String> intentIds, int batchSize) {
+        int confirmed = 0;
+        for (int from = 0; from < intentIds.size(); from += batchSize) {
+            PaymentConfirmationResponse response = paymentReconciliationService.confirmVerified(
+                    intentIds.subList(from, Math.min(from + batchSize, intentIds.size())));
+            confirmed += response.getConfirmed().size();
+        }
+        return confirmed;
+    }
+
+    private List<String> intents(Product product, int count) {
+        List<String> intentIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            OrderResponse order = orderService.createOrder(
+                    TestData.orderRequest("confirm-bench-" + i + "@example.com", product), null);
+            intentIds.add(paymentService.createPaymentIntent(order.getId()).getPaymentIntentId());
+        }
+        return intentIds;
+    }
+}
@@ -0,0 +1,230 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderResponse;
+import com.ecommerce.dto.PaymentIntentResponse;
+import com.ecommerce.model.Payment;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.PaymentRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.support.IntegrationTest;
+import com.ecommerce.support.TestData;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PaymentIntentCreationTest extends IntegrationTest {
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OptimisticRetryService optimisticRetryService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private PaymentIntentCanceller paymentIntentCanceller;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final List<ResilientPaymentGateway> gateways = new ArrayList<>();
+
+    @AfterEach
+    void shutDownGateways() {
+        gateways.forEach(ResilientPaymentGateway::shutdown);
+    }
+
+    @Test
+    void retryAfterALostResponseReplaysTheSameRequest() {
+        LosingGateway provider = new LosingGateway();
+        PaymentService service = paymentService(provider, 0);
+        OrderResponse order = order("lost-response@example.com");
+
+        // The provider creates the intent but the answer never arrives
+        provider.loseNextResponse.set(true);
+        assertThatThrownBy(() -> service.createPaymentIntent(order.getId()))
+                .isInstanceOf(PaymentGatewayException.class);
+        PaymentIntentResponse retried = service.createPaymentIntent(order.getId());
+
+        assertThat(provider.requestKeys).hasSize(2);
+        assertThat(provider.requestKeys.get(1)).isEqualTo(provider.requestKeys.get(0));
+        assertThat(provider.intentsByKey).hasSize(1);
+        assertThat(retried.getPaymentIntentId()).isEqualTo(provider.intentsByKey.values().iterator().next().id());
+    }
+
+    @Test
+    void takeoverOfAnAbandonedReservationReusesItsKey() {
+        LosingGateway provider = new LosingGateway();
+        PaymentService service = paymentService(provider, 60_000);
+        OrderResponse order = order("takeover@example.com");
+        provider.loseNextResponse.set(true);
+        assertThatThrownBy(() -> service.createPaymentIntent(order.getId()))
+                .isInstanceOf(PaymentGatewayException.class);
+        // As if the request had crashed instead: the reservation is left CREATING past the reservation timeout
+        Payment abandoned = paymentRepository.findByOrderId(order.getId()).orElseThrow();
+        abandoned.setStatus(Payment.PaymentStatus.CREATING);
+        abandoned.setReservedAt(LocalDateTime.now().minusMinutes(5));
+        paymentRepository.save(abandoned);
+
+        PaymentIntentResponse takenOver = service.createPaymentIntent(order.getId());
+
+        assertThat(provider.requestKeys).hasSize(2).containsOnly(provider.requestKeys.get(0));
+        assertThat(provider.intentsByKey).hasSize(1);
+        Payment payment = paymentRepository.findByOrderId(order.getId()).orElseThrow();
+        assertThat(payment.getStripePaymentIntentId()).isEqualTo(takenOver.getPaymentIntentId());
+        assertThat(payment.getIntentRequestKey()).isNull();
+    }
+
+    @Test
+    void openIntentIsOnlyReusedWhileItsPaymentIsPending() {
+        LosingGateway provider = new LosingGateway();
+        PaymentService service = paymentService(provider, 60_000);
+        OrderResponse order = order("reload@example.com");
+        PaymentIntentResponse first = service.createPaymentIntent(order.getId());
+        assertThat(service.createPaymentIntent(order.getId()).getPaymentIntentId())
+                .isEqualTo(first.getPaymentIntentId());
+
+        // The intent fails, as recorded by another instance
+        Payment payment = paymentRepository.findByOrderId(order.getId()).orElseThrow();
+        payment.setStatus(Payment.PaymentStatus.FAILED);
+        paymentRepository.save(payment);
+
+        PaymentIntentResponse second = service.createPaymentIntent(order.getId());
+        assertThat(second.getPaymentIntentId()).isNotEqualTo(first.getPaymentIntentId());
+        assertThat(provider.intentsByKey).hasSize(2);
+    }
+
+    @Test
+    void poolUsageStaysFlatWhileTheProviderIsSlow() throws Exception {
+        HikariPoolMXBean pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+        int requests = 16;
+        LosingGateway slowProvider = new LosingGateway();
+        slowProvider.latencyMs = 500;
+        // Sampled halfway through each provider call, once the burst of reservations has committed
+        slowProvider.midCall = () -> slowProvider.activeConnectionsMidCall.accumulateAndGet(
+                pool.getActiveConnections(), Math::max);
+        PaymentService service = paymentService(slowProvider, 0);
+        List<OrderResponse> orders = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            orders.add(order("load-" + i + "@example.com"));
+        }
+
+        ExecutorService clients = Executors.newFixedThreadPool(requests);
+        try {
+            List<CompletableFuture<PaymentIntentResponse>> calls = orders.stream()
+                    .map(order -> CompletableFuture.supplyAsync(() -> service.createPaymentIntent(order.getId()),
+                            clients))
+                    .toList();
+            for (CompletableFuture<PaymentIntentResponse> call : calls) {
+                assertThat(call.get(30, TimeUnit.SECONDS).getPaymentIntentId()).isNotNull();
+            }
+        } finally {
+            clients.shutdown();
+        }
+
+        // The slow provider calls overlapped, yet none of them held a connection; at most a background job did
+        assertThat(slowProvider.peakInFlight.get()).isGreaterThanOrEqualTo(requests / 2);
+        assertThat(slowProvider.activeConnectionsMidCall.get()).isLessThanOrEqualTo(2);
+    }
+
+    private OrderResponse order(String email) {
+        Product product = productRepository.save(TestData.product("Intent " + email, 5));
+        return orderService.createOrder(TestData.orderRequest(email, product), null);
+    }
+
+    private PaymentService paymentService(PaymentGateway provider, long reservationTimeoutMs) {
+        ResilientPaymentGateway gateway = new ResilientPaymentGateway(provider, 5000, 16, 64, 100, 30_000);
+        gateways.add(gateway);
+        PaymentService service = new PaymentService(paymentRepository, orderService, optimisticRetryService,
+                outboxService, gateway, paymentIntentCanceller);
+        ReflectionTestUtils.setField(service, "reservationTimeoutMs", reservationTimeoutMs);
+        return service;
+    }
+
+    /**
+     * Honours idempotency keys like the real provider and can drop the answer to a call it has already carried out.
+     */
+    private static final class LosingGateway implements PaymentGateway {
+
+        private final Map<String, CreatedIntent> intentsByKey = new ConcurrentHashMap<>();
+        private final List<String> requestKeys = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean loseNextResponse = new AtomicBoolean();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger peakInFlight = new AtomicInteger();
+        private final AtomicInteger activeConnectionsMidCall = new AtomicInteger();
+        private volatile long latencyMs;
+        private volatile Runnable midCall = () -> { };
+
+        @Override
+        public String getName() {
+            return "losing";
+        }
+
+        @Override
+        public CreatedIntent createPaymentIntent(long amountInCents, String currency, Map<String, String> metadata,
+                                                 String idempotencyKey) {
+            requestKeys.add(idempotencyKey);
+            CreatedIntent intent = intentsByKey.computeIfAbsent(idempotencyKey, key -> {
+                String id = "pi_test_" + UUID.randomUUID().toString().replace("-", "");
+                return new CreatedIntent(id, id + "_secret");
+            });
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(latencyMs / 2);
+                midCall.run();
+                Thread.sleep(latencyMs / 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            if (loseNextResponse.compareAndSet(true, false)) {
+                throw new PaymentGatewayException("Connection reset", true);
+            }
+            return intent;
+        }
+
+        @Override
+        public CreatedIntent updatePaymentIntentAmount(String intentId, long amountInCents, String idempotencyKey) {
+            return new CreatedIntent(intentId, intentId + "_secret");
+        }
+
+        @Override
+        public IntentStatus getPaymentIntentStatus(String intentId) {
+            return IntentStatus.OPEN;
+        }
+
+        @Override
+        public void cancelPaymentIntent(String intentId, String idempotencyKey) {
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderResponse;
+import com.ecommerce.dto.PaymentIntentResponse;
+import com.ecommerce.dto.PaymentConfirmationResponse;
+import com.ecommerce.dto.PaymentReconciliationResponse;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.Payment;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.JobLeaseRepository;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.PaymentRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.support.IntegrationTest;
+import com.ecommerce.support.TestData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentReconciliationServiceTest extends IntegrationTest {
+
+    @Autowired
+    private PaymentReconciliationService paymentReconciliationService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OptimisticRetryService optimisticRetryService;
+
+    @Autowired
+    private JobLeaseService jobLeaseService;
+
+    @Autowired
+    private JobLeaseRepository jobLeaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PaymentService realPaymentService;
+
+    @Autowired
+    private PaymentGateway paymentGateway;
+
+    @Test
+    void driftPassOnlyLooksAtRecentlySucceededPayments() {
+        Long recent = orderWithPayment("recent-drift@example.com", Payment.PaymentStatus.SUCCEEDED,
+                LocalDateTime.now().minusMinutes(5));
+        Long old = orderWithPayment("old-drift@example.com", Payment.PaymentStatus.SUCCEEDED,
+                LocalDateTime.now().minusDays(3));
+
+        PaymentReconciliationResponse response = paymentReconciliationService.reconcile();
+
+        assertThat(response.getDrift().get(PaymentReconciliationService.DRIFT_ORDER_NOT_MARKED_PAID))
+                .isGreaterThanOrEqualTo(1);
+        assertThat(orderRepository.findById(recent).orElseThrow().getStatus()).isEqualTo(Order.OrderStatus.PAID);
+        assertThat(orderRepository.findById(old).orElseThrow().getStatus()).isEqualTo(Order.OrderStatus.PENDING);
+    }
+
+    @Test
+    void onlyTheLeaseHolderReconciles() {
+        // Give up this instance's lease from earlier runs so that another instance can take it
+        jobLeaseService.tryAcquire(PaymentReconciliationService.JOB, Duration.ofSeconds(-1));
+        JobLeaseService otherInstance = new JobLeaseService(jobLeaseRepository, transactionManager);
+        assertThat(otherInstance.tryAcquire(PaymentReconciliationService.JOB, Duration.ofMinutes(5))).isTrue();
+        try {
+            assertThatThrownBy(() -> paymentReconciliationService.reconcile())
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        } finally {
+            // Hand the lease back by letting it expire
+            otherInstance.tryAcquire(PaymentReconciliationService.JOB, Duration.ofSeconds(-1));
+        }
+    }
+
+    @Test
+    void runStopsOnceAnotherInstanceTakesTheLease() {
+        orderWithPayment("lease-lost-1@example.com", Payment.PaymentStatus.PENDING, null);
+        orderWithPayment("lease-lost-2@example.com", Payment.PaymentStatus.PENDING, null);
+        JobLeaseService otherInstance = new JobLeaseService(jobLeaseRepository, transactionManager);
+        AtomicBoolean takenOver = new AtomicBoolean();
+        ResilientPaymentGateway gateway = mock(ResilientPaymentGateway.class);
+        // The lease runs out during the first chunk and another instance takes it
+        when(gateway.getPaymentIntentStatus(any())).thenAnswer(invocation -> {
+            if (takenOver.compareAndSet(false, true)) {
+                jobLeaseService.tryAcquire(PaymentReconciliationService.JOB, Duration.ofSeconds(-1));
+                otherInstance.tryAcquire(PaymentReconciliationService.JOB, Duration.ofMinutes(5));
+            }
+            return PaymentGateway.IntentStatus.OPEN;
+        });
+        PaymentReconciliationService service = service(mock(PaymentService.class), gateway,
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "chunkSize", 1);
+
+        try {
+            PaymentReconciliationResponse response = service.reconcile();
+
+            assertThat(response.isLeaseLost()).isTrue();
+            assertThat(response.getChecked()).isEqualTo(1);
+        } finally {
+            otherInstance.tryAcquire(PaymentReconciliationService.JOB, Duration.ofSeconds(-1));
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void openIntentOfACancelledOrderIsCancelledAtTheProvider() {
+        Long orderId = orderWithPayment("cancelled-open@example.com", Payment.PaymentStatus.PENDING, null);
+        String intentId = paymentRepository.findByOrderId(orderId).orElseThrow().getStripePaymentIntentId();
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        order.setStatus(Order.OrderStatus.CANCELLED);
+        orderRepository.save(order);
+        ResilientPaymentGateway gateway = mock(ResilientPaymentGateway.class);
+        when(gateway.getPaymentIntentStatus(any())).thenReturn(PaymentGateway.IntentStatus.OPEN);
+        PaymentIntentCanceller canceller = mock(PaymentIntentCanceller.class);
+        PaymentReconciliationService service = service(mock(PaymentService.class), gateway, canceller,
+                new SimpleMeterRegistry());
+
+        try {
+            service.reconcile();
+
+            assertThat(paymentRepository.findByOrderId(orderId).orElseThrow().getStatus())
+                    .isEqualTo(Payment.PaymentStatus.CANCELLED);
+            verify(canceller).cancel(argThat(intents -> intents.contains(intentId)));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void rejectedConfirmationsAreCountedByRetryability() {
+        Long orderId = orderWithPayment("rejected@example.com", Payment.PaymentStatus.PENDING, null);
+        String intentId = paymentRepository.findByOrderId(orderId).orElseThrow().getStripePaymentIntentId();
+
+        ResilientPaymentGateway gateway = mock(ResilientPaymentGateway.class);
+        when(gateway.getPaymentIntentStatus(any())).thenReturn(PaymentGateway.IntentStatus.OPEN);
+        when(gateway.getPaymentIntentStatus(intentId)).thenReturn(PaymentGateway.IntentStatus.SUCCEEDED);
+        // The order is cancelled between the lookup and the confirmation
+        PaymentService paymentService = mock(PaymentService.class);
+        when(paymentService.applyReconciledOutcomes(anyCollection(), anyCollection()))
+                .thenReturn(PaymentConfirmationResponse.builder()
+                        .confirmed(new ArrayList<>())
+                        .alreadyConfirmed(new ArrayList<>())
+                        .rejected(List.of(PaymentConfirmationResponse.Rejected.builder()
+                                .paymentIntentId(intentId)
+                                .reason("Order has been cancelled: " + orderId)
+                                .retryable(false)
+                                .build()))
+                        .build());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PaymentReconciliationService service = service(paymentService, gateway, meterRegistry);
+
+        try {
+            PaymentReconciliationResponse response = service.reconcile();
+
+            assertThat(response.getRejected()).isEqualTo(1);
+            assertThat(response.getRetryableRejections()).isZero();
+            assertThat(response.getSucceeded()).isZero();
+            assertThat(meterRegistry.counter("payments.reconciliation.rejected", "retryable", "false").count())
+                    .isEqualTo(1.0);
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void adminConfirmationOnlyConfirmsIntentsTheProviderReportsSucceeded() {
+        Product product = productRepository.save(TestData.product("Verified confirmation", 5));
+        OrderResponse order = orderService.createOrder(TestData.orderRequest("verified@example.com", product), null);
+        PaymentIntentResponse intent = realPaymentService.createPaymentIntent(order.getId());
+
+        // The stub reports every intent as still open
+        PaymentConfirmationResponse unverified = paymentReconciliationService.confirmVerified(
+                List.of(intent.getPaymentIntentId()));
+
+        assertThat(unverified.getConfirmed()).isEmpty();
+        assertThat(unverified.getRejected()).singleElement()
+                .satisfies(rejected -> assertThat(rejected.isRetryable()).isTrue());
+        assertThat(paymentRepository.findByOrderId(order.getId()).orElseThrow().getStatus())
+                .isEqualTo(Payment.PaymentStatus.PENDING);
+
+        ReflectionTestUtils.setField(paymentGateway, "intentSucceededRate", 1.0);
+        try {
+            PaymentConfirmationResponse verified = paymentReconciliationService.confirmVerified(
+                    List.of(intent.getPaymentIntentId()));
+
+            assertThat(verified.getConfirmed()).containsExactly(intent.getPaymentIntentId());
+            assertThat(orderRepository.findById(order.getId()).orElseThrow().getStatus())
+                    .isEqualTo(Order.OrderStatus.PAID);
+        } finally {
+            ReflectionTestUtils.setField(paymentGateway, "intentSucceededRate", 0.0);
+        }
+    }
+
+    private PaymentReconciliationService service(PaymentService paymentService, ResilientPaymentGateway gateway,
+                                                 SimpleMeterRegistry meterRegistry) {
+        return service(paymentService, gateway, mock(PaymentIntentCanceller.class), meterRegistry);
+    }
+
+    private PaymentReconciliationService service(PaymentService paymentService, ResilientPaymentGateway gateway,
+                                                 PaymentIntentCanceller canceller,
+                                                 SimpleMeterRegistry meterRegistry) {
+        PaymentReconciliationService service = new PaymentReconciliationService(paymentRepository, paymentService,
+                orderService, gateway, optimisticRetryService, jobLeaseService, canceller, transactionTemplate,
+                meterRegistry, 2);
+        ReflectionTestUtils.setField(service, "minAgeMinutes", -1L);
+        ReflectionTestUtils.setField(service, "chunkSize", 500);
+        ReflectionTestUtils.setField(service, "maxPaymentsPerRun", 100_000);
+        ReflectionTestUtils.setField(service, "leaseSeconds", 60L);
+        ReflectionTestUtils.setField(service, "driftLookbackMinutes", 60L);
+        return service;
+    }
+
+    private Long orderWithPayment(String email, Payment.PaymentStatus status, LocalDateTime completedAt) {
+        Product product = productRepository.save(TestData.product("Reconciled " + email, 5));
+        OrderResponse order = orderService.createOrder(TestData.orderRequest(email, product), null);
+        Order entity = orderRepository.findById(order.getId()).orElseThrow();
+        paymentRepository.save(Payment.builder()
+                .order(entity)
+                .stripePaymentIntentId("pi_reconcile_" + UUID.randomUUID())
+                .amount(entity.getTotalAmount())
+                .currency("usd")
+                .status(status)
+                .createdAt(LocalDateTime.now().minusDays(4))
+                .completedAt(completedAt)
+                .build());
+        return order.getId();
+    }
+}
@@ -0,0 +1,131 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderResponse;
+import com.ecommerce.dto.PaymentIntentResponse;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.Product;
+import com.ecommerce.model.WebhookEvent;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.repository.WebhookEventRepository;
+import com.ecommerce.support.IntegrationTest;
+import com.ecommerce.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class PaymentWebhookProcessorTest extends IntegrationTest {
+
+    @Autowired
+    private PaymentWebhookProcessor paymentWebhookProcessor;
+
+    @Autowired
+    private WebhookEventRepository webhookEventRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void paymentForACancelledOrderIsFailedWithoutRetries() {
+        Product product = productRepository.save(TestData.product("Webhook after cancel", 5));
+        OrderResponse order = orderService.createOrder(TestData.orderRequest("late-webhook@example.com", product),
+                null);
+        PaymentIntentResponse intent = paymentService.createPaymentIntent(order.getId());
+        orderService.updateOrderStatus(order.getId(), Order.OrderStatus.CANCELLED, null);
+        WebhookEvent event = saveEvent(PaymentWebhookProcessor.PAYMENT_INTENT_SUCCEEDED, intent.getPaymentIntentId());
+
+        paymentWebhookProcessor.processPending();
+
+        WebhookEvent failed = webhookEventRepository.findById(event.getId()).orElseThrow();
+        assertThat(failed.getStatus()).isEqualTo(WebhookEvent.Status.FAILED);
+        assertThat(failed.getAttempts()).isEqualTo(1);
+        assertThat(failed.getLastError()).contains("cancelled");
+    }
+
+    @Test
+    void failureIsNotRecordedOnceAnotherInstanceHoldsTheClaim() {
+        WebhookEvent event = saveEvent(PaymentWebhookProcessor.PAYMENT_INTENT_FAILED, "pi_taken_over");
+        PaymentService payments = mock(PaymentService.class);
+        // Another instance claims the event while this one is still applying it
+        doAnswer(invocation -> {
+            transactionTemplate.executeWithoutResult(status -> {
+                WebhookEvent current = webhookEventRepository.findById(event.getId()).orElseThrow();
+                current.setClaimedBy("other-instance");
+                webhookEventRepository.save(current);
+            });
+            throw new RuntimeException("Payment not found for intent: pi_taken_over");
+        }).when(payments).failPayment(any());
+        PaymentWebhookProcessor processor = processor(payments);
+
+        processor.processPending();
+
+        WebhookEvent current = webhookEventRepository.findById(event.getId()).orElseThrow();
+        assertThat(current.getClaimedBy()).isEqualTo("other-instance");
+        assertThat(current.getStatus()).isEqualTo(WebhookEvent.Status.RECEIVED);
+        assertThat(current.getAttempts()).isZero();
+        assertThat(current.getLastError()).isNull();
+    }
+
+    @Test
+    void pollStopsAfterItsBatchLimit() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(saveEvent("charge.refunded", "pi_backlog_" + i).getId());
+        }
+        PaymentWebhookProcessor processor = processor(mock(PaymentService.class));
+        ReflectionTestUtils.setField(processor, "batchSize", 1);
+        ReflectionTestUtils.setField(processor, "maxBatchesPerPoll", 2);
+
+        processor.processPending();
+
+        assertThat(webhookEventRepository.findAllById(ids))
+                .filteredOn(event -> event.getStatus() == WebhookEvent.Status.RECEIVED)
+                .isNotEmpty();
+    }
+
+    private PaymentWebhookProcessor processor(PaymentService payments) {
+        PaymentWebhookProcessor processor = new PaymentWebhookProcessor(webhookEventRepository, payments,
+                transactionTemplate);
+        ReflectionTestUtils.setField(processor, "batchSize", 100);
+        ReflectionTestUtils.setField(processor, "leaseSeconds", 60L);
+        ReflectionTestUtils.setField(processor, "maxAttempts", 8);
+        ReflectionTestUtils.setField(processor, "backoffInitialMs", 1000L);
+        ReflectionTestUtils.setField(processor, "backoffMaxMs", 60_000L);
+        ReflectionTestUtils.setField(processor, "maxBatchesPerPoll", 10);
+        ReflectionTestUtils.setField(processor, "maxPollMs", 5_000L);
+        return processor;
+    }
+
+    private WebhookEvent saveEvent(String type, String intentId) {
+        LocalDateTime now = LocalDateTime.now();
+        return webhookEventRepository.save(WebhookEvent.builder()
+                .eventId("evt_test_" + UUID.randomUUID())
+                .eventType(type)
+                .objectId(intentId)
+                .payload("{}")
+                .status(WebhookEvent.Status.RECEIVED)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .receivedAt(now)
+                .build());
+    }
+}
@@ -0,0 +1,105 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductFacetIndexTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductFacetIndex index =
+            new ProductFacetIndex(productRepository, List.of(new BigDecimal("25"), new BigDecimal("100")));
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        products.add(product(1L, "Electronics", "19.99", 5));
+        products.add(product(2L, "Electronics", "59.99", 0));
+        products.add(product(3L, "Accessories", "149.00", 3));
+        when(productRepository.findActivePageById(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            return products.stream().filter(product -> product.getId() > afterId).toList();
+        });
+        index.warmUp();
+    }
+
+    @Test
+    void countsEachFacetAgainstTheOtherFilters() {
+        ProductFacetIndex.FacetResult result = index.query("Electronics", null, ProductFacetIndex.IN_STOCK, 0, 10);
+
+        assertThat(result.getProductIds()).containsExactly(1L);
+        assertThat(result.getCategoryCounts()).containsEntry("Electronics", 1L).containsEntry("Accessories", 1L);
+        assertThat(result.getAvailabilityCounts())
+                .containsEntry(ProductFacetIndex.IN_STOCK, 1L)
+                .containsEntry(ProductFacetIndex.OUT_OF_STOCK, 1L);
+    }
+
+    @Test
+    void pagesByProductId() {
+        ProductFacetIndex.FacetResult first = index.query(null, null, null, 0, 2);
+        assertThat(first.getProductIds()).containsExactly(1L, 2L);
+        assertThat(first.getNextAfterId()).isEqualTo(2L);
+
+        ProductFacetIndex.FacetResult second = index.query(null, null, null, first.getNextAfterId(), 2);
+        assertThat(second.getProductIds()).containsExactly(3L);
+        assertThat(second.getNextAfterId()).isNull();
+
+        assertThat(index.query(null, null, null, Long.MAX_VALUE, 2).getProductIds()).isEmpty();
+    }
+
+    @Test
+    void rejectsNegativeAfterId() {
+        assertThatThrownBy(() -> index.query(null, null, null, -5, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void failsLoudlyOnIdsBeyondTheBitsetRange() {
+        long hugeId = Integer.MAX_VALUE + 1L;
+        when(productRepository.findAllById(anyIterable()))
+                .thenReturn(List.of(product(hugeId, "Electronics", "10.00", 1)));
+        index.onProductsChanged(ProductsChangedEvent.of(Set.of(hugeId)));
+
+        assertThatThrownBy(index::refresh).isInstanceOf(IllegalStateException.class);
+        // The published bitsets are still served
+        assertThat(index.query(null, null, null, 0, 10).getProductIds()).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void rebuildSwapsInFreshBitsets() {
+        products.remove(0);
+        products.add(product(4L, "Outdoor", "10.00", 1));
+        index.onProductsChanged(ProductsChangedEvent.allProducts());
+        index.refresh();
+
+        ProductFacetIndex.FacetResult result = index.query(null, "0-25", null, 0, 10);
+        assertThat(result.getProductIds()).containsExactly(4L);
+        assertThat(result.getCategoryCounts()).containsOnlyKeys("Accessories", "Electronics", "Outdoor");
+    }
+
+    private static Product product(Long id, String category, String price, int stock) {
+        return Product.builder()
+                .id(id)
+                .name("Product " + id)
+                .category(category)
+                .price(new BigDecimal(price))
+                .stockQuantity(stock)
+                .active(true)
+                .build();
+    }
+}
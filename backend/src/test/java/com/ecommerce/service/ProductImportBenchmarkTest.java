@@ -0,0 +1,65 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ProductImportResponse;
+import com.ecommerce.repository.ProductJdbcRepository.StockMode;
+import com.ecommerce.support.IntegrationTest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Import throughput for new SKUs, for re-imports where every row changed and for re-imports of an unchanged
+ * feed, against the configured datasource.
+ * Run with {@code mvn test -Pbenchmark -Dtest=ProductImportBenchmarkTest}.
+ */
+@Tag("benchmark")
+class ProductImportBenchmarkTest extends IntegrationTest {
+
+    private static final int ROWS = 200_000;
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Test
+    void importThroughput() {
+        // Warm-up run on a separate SKU range so JIT and connection pool are hot
+        run(csv(20_000, "WARM-", 0));
+
+        ProductImportResponse inserted = run(csv(ROWS, "BENCH-", 0));
+        ProductImportResponse updated = run(csv(ROWS, "BENCH-", 1));
+        ProductImportResponse unchanged = run(csv(ROWS, "BENCH-", 1));
+
+        report("insert", inserted.getInserted(), inserted);
+        report("update", updated.getUpdated(), updated);
+        report("unchanged", unchanged.getUnchanged(), unchanged);
+        assertThat(inserted.getInserted()).isEqualTo(ROWS);
+        assertThat(updated.getUpdated()).isEqualTo(ROWS);
+        assertThat(unchanged.getUnchanged()).isEqualTo(ROWS);
+    }
+
+    private ProductImportResponse run(byte[] csv) {
+        return productImportService.importProducts(new ByteArrayInputStream(csv), ProductImportService.FORMAT_CSV,
+                StockMode.KEEP);
+    }
+
+    private static void report(String label, long rows, ProductImportResponse response) {
+        System.out.printf("%s: %d rows in %d ms = %d rows/s%n",
+                label, rows, response.getDurationMs(), response.getRowsPerSecond());
+    }
+
+    private static byte[] csv(int rows, String skuPrefix, int priceShift) {
+        StringBuilder csv = new StringBuilder("sku,name,description,price,stockQuantity,imageUrl,category,active\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(skuPrefix).append(i).append(",Product ").append(i)
+                    .append(",\"Imported product, batch row ").append(i).append("\",")
+                    .append(10 + priceShift + i % 490).append(".99,").append(i % 100).append(",,Category ").append(i % 20)
+                    .append(",true\n");
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
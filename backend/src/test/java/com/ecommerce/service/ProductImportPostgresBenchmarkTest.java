@@ -0,0 +1,32 @@
+package com.ecommerce.service;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * {@link ProductImportBenchmarkTest} against PostgreSQL in a container, configured like production: batched inserts
+ * rewritten into multi-row statements and SKU lookups through {@code UNNEST} of an array parameter.
+ * Skipped when Docker is not available.
+ * Run with {@code mvn test -Pbenchmark -Dtest=ProductImportPostgresBenchmarkTest}.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+class ProductImportPostgresBenchmarkTest extends ProductImportBenchmarkTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.datasource.driver-class-name", POSTGRES::getDriverClassName);
+        registry.add("spring.datasource.hikari.data-source-properties.reWriteBatchedInserts", () -> "true");
+        registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+    }
+}
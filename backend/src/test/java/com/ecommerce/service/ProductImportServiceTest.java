@@ -0,0 +1,75 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ProductImportResponse;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductJdbcRepository;
+import com.ecommerce.repository.ProductJdbcRepository.StockMode;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.support.IntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductImportServiceTest extends IntegrationTest {
+
+    private static final String HEADER = "sku,name,description,price,stockQuantity,imageUrl,category,active\n";
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductJdbcRepository productJdbcRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void keepsStockOfExistingSkusUnlessAskedOtherwise() {
+        String sku = "IMPORT-STOCK-1";
+        importCsv(sku + ",Lamp,,20.00,10,,Home,true", StockMode.KEEP);
+        Product product = findBySku(sku);
+        // A checkout between two feed imports
+        productJdbcRepository.decrementStock(new TreeMap<>(Map.of(product.getId(), 3)));
+
+        ProductImportResponse renamed = importCsv(sku + ",Desk Lamp,,20.00,10,,Home,true", StockMode.KEEP);
+        assertThat(renamed.getUpdated()).isEqualTo(1);
+        assertThat(findBySku(sku).getName()).isEqualTo("Desk Lamp");
+        assertThat(findBySku(sku).getStockQuantity()).isEqualTo(7);
+
+        importCsv(sku + ",Desk Lamp,,20.00,5,,Home,true", StockMode.ADD);
+        assertThat(findBySku(sku).getStockQuantity()).isEqualTo(12);
+
+        importCsv(sku + ",Desk Lamp,,20.00,40,,Home,true", StockMode.SET);
+        assertThat(findBySku(sku).getStockQuantity()).isEqualTo(40);
+    }
+
+    @Test
+    void skipsRowsThatMatchTheStoredProduct() {
+        String row = "IMPORT-SAME-1,Mug,\"Mug, ceramic\",8.50,10,,Kitchen,true";
+        assertThat(importCsv(row, StockMode.KEEP).getInserted()).isEqualTo(1);
+
+        ProductImportResponse again = importCsv(row.replace(",10,", ",99,"), StockMode.KEEP);
+        assertThat(again.getUnchanged()).isEqualTo(1);
+        assertThat(again.getUpdated()).isZero();
+        assertThat(findBySku("IMPORT-SAME-1").getStockQuantity()).isEqualTo(10);
+    }
+
+    private ProductImportResponse importCsv(String row, StockMode stockMode) {
+        byte[] body = (HEADER + row + "\n").getBytes(StandardCharsets.UTF_8);
+        return productImportService.importProducts(new ByteArrayInputStream(body), ProductImportService.FORMAT_CSV,
+                stockMode);
+    }
+
+    private Product findBySku(String sku) {
+        return productRepository.findAll().stream()
+                .filter(product -> sku.equals(product.getSku()))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,136 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Search and update latency over a synthetic catalog. Updates rename one product at a time, so their average
+ * includes the periodic merge of the delta into the base.
+ * Run with {@code mvn test -Pbenchmark -Dtest=ProductSearchIndexBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ProductSearchIndexBenchmark {
+
+    private static final String[] ADJECTIVES = {"wireless", "wired", "portable", "ergonomic", "compact", "premium",
+            "mechanical", "smart", "waterproof", "foldable", "adjustable", "rechargeable", "bluetooth", "usb",
+            "leather", "aluminum", "gaming", "studio", "outdoor", "travel"};
+    private static final String[] NOUNS = {"headphones", "keyboard", "mouse", "speaker", "charger", "stand", "lamp",
+            "backpack", "monitor", "webcam", "microphone", "cable", "hub", "dock", "case", "tripod", "tracker",
+            "watch", "router", "drive"};
+    private static final String[] CATEGORIES = {"Electronics", "Accessories", "Audio", "Office", "Outdoor", "Gaming"};
+
+    @Param({"10000", "100000", "1000000"})
+    private int productCount;
+
+    private ProductSearchIndex index;
+    private Random updates;
+    private long renames;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>(productCount);
+        for (long id = 1; id <= productCount; id++) {
+            String adjective = ADJECTIVES[random.nextInt(ADJECTIVES.length)];
+            String noun = NOUNS[random.nextInt(NOUNS.length)];
+            products.add(Product.builder()
+                    .id(id)
+                    .name(adjective + " " + noun + " " + Long.toString(id, 36))
+                    .category(CATEGORIES[random.nextInt(CATEGORIES.length)])
+                    .description("A " + ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + noun
+                            + " for everyday use, model " + Long.toString(id * 7919, 36))
+                    .price(BigDecimal.valueOf(10 + random.nextInt(500)))
+                    .stockQuantity(random.nextInt(100))
+                    .active(true)
+                    .build());
+        }
+
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findActivePageById(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            int pageSize = invocation.<Limit>getArgument(1).max();
+            int from = (int) Math.min(afterId, products.size());
+            return products.subList(from, Math.min(from + pageSize, products.size()));
+        });
+        index = new ProductSearchIndex(productRepository);
+        index.warmUp();
+        updates = new Random(7);
+    }
+
+    @Benchmark
+    public List<Long> singleTerm() {
+        return index.search("headphones", 20);
+    }
+
+    @Benchmark
+    public List<Long> twoTerms() {
+        return index.search("wireless headphones", 20);
+    }
+
+    @Benchmark
+    public List<Long> prefix() {
+        return index.search("wire", 20);
+    }
+
+    @Benchmark
+    public List<Long> prefixAndTerm() {
+        return index.search("port speaker", 20);
+    }
+
+    @Benchmark
+    public void update() {
+        long id = 1 + updates.nextInt(productCount);
+        renames++;
+        index.update(Map.of(id, Product.builder()
+                .id(id)
+                .name(ADJECTIVES[(int) (renames % ADJECTIVES.length)] + " " + NOUNS[(int) (id % NOUNS.length)]
+                        + " " + Long.toString(renames, 36))
+                .category(CATEGORIES[(int) (id % CATEGORIES.length)])
+                .description("Renamed " + NOUNS[(int) (id % NOUNS.length)])
+                .price(BigDecimal.TEN)
+                .stockQuantity(10)
+                .active(true)
+                .build()));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder().include(getClass().getName() + "\\.").build()).run();
+    }
+}
@@ -0,0 +1,129 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductSearchIndexTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductSearchIndex index = new ProductSearchIndex(productRepository);
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        products.add(product(1L, "Wireless Headphones", "Electronics", "Noise cancelling over-ear headphones"));
+        products.add(product(2L, "Wired Headset", "Electronics", "Headset with boom microphone"));
+        products.add(product(3L, "Laptop Stand", "Accessories", "Aluminum stand for laptops"));
+        when(productRepository.findActivePageById(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            return products.stream().filter(product -> product.getId() > afterId).toList();
+        });
+        index.warmUp();
+    }
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatches() {
+        assertThat(index.search("headphones", 10)).containsExactly(1L);
+        assertThat(index.search("headset", 10)).containsExactly(2L);
+        assertThat(index.search("stand laptop", 10)).containsExactly(3L);
+    }
+
+    @Test
+    void expandsPrefixesAndRequiresEveryToken() {
+        assertThat(index.search("head", 10)).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(index.search("head wireless", 10)).containsExactly(1L);
+        assertThat(index.search("head aluminum", 10)).isEmpty();
+    }
+
+    @Test
+    void appliesChangesInTheBackgroundAndKeepsServingThePublishedSegment() {
+        Product renamed = product(2L, "Gaming Keyboard", "Electronics", "Mechanical keyboard");
+        Product added = product(4L, "Keyboard Tray", "Accessories", "Under-desk tray");
+        when(productRepository.findAllById(anyIterable())).thenReturn(List.of(renamed, added));
+
+        index.onProductsChanged(ProductsChangedEvent.of(Set.of(2L, 3L, 4L)));
+        assertThat(index.search("keyboard", 10)).isEmpty();
+        verify(productRepository, never()).findAllById(anyIterable());
+
+        index.refresh();
+        assertThat(index.search("keyboard", 10)).containsExactlyInAnyOrder(2L, 4L);
+        assertThat(index.search("headset", 10)).isEmpty();
+        // Product 3 was not returned by the reload, so it is treated as deleted
+        assertThat(index.search("laptop", 10)).isEmpty();
+        assertThat(index.search("headphones", 10)).containsExactly(1L);
+    }
+
+    @Test
+    void servesChangesFromTheDeltaAndAfterMergingThemIntoTheBase() {
+        when(productRepository.findAllById(anyIterable())).thenReturn(
+                List.of(product(2L, "Gaming Keyboard", "Electronics", "Mechanical keyboard")),
+                List.of(product(2L, "Gaming Keypad", "Electronics", "Macro keypad")));
+        index.onProductsChanged(ProductsChangedEvent.of(Set.of(1L, 2L)));
+        index.refresh();
+        assertThat(index.search("key", 10)).containsExactly(2L);
+        assertThat(index.search("head", 10)).isEmpty();
+        assertThat(index.search("electronics", 10)).containsExactly(2L);
+
+        // A product changed twice is only found by its latest text
+        index.onProductsChanged(ProductsChangedEvent.of(Set.of(2L)));
+        index.refresh();
+        assertThat(index.search("keyboard", 10)).isEmpty();
+        assertThat(index.search("keypad gaming", 10)).containsExactly(2L);
+
+        // Enough changes to merge the delta into a new base
+        List<Product> lamps = LongStream.rangeClosed(10, 5009)
+                .mapToObj(id -> product(id, "Desk Lamp " + id, "Lighting", "")).toList();
+        when(productRepository.findAllById(anyIterable())).thenReturn(lamps);
+        index.onProductsChanged(ProductsChangedEvent.of(lamps.stream().map(Product::getId).collect(Collectors.toSet())));
+        index.refresh();
+        assertThat(index.search("lamp", 10000)).hasSize(5000);
+        assertThat(index.search("keypad", 10)).containsExactly(2L);
+        assertThat(index.search("headphones", 10)).isEmpty();
+        assertThat(index.search("laptop stand", 10)).containsExactly(3L);
+    }
+
+    @Test
+    void capsPrefixExpansions() {
+        products.clear();
+        IntStream.rangeClosed(1, 100).forEach(i ->
+                products.add(product((long) i, "Gadget wid" + String.format("%03d", i), "Gadgets", "")));
+        index.onProductsChanged(ProductsChangedEvent.allProducts());
+        index.refresh();
+
+        // Terms expand in dictionary order and stop after 64: wid001 to wid064
+        assertThat(index.search("wid", 100)).hasSize(64).contains(64L).doesNotContain(65L);
+        assertThat(index.search("wid100", 100)).containsExactly(100L);
+    }
+
+    private static Product product(Long id, String name, String category, String description) {
+        return Product.builder()
+                .id(id)
+                .name(name)
+                .category(category)
+                .description(description)
+                .price(BigDecimal.TEN)
+                .stockQuantity(10)
+                .active(true)
+                .build();
+    }
+}
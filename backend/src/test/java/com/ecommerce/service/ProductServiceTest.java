@@ -0,0 +1,107 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductServiceTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductService productService = new ProductService(productRepository, new ObjectMapper(),
+            mock(ProductSearchIndex.class), mock(ProductFacetIndex.class));
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        products.add(product(1L, "Electronics", 5));
+        products.add(product(2L, "Electronics", 3));
+        products.add(product(3L, "Accessories", 7));
+        when(productRepository.findAll()).thenAnswer(invocation -> List.copyOf(products));
+        when(productRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            Iterable<Long> ids = invocation.getArgument(0);
+            Set<Long> wanted = new HashSet<>();
+            ids.forEach(wanted::add);
+            return products.stream().filter(product -> wanted.contains(product.getId())).toList();
+        });
+    }
+
+    @Test
+    void changeWrittenByAnotherInstanceArrivesWithTheFullReload() {
+        assertThat(productService.getProductById(1L).getStockQuantity()).isEqualTo(5);
+
+        // Another instance sells the product; no event reaches this one
+        products.set(0, product(1L, "Electronics", 4));
+        productService.refreshCatalog();
+        assertThat(productService.getProductById(1L).getStockQuantity()).isEqualTo(5);
+
+        productService.scheduleFullRefresh();
+        productService.refreshCatalog();
+        assertThat(productService.getProductById(1L).getStockQuantity()).isEqualTo(4);
+    }
+
+    @Test
+    void fullReloadThatFindsNothingNewKeepsTheServedListings() {
+        CatalogView all = productService.getActiveCatalogView();
+        CatalogView accessories = productService.getCategoryCatalogView("Accessories");
+        assertThat(productService.getActiveCatalogView()).isSameAs(all);
+
+        productService.scheduleFullRefresh();
+        productService.refreshCatalog();
+
+        assertThat(productService.getActiveCatalogView()).isSameAs(all);
+        assertThat(productService.getCategoryCatalogView("Accessories")).isSameAs(accessories);
+    }
+
+    @Test
+    void patchOnlyReplacesTheListingsOfTouchedCategories() {
+        CatalogView all = productService.getActiveCatalogView();
+        CatalogView electronics = productService.getCategoryCatalogView("Electronics");
+        CatalogView accessories = productService.getCategoryCatalogView("Accessories");
+
+        products.set(1, product(2L, "Electronics", 0));
+        productService.onProductsChanged(ProductsChangedEvent.of(Set.of(2L)));
+        productService.refreshCatalog();
+
+        assertThat(productService.getActiveCatalogView()).isNotSameAs(all);
+        assertThat(productService.getCategoryCatalogView("Electronics")).isNotSameAs(electronics);
+        assertThat(productService.getCategoryCatalogView("Accessories")).isSameAs(accessories);
+        assertThat(productService.getProductById(2L).getStockQuantity()).isZero();
+    }
+
+    @Test
+    void fullReloadDropsDeletedProductsAndTheirListings() {
+        CatalogView accessories = productService.getCategoryCatalogView("Accessories");
+
+        products.remove(2);
+        productService.scheduleFullRefresh();
+        productService.refreshCatalog();
+
+        assertThat(productService.getCatalog().getProductsById()).containsOnlyKeys(1L, 2L);
+        assertThat(productService.getCategoryCatalogView("Accessories")).isNotSameAs(accessories);
+        assertThat(productService.getProductsByCategory("Accessories")).isEmpty();
+    }
+
+    private static Product product(Long id, String category, int stock) {
+        return Product.builder()
+                .id(id)
+                .name("Product " + id)
+                .category(category)
+                .price(new BigDecimal("19.99"))
+                .stockQuantity(stock)
+                .active(true)
+                .build();
+    }
+}
@@ -0,0 +1,22 @@
+package com.ecommerce.support;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Base for tests against the full application on the in-memory database. Every subclass shares one Spring
+ * context, so tests create their own products and orders instead of relying on a clean database. Controller tests
+ * call the API through MockMvc in the same context.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(StatementCounter.class)
+public abstract class IntegrationTest {
+
+    @Autowired
+    protected StatementCounter statementCounter;
+}
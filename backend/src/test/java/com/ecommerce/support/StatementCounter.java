@@ -0,0 +1,106 @@
+package com.ecommerce.support;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestComponent;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Wraps the application DataSource and records every statement execution (one entry per JDBC round trip, so a
+ * batch counts once), covering JPA and JdbcTemplate alike. Entries are tagged with the executing thread so
+ * tests can ignore scheduler activity.
+ */
+@TestComponent
+public class StatementCounter implements BeanPostProcessor {
+
+    private static final Set<String> EXECUTE_METHODS =
+            Set.of("execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final List<Execution> executions = new CopyOnWriteArrayList<>();
+
+    public void reset() {
+        executions.clear();
+    }
+
+    /**
+     * @return the SQL of every round trip made by the calling thread since the last {@link #reset()}
+     */
+    public List<String> statementsOnCurrentThread() {
+        Thread current = Thread.currentThread();
+        return executions.stream()
+                .filter(execution -> execution.thread() == current)
+                .map(Execution::sql)
+                .toList();
+    }
+
+    public long countOnCurrentThread(String tableName) {
+        String table = tableName.toLowerCase(Locale.ROOT);
+        return statementsOnCurrentThread().stream()
+                .filter(sql -> sql.toLowerCase(Locale.ROOT).matches("(?s).*\\b" + table + "\\b.*"))
+                .count();
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return proxy(DataSource.class, dataSource, (target, method, args) -> {
+                Object result = method.invoke(target, args);
+                return result instanceof Connection connection ? wrap(connection) : result;
+            });
+        }
+        return bean;
+    }
+
+    private Connection wrap(Connection connection) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = method.invoke(target, args);
+            if (result instanceof PreparedStatement statement && method.getName().startsWith("prepare")) {
+                return wrap(PreparedStatement.class, statement, (String) args[0]);
+            }
+            if (result instanceof Statement statement && method.getName().equals("createStatement")) {
+                return wrap(Statement.class, statement, null);
+            }
+            return result;
+        });
+    }
+
+    private <T extends Statement> T wrap(Class<T> type, T statement, String preparedSql) {
+        return proxy(type, statement, (target, method, args) -> {
+            if (EXECUTE_METHODS.contains(method.getName())) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+                executions.add(new Execution(Thread.currentThread(), String.valueOf(sql)));
+            }
+            return method.invoke(target, args);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, Handler<T> handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> {
+            try {
+                return handler.invoke(target, method, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (T) Proxy.newProxyInstance(StatementCounter.class.getClassLoader(), new Class<?>[]{type}, invocationHandler);
+    }
+
+    private interface Handler<T> {
+        Object invoke(T target, Method method, Object[] args) throws Throwable;
+    }
+
+    private record Execution(Thread thread, String sql) {
+    }
+}
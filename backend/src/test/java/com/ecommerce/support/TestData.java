@@ -0,0 +1,48 @@
+package com.ecommerce.support;
+
+import com.ecommerce.dto.CartItemRequest;
+import com.ecommerce.dto.CreateOrderRequest;
+import com.ecommerce.model.Product;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builders for the products and checkout requests that integration tests create for themselves.
+ */
+public final class TestData {
+
+    private TestData() {
+    }
+
+    public static Product product(String name, int stock) {
+        return Product.builder()
+                .name(name)
+                .price(new BigDecimal("9.99"))
+                .stockQuantity(stock)
+                .category("Tests")
+                .build();
+    }
+
+    /**
+     * A guest checkout with one unit of each product.
+     */
+    public static CreateOrderRequest orderRequest(String email, Product... products) {
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setCustomerEmail(email);
+        request.setShippingAddress("1 Test Street");
+        request.setShippingCity("Testville");
+        request.setShippingZipCode("12345");
+        request.setShippingCountry("US");
+        List<CartItemRequest> items = new ArrayList<>();
+        for (Product product : products) {
+            CartItemRequest item = new CartItemRequest();
+            item.setProductId(product.getId());
+            item.setQuantity(1);
+            items.add(item);
+        }
+        request.setItems(items);
+        return request;
+    }
+}
@@ -4,19 +4,20 @@ import { adminAPI } from '../../services/api';
 import logger from '../../services/logger';
 
 export default function Dashboard() {
-  const [orders, setOrders] = useState([]);
-  const [products, setProducts] = useState([]);
+  const [stats, setStats] = useState(null);
+  const [recentOrders, setRecentOrders] = useState([]);
   const [loading, setLoading] = useState(true);
 
   useEffect(() => {
     const fetchData = async () => {
       try {
-        const [ordersRes, productsRes] = await Promise.all([
-          adminAPI.getAllOrders(),
-          adminAPI.getAllProducts(),
+        // Totals come from the server-side counters, which also cover archived orders
+        const [statsRes, recentRes] = await Promise.all([
+          adminAPI.getStats(),
+          adminAPI.searchOrders({ limit: 5 }),
         ]);
-        setOrders(ordersRes.data);
-        setProducts(productsRes.data);
+        setStats(statsRes.data);
+        setRecentOrders(recentRes.data.items);
       } catch (error) {
         logger.error('Failed to fetch dashboard data: ' + error.message, { source: 'AdminDashboard' });
       } finally {
@@ -34,12 +35,10 @@ export default function Dashboard() {
     );
   }
 
-  const totalRevenue = orders
-    .filter(o => o.status === 'PAID' || o.status === 'PROCESSING' || o.status === 'SHIPPED' || o.status === 'DELIVERED')
-    .reduce((sum, order) => sum + order.totalAmount, 0);
-
-  const pendingOrders = orders.filter(o => o.status === 'PENDING').length;
-  const paidOrders = orders.filter(o => o.status === 'PAID').length;
+  const totalOrders = stats?.totalOrders ?? 0;
+  const totalRevenue = Number(stats?.paidRevenue ?? 0);
+  const pendingOrders = stats?.ordersByStatus?.PENDING ?? 0;
+  const paidOrders = stats?.ordersByStatus?.PAID ?? 0;
 
   return (
     <div>
@@ -49,7 +48,7 @@ export default function Dashboard() {
       <div className="grid grid-cols-1 md:grid-cols-4 gap-6 mb-8">
         <div className="bg-white rounded-lg shadow-md p-6">
           <p className="text-gray-600 text-sm">Total Orders</p>
-          <p className="text-3xl font-bold text-gray-900">{orders.length}</p>
+          <p className="text-3xl font-bold text-gray-900">{totalOrders}</p>
         </div>
         <div className="bg-white rounded-lg shadow-md p-6">
           <p className="text-gray-600 text-sm">Pending Orders</p>
@@ -103,11 +102,11 @@ export default function Dashboard() {
               </tr>
             </thead>
             <tbody>
-              {orders.slice(0, 5).map((order) => (
+              {recentOrders.map((order) => (
                 <tr key={order.id} className="border-b hover:bg-gray-50">
                   <td className="py-3 px-4">#{order.id}</td>
                   <td className="py-3 px-4">{order.customerEmail}</td>
-                  <td className="py-3 px-4">${order.totalAmount.toFixed(2)}</td>
+                  <td className="py-3 px-4">${Number(order.totalAmount).toFixed(2)}</td>
                   <td className="py-3 px-4">
                     <span className={`px-2 py-1 rounded-full text-xs ${
                       order.status === 'PAID' ? 'bg-green-100 text-green-800' :
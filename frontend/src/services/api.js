@@ -52,6 +52,8 @@ export const configAPI = {
 // Admin APIs
 export const adminAPI = {
   getAllOrders: () => api.get('/admin/orders'),
+  getStats: () => api.get('/admin/stats'),
+  searchOrders: (params) => api.get('/admin/orders/search', { params }),
   getOrder: (id) => api.get(`/admin/orders/${id}`),
   updateOrderStatus: (id, status) => api.put(`/admin/orders/${id}/status`, { status }),
   getAllProducts: () => api.get('/admin/products'),